@@ -0,0 +1,170 @@
+package com.pushtorefresh.storio.operation.group;
+
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.PreparedOperation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Executes operations of {@link PreparedGroupOperation} concurrently via {@link Executor},
+ * operation starts only after all its dependencies are completed
+ * <p>
+ * If one of operations fails, operations that were not started yet are skipped
+ * and first exception is rethrown to the caller.
+ */
+class ParallelExecution {
+
+    @NonNull
+    private final Executor executor;
+
+    @NonNull
+    private final Map<PreparedOperation<?>, Object> results = new HashMap<PreparedOperation<?>, Object>();
+
+    @NonNull
+    private final Map<PreparedOperation<?>, AtomicInteger> remainingDependencies = new HashMap<PreparedOperation<?>, AtomicInteger>();
+
+    @NonNull
+    private final Map<PreparedOperation<?>, List<PreparedOperation<?>>> dependents = new HashMap<PreparedOperation<?>, List<PreparedOperation<?>>>();
+
+    @NonNull
+    private final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+    @NonNull
+    private final CountDownLatch completedOperations;
+
+    private ParallelExecution(@NonNull Executor executor,
+                              @NonNull List<PreparedOperation<?>> preparedOperations,
+                              @NonNull Map<PreparedOperation<?>, List<PreparedOperation<?>>> dependencies) {
+        this.executor = executor;
+        completedOperations = new CountDownLatch(preparedOperations.size());
+
+        for (PreparedOperation<?> preparedOperation : preparedOperations) {
+            final List<PreparedOperation<?>> dependenciesOfOperation = dependencies.get(preparedOperation);
+            final int numberOfDependencies = dependenciesOfOperation == null ? 0 : dependenciesOfOperation.size();
+
+            remainingDependencies.put(preparedOperation, new AtomicInteger(numberOfDependencies));
+
+            if (dependenciesOfOperation != null) {
+                for (PreparedOperation<?> dependency : dependenciesOfOperation) {
+                    List<PreparedOperation<?>> dependentsOfDependency = dependents.get(dependency);
+
+                    if (dependentsOfDependency == null) {
+                        dependentsOfDependency = new ArrayList<PreparedOperation<?>>();
+                        dependents.put(dependency, dependentsOfDependency);
+                    }
+
+                    dependentsOfDependency.add(preparedOperation);
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes operations and blocks current thread until all of them are completed
+     *
+     * @param executor           executor for operations
+     * @param preparedOperations operations sorted so that dependencies go before dependent operations
+     * @param dependencies       map of pairs (operation, operations it depends on)
+     * @return non-null map of pairs (operation, resultOfOperation)
+     */
+    @NonNull
+    static Map<PreparedOperation<?>, Object> execute(@NonNull Executor executor,
+                                                     @NonNull List<PreparedOperation<?>> preparedOperations,
+                                                     @NonNull Map<PreparedOperation<?>, List<PreparedOperation<?>>> dependencies) {
+        final ParallelExecution execution = new ParallelExecution(executor, preparedOperations, dependencies);
+
+        // operations without dependencies are collected before submission: counters are decremented
+        // by completed operations concurrently, so dependent operation could be submitted twice otherwise
+        final List<PreparedOperation<?>> independentOperations = new ArrayList<PreparedOperation<?>>();
+
+        for (PreparedOperation<?> preparedOperation : preparedOperations) {
+            if (execution.remainingDependencies.get(preparedOperation).get() == 0) {
+                independentOperations.add(preparedOperation);
+            }
+        }
+
+        for (PreparedOperation<?> preparedOperation : independentOperations) {
+            execution.submit(preparedOperation);
+        }
+
+        return execution.awaitResults();
+    }
+
+    private void submit(@NonNull final PreparedOperation<?> preparedOperation) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    execute(preparedOperation);
+                }
+            });
+        } catch (RuntimeException e) {
+            // for example, RejectedExecutionException, we still have to complete operation to release waiting thread
+            error.compareAndSet(null, e);
+            onCompleted(preparedOperation);
+        }
+    }
+
+    private void execute(@NonNull PreparedOperation<?> preparedOperation) {
+        try {
+            // skip operations which were not started before failure
+            if (error.get() == null) {
+                final Object result = preparedOperation.executeAsBlocking();
+
+                synchronized (results) {
+                    results.put(preparedOperation, result);
+                }
+            }
+        } catch (Throwable e) {
+            error.compareAndSet(null, e);
+        } finally {
+            onCompleted(preparedOperation);
+        }
+    }
+
+    private void onCompleted(@NonNull PreparedOperation<?> preparedOperation) {
+        final List<PreparedOperation<?>> dependentsOfOperation = dependents.get(preparedOperation);
+
+        if (dependentsOfOperation != null) {
+            for (PreparedOperation<?> dependent : dependentsOfOperation) {
+                if (remainingDependencies.get(dependent).decrementAndGet() == 0) {
+                    submit(dependent);
+                }
+            }
+        }
+
+        completedOperations.countDown();
+    }
+
+    @NonNull
+    private Map<PreparedOperation<?>, Object> awaitResults() {
+        try {
+            completedOperations.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for operations of Group Operation", e);
+        }
+
+        final Throwable throwable = error.get();
+
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        } else if (throwable != null) {
+            throw new RuntimeException(throwable);
+        }
+
+        synchronized (results) {
+            return results;
+        }
+    }
+}
@@ -1,16 +1,25 @@
 package com.pushtorefresh.storio.operation.group;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.pushtorefresh.storio.operation.PreparedOperation;
 import com.pushtorefresh.storio.operation.internal.OnSubscribeExecuteAsBlocking;
+import com.pushtorefresh.storio.operation.internal.SchedulerExecutor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import rx.Observable;
+import rx.Scheduler;
+
+import static com.pushtorefresh.storio.util.Checks.checkNotNull;
 
 /**
  * Prepared Group Operation for StorIO implementations
@@ -18,24 +27,76 @@ import rx.Observable;
  * Allows group execution of any combination of {@link PreparedOperation}
  * <p>
  * And yes, you can execute {@link PreparedGroupOperation} as part of {@link PreparedGroupOperation} since it implements {@link PreparedOperation} :)
+ * <p>
+ * If all operations target one storage, group can be executed in one transaction of this storage,
+ * see {@link CompleteBuilder#inTransaction(Transactional)}
+ * <p>
+ * Independent operations (for example, for different storages) can be executed concurrently,
+ * see {@link CompleteBuilder#executeInParallel(Executor)}
  */
 public final class PreparedGroupOperation implements PreparedOperation<GroupOperationResults> {
 
     @NonNull
     private final List<PreparedOperation<?>> preparedOperations;
 
-    PreparedGroupOperation(@NonNull List<PreparedOperation<?>> preparedOperations) {
+    @NonNull
+    private final Map<PreparedOperation<?>, List<PreparedOperation<?>>> dependencies;
+
+    @Nullable
+    private final Transactional transactional;
+
+    @Nullable
+    private final Executor executor;
+
+    PreparedGroupOperation(@NonNull List<PreparedOperation<?>> preparedOperations,
+                           @NonNull Map<PreparedOperation<?>, List<PreparedOperation<?>>> dependencies,
+                           @Nullable Transactional transactional,
+                           @Nullable Executor executor) {
         this.preparedOperations = preparedOperations;
+        this.dependencies = dependencies;
+        this.transactional = transactional;
+        this.executor = executor;
     }
 
     /**
      * Executes Group Operation immediately in current thread
+     * <p>
+     * If group was prepared with {@link CompleteBuilder#inTransaction(Transactional)},
+     * all operations will be executed in one transaction, exception of any operation will roll it back
+     * <p>
+     * If group was prepared with {@link CompleteBuilder#executeInParallel(Executor)},
+     * current thread will be blocked until all operations are completed
      *
      * @return non-null results of Group Operation
      */
     @NonNull
     @Override
     public GroupOperationResults executeAsBlocking() {
+        if (transactional == null) {
+            return executeOperations();
+        }
+
+        if (!transactional.transactionsSupported()) {
+            throw new IllegalStateException("Transactions are not supported by " + transactional);
+        }
+
+        transactional.beginTransaction();
+
+        try {
+            final GroupOperationResults results = executeOperations();
+            transactional.setTransactionSuccessful();
+            return results;
+        } finally {
+            transactional.endTransaction();
+        }
+    }
+
+    @NonNull
+    private GroupOperationResults executeOperations() {
+        if (executor != null) {
+            return GroupOperationResults.newInstance(ParallelExecution.execute(executor, preparedOperations, dependencies));
+        }
+
         final Map<PreparedOperation<?>, Object> results = new HashMap<PreparedOperation<?>, Object>();
 
         for (PreparedOperation<?> preparedOperation : preparedOperations) {
@@ -64,15 +125,50 @@ public final class PreparedGroupOperation implements PreparedOperation<GroupOper
 
         List<PreparedOperation<?>> preparedOperations = new ArrayList<PreparedOperation<?>>();
 
+        Set<PreparedOperation<?>> operationsOfGroup = new HashSet<PreparedOperation<?>>();
+
+        Map<PreparedOperation<?>, List<PreparedOperation<?>>> dependencies = new HashMap<PreparedOperation<?>, List<PreparedOperation<?>>>();
+
+        Transactional transactional;
+
+        Executor executor;
+
         /**
          * Adds Prepared Operation to Group Operation
+         * <p>
+         * Each operation can be added only once, results of Group Operation are mapped by operations
          *
          * @param preparedOperation non-null implementation of {@link PreparedOperation}
          * @return builder
          */
         @NonNull
         public CompleteBuilder addOperation(@NonNull PreparedOperation<?> preparedOperation) {
-            preparedOperations.add(preparedOperation);
+            add(preparedOperation);
+            return new CompleteBuilder(this);
+        }
+
+        /**
+         * Adds Prepared Operation which should be executed only after passed operations are completed
+         * <p>
+         * Dependencies should be added to the group too, they define order of execution in any mode
+         *
+         * @param preparedOperation non-null implementation of {@link PreparedOperation}
+         * @param dependencies      operations of this group which should be completed before passed operation
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder addOperation(@NonNull PreparedOperation<?> preparedOperation,
+                                            @NonNull PreparedOperation<?>... dependencies) {
+            add(preparedOperation);
+
+            List<PreparedOperation<?>> dependenciesOfOperation = this.dependencies.get(preparedOperation);
+
+            if (dependenciesOfOperation == null) {
+                dependenciesOfOperation = new ArrayList<PreparedOperation<?>>();
+                this.dependencies.put(preparedOperation, dependenciesOfOperation);
+            }
+
+            dependenciesOfOperation.addAll(Arrays.asList(dependencies));
             return new CompleteBuilder(this);
         }
 
@@ -85,11 +181,19 @@ public final class PreparedGroupOperation implements PreparedOperation<GroupOper
         @NonNull
         public CompleteBuilder addOperations(@NonNull Iterable<PreparedOperation<?>> preparedOperations) {
             for (PreparedOperation<?> preparedOperation : preparedOperations) {
-                this.preparedOperations.add(preparedOperation);
+                add(preparedOperation);
             }
 
             return new CompleteBuilder(this);
         }
+
+        private void add(@NonNull PreparedOperation<?> preparedOperation) {
+            if (!operationsOfGroup.add(preparedOperation)) {
+                throw new IllegalArgumentException("Operation " + preparedOperation + " is already added to Group Operation");
+            }
+
+            preparedOperations.add(preparedOperation);
+        }
     }
 
     /**
@@ -99,6 +203,62 @@ public final class PreparedGroupOperation implements PreparedOperation<GroupOper
 
         CompleteBuilder(@NonNull Builder builder) {
             preparedOperations = builder.preparedOperations;
+            operationsOfGroup = builder.operationsOfGroup;
+            dependencies = builder.dependencies;
+            transactional = builder.transactional;
+            executor = builder.executor;
+        }
+
+        /**
+         * Optional: Specifies that all operations should be executed in one transaction of passed storage,
+         * for example {@code storIOSQLite.internal()}
+         * <p>
+         * Operations will be committed together and observers of the storage
+         * will receive one notification after commit, so they never see half-applied group
+         * <p>
+         * By default operations are executed without common transaction
+         *
+         * @param transactional storage which all operations of the group target
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder inTransaction(@NonNull Transactional transactional) {
+            checkNotNull(transactional, "Please specify storage for transaction");
+            this.transactional = transactional;
+            return this;
+        }
+
+        /**
+         * Optional: Specifies that independent operations should be executed concurrently via passed {@link Executor}
+         * <p>
+         * Use {@link #addOperation(PreparedOperation, PreparedOperation[])} to declare operations
+         * that should wait for other operations. Parallel mode can not be combined with {@link #inTransaction(Transactional)}
+         * because transactions are bound to the thread.
+         * <p>
+         * By default operations are executed one after another in current thread
+         *
+         * @param executor executor for operations
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder executeInParallel(@NonNull Executor executor) {
+            checkNotNull(executor, "Please specify executor");
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Optional: Specifies that independent operations should be executed concurrently on passed {@link Scheduler}
+         * <p>
+         * Same as {@link #executeInParallel(Executor)}, each operation is executed on its own worker of the scheduler
+         *
+         * @param scheduler scheduler for operations, for example {@link rx.schedulers.Schedulers#io()}
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder executeInParallel(@NonNull Scheduler scheduler) {
+            checkNotNull(scheduler, "Please specify scheduler");
+            return executeInParallel(SchedulerExecutor.newInstance(scheduler));
         }
 
         /**
@@ -108,7 +268,54 @@ public final class PreparedGroupOperation implements PreparedOperation<GroupOper
          */
         @NonNull
         public PreparedGroupOperation prepare() {
-            return new PreparedGroupOperation(preparedOperations);
+            if (transactional != null && executor != null) {
+                throw new IllegalStateException("Group Operation can not be executed in parallel in one transaction");
+            }
+
+            return new PreparedGroupOperation(sortByDependencies(), dependencies, transactional, executor);
+        }
+
+        /**
+         * Sorts operations so that each operation goes after its dependencies,
+         * otherwise keeps order in which operations were added
+         */
+        @NonNull
+        private List<PreparedOperation<?>> sortByDependencies() {
+            if (dependencies.isEmpty()) {
+                return preparedOperations;
+            }
+
+            for (List<PreparedOperation<?>> dependenciesOfOperation : dependencies.values()) {
+                for (PreparedOperation<?> dependency : dependenciesOfOperation) {
+                    if (!operationsOfGroup.contains(dependency)) {
+                        throw new IllegalStateException("Dependency " + dependency + " is not added to Group Operation");
+                    }
+                }
+            }
+
+            final List<PreparedOperation<?>> sorted = new ArrayList<PreparedOperation<?>>(preparedOperations.size());
+            final Set<PreparedOperation<?>> added = new HashSet<PreparedOperation<?>>();
+
+            while (sorted.size() < preparedOperations.size()) {
+                final int sizeBeforePass = sorted.size();
+
+                for (PreparedOperation<?> preparedOperation : preparedOperations) {
+                    if (!added.contains(preparedOperation) && allAdded(dependencies.get(preparedOperation), added)) {
+                        sorted.add(preparedOperation);
+                        added.add(preparedOperation);
+                    }
+                }
+
+                if (sorted.size() == sizeBeforePass) {
+                    throw new IllegalStateException("Dependencies of operations of Group Operation have a cycle");
+                }
+            }
+
+            return sorted;
+        }
+
+        private static boolean allAdded(@Nullable List<PreparedOperation<?>> dependencies, @NonNull Set<PreparedOperation<?>> added) {
+            return dependencies == null || added.containsAll(dependencies);
         }
     }
 }
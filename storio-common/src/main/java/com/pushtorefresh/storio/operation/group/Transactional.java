@@ -0,0 +1,32 @@
+package com.pushtorefresh.storio.operation.group;
+
+/**
+ * Storage which can execute operations in one transaction,
+ * used by {@link PreparedGroupOperation} to execute operations atomically
+ * <p>
+ * For example, {@code StorIOSQLite.internal()}
+ */
+public interface Transactional {
+
+    /**
+     * Returns true if transactions are supported, false otherwise
+     *
+     * @return true if transactions are supported, false otherwise
+     */
+    boolean transactionsSupported();
+
+    /**
+     * Begins a transaction
+     */
+    void beginTransaction();
+
+    /**
+     * Marks the current transaction as successful
+     */
+    void setTransactionSuccessful();
+
+    /**
+     * Ends a transaction, commits it if it was marked as successful, otherwise rolls it back
+     */
+    void endTransaction();
+}
@@ -0,0 +1,66 @@
+package com.pushtorefresh.storio.operation.internal;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+
+import rx.Scheduler;
+import rx.functions.Action0;
+
+/**
+ * Adapts RxJava {@link Scheduler} to {@link Executor}, each task is scheduled on its own worker,
+ * so tasks can be executed concurrently if scheduler allows that
+ * <p>
+ * Required to avoid problems with ClassLoader when RxJava is not in ClassPath
+ * <p>
+ * For internal usage only!
+ */
+public class SchedulerExecutor implements Executor {
+
+    @NonNull
+    private final Scheduler scheduler;
+
+    private SchedulerExecutor(@NonNull Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Creates new instance of {@link SchedulerExecutor}
+     *
+     * @param scheduler non-null scheduler which will execute tasks
+     * @return new instance of {@link SchedulerExecutor}
+     */
+    @NonNull
+    public static Executor newInstance(@NonNull Scheduler scheduler) {
+        return new SchedulerExecutor(scheduler);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        final Scheduler.Worker worker = scheduler.createWorker();
+        worker.schedule(new RunAndUnsubscribe(command, worker));
+    }
+
+    private static class RunAndUnsubscribe implements Action0 {
+
+        @NonNull
+        private final Runnable command;
+
+        @NonNull
+        private final Scheduler.Worker worker;
+
+        RunAndUnsubscribe(@NonNull Runnable command, @NonNull Scheduler.Worker worker) {
+            this.command = command;
+            this.worker = worker;
+        }
+
+        @Override
+        public void call() {
+            try {
+                command.run();
+            } finally {
+                worker.unsubscribe();
+            }
+        }
+    }
+}
@@ -1,8 +1,33 @@
 package com.pushtorefresh.storio.operation.group;
 
+import com.pushtorefresh.storio.operation.PreparedOperation;
+
 import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import rx.Observable;
+import rx.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class PreparedGroupOperationTest {
 
@@ -29,4 +54,218 @@ public class PreparedGroupOperationTest {
 
         groupOperationStub.verifyBehaviorOfObservable(groupOperationResultsObservable);
     }
+
+    @Test
+    public void executeAsBlockingInTransaction() {
+        final GroupOperationStub groupOperationStub = GroupOperationStub.newInstance();
+        final Transactional transactional = mock(Transactional.class);
+
+        when(transactional.transactionsSupported())
+                .thenReturn(true);
+
+        final GroupOperationResults groupOperationResults = new PreparedGroupOperation.Builder()
+                .addOperations(groupOperationStub.preparedOperations)
+                .inTransaction(transactional)
+                .prepare()
+                .executeAsBlocking();
+
+        groupOperationStub.verifyBehaviorOfExecuteAsBlocking(groupOperationResults);
+
+        final InOrder inOrder = inOrder(transactional);
+        inOrder.verify(transactional).beginTransaction();
+        inOrder.verify(transactional).setTransactionSuccessful();
+        inOrder.verify(transactional).endTransaction();
+    }
+
+    @Test
+    public void transactionIsRolledBackIfOperationFailed() {
+        final Transactional transactional = mock(Transactional.class);
+        final PreparedOperation<?> preparedOperation = mock(PreparedOperation.class);
+        final RuntimeException exception = new RuntimeException("test");
+
+        when(transactional.transactionsSupported())
+                .thenReturn(true);
+
+        when(preparedOperation.executeAsBlocking())
+                .thenThrow(exception);
+
+        try {
+            new PreparedGroupOperation.Builder()
+                    .addOperation(preparedOperation)
+                    .inTransaction(transactional)
+                    .addOperation(mock(PreparedOperation.class))
+                    .prepare()
+                    .executeAsBlocking();
+
+            fail();
+        } catch (RuntimeException expected) {
+            // it's okay
+        }
+
+        verify(transactional).beginTransaction();
+        verify(transactional, never()).setTransactionSuccessful();
+        verify(transactional).endTransaction();
+    }
+
+    @Test
+    public void executeAsBlockingInParallel() {
+        final GroupOperationStub groupOperationStub = GroupOperationStub.newInstance();
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        try {
+            final GroupOperationResults groupOperationResults = new PreparedGroupOperation.Builder()
+                    .addOperations(groupOperationStub.preparedOperations)
+                    .executeInParallel(executor)
+                    .prepare()
+                    .executeAsBlocking();
+
+            groupOperationStub.verifyBehaviorOfExecuteAsBlocking(groupOperationResults);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void independentOperationsAreExecutedConcurrently() throws InterruptedException {
+        // each operation waits for the other one, so group can complete only if they are executed concurrently
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+
+        final PreparedOperation<?> operation1 = waitingOperation(bothStarted);
+        final PreparedOperation<?> operation2 = waitingOperation(bothStarted);
+
+        final GroupOperationResults groupOperationResults = new PreparedGroupOperation.Builder()
+                .addOperation(operation1)
+                .addOperation(operation2)
+                .executeInParallel(Schedulers.io())
+                .prepare()
+                .executeAsBlocking();
+
+        assertEquals(2, groupOperationResults.results().size());
+    }
+
+    @Test
+    public void dependentOperationIsExecutedAfterDependencies() {
+        final List<Object> executionOrder = Collections.synchronizedList(new ArrayList<Object>());
+
+        final PreparedOperation<?> put = recordingOperation(executionOrder, "put");
+        final PreparedOperation<?> get = recordingOperation(executionOrder, "get");
+        final PreparedOperation<?> delete = recordingOperation(executionOrder, "delete");
+
+        // added in wrong order on purpose
+        new PreparedGroupOperation.Builder()
+                .addOperation(get, put, delete)
+                .addOperation(delete, put)
+                .addOperation(put)
+                .prepare()
+                .executeAsBlocking();
+
+        assertEquals(Arrays.<Object>asList("put", "delete", "get"), executionOrder);
+        executionOrder.clear();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        try {
+            new PreparedGroupOperation.Builder()
+                    .addOperation(get, put, delete)
+                    .addOperation(delete, put)
+                    .addOperation(put)
+                    .executeInParallel(executor)
+                    .prepare()
+                    .executeAsBlocking();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(Arrays.<Object>asList("put", "delete", "get"), executionOrder);
+    }
+
+    @Test
+    public void failureInParallelModeIsRethrownAndDependentsAreSkipped() {
+        final PreparedOperation<?> failing = mock(PreparedOperation.class);
+        final PreparedOperation<?> dependent = mock(PreparedOperation.class);
+        final RuntimeException exception = new RuntimeException("test");
+
+        when(failing.executeAsBlocking())
+                .thenThrow(exception);
+
+        try {
+            new PreparedGroupOperation.Builder()
+                    .addOperation(failing)
+                    .addOperation(dependent, failing)
+                    .executeInParallel(Schedulers.io())
+                    .prepare()
+                    .executeAsBlocking();
+
+            fail();
+        } catch (RuntimeException expected) {
+            assertSame(exception, expected);
+        }
+
+        verify(dependent, never()).executeAsBlocking();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cycleInDependencies() {
+        final PreparedOperation<?> operation1 = mock(PreparedOperation.class);
+        final PreparedOperation<?> operation2 = mock(PreparedOperation.class);
+
+        new PreparedGroupOperation.Builder()
+                .addOperation(operation1, operation2)
+                .addOperation(operation2, operation1)
+                .prepare();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void dependencyIsNotInGroup() {
+        new PreparedGroupOperation.Builder()
+                .addOperation(mock(PreparedOperation.class), mock(PreparedOperation.class))
+                .prepare();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void operationCanNotBeAddedTwice() {
+        final PreparedOperation<?> operation = mock(PreparedOperation.class);
+
+        new PreparedGroupOperation.Builder()
+                .addOperation(operation)
+                .addOperation(operation, mock(PreparedOperation.class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parallelModeInTransactionIsNotAllowed() {
+        new PreparedGroupOperation.Builder()
+                .addOperation(mock(PreparedOperation.class))
+                .inTransaction(mock(Transactional.class))
+                .executeInParallel(Schedulers.io())
+                .prepare();
+    }
+
+    private static PreparedOperation<?> waitingOperation(final CountDownLatch bothStarted) {
+        final PreparedOperation<?> preparedOperation = mock(PreparedOperation.class);
+
+        when(preparedOperation.executeAsBlocking()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                bothStarted.countDown();
+                assertTrue(bothStarted.await(10, TimeUnit.SECONDS));
+                return new Object();
+            }
+        });
+
+        return preparedOperation;
+    }
+
+    private static PreparedOperation<?> recordingOperation(final List<Object> executionOrder, final String name) {
+        final PreparedOperation<?> preparedOperation = mock(PreparedOperation.class);
+
+        when(preparedOperation.executeAsBlocking()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                executionOrder.add(name);
+                return name;
+            }
+        });
+
+        return preparedOperation;
+    }
 }
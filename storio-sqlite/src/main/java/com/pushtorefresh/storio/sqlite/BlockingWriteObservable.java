@@ -0,0 +1,26 @@
+package com.pushtorefresh.storio.sqlite;
+
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.PreparedOperation;
+import com.pushtorefresh.storio.operation.internal.OnSubscribeExecuteAsBlocking;
+
+import rx.Observable;
+
+/**
+ * Creates {@link Observable} which executes write operation via {@link PreparedOperation#executeAsBlocking()}
+ * on subscription, default implementation of {@link StorIOSQLite.Internal#createWriteObservable(PreparedOperation)}
+ * <p>
+ * Hiding RxJava from ClassLoader via separate class
+ */
+final class BlockingWriteObservable {
+
+    private BlockingWriteObservable() {
+        throw new IllegalStateException("No instances please");
+    }
+
+    @NonNull
+    static <Result> Observable<Result> create(@NonNull PreparedOperation<Result> preparedWriteOperation) {
+        return Observable.create(OnSubscribeExecuteAsBlocking.newInstance(preparedWriteOperation));
+    }
+}
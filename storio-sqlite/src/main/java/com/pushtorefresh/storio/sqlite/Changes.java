@@ -1,14 +1,23 @@
 package com.pushtorefresh.storio.sqlite;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import static com.pushtorefresh.storio.util.Checks.checkNotNull;
 
 /**
  * Immutable container of information about one or more changes in {@link StorIOSQLite}
+ * <p>
+ * Optionally contains ids of affected rows of each table. Row ids are SQLite {@code ROWID}s,
+ * so they match primary keys only for tables with {@code INTEGER PRIMARY KEY} column (for example {@code _id}).
+ * If ids of affected rows of the table are not known, any row of that table could be affected.
  */
 public class Changes {
 
@@ -18,14 +27,29 @@ public class Changes {
     @NonNull
     private final Set<String> affectedTables;
 
+    /**
+     * Immutable map of pairs (table, ids of affected rows), tables with unknown affected rows are not in the map
+     */
+    @NonNull
+    private final Map<String, Set<Long>> affectedRowIds;
+
     /**
      * Creates {@link Changes} container with info about changes
      *
      * @param affectedTables set of tables which were affected by these changes
+     * @param affectedRowIds map of pairs (table, ids of affected rows) for tables with known affected rows
      */
-    private Changes(@NonNull Set<String> affectedTables) {
+    private Changes(@NonNull Set<String> affectedTables, @NonNull Map<String, Set<Long>> affectedRowIds) {
         checkNotNull(affectedTables, "Please specify affected tables");
+        checkNotNull(affectedRowIds, "Please specify affected row ids");
+
+        if (!affectedTables.containsAll(affectedRowIds.keySet())) {
+            throw new IllegalArgumentException("Tables of affected rows should be in affected tables, affected tables = "
+                    + affectedTables + ", tables of affected rows = " + affectedRowIds.keySet());
+        }
+
         this.affectedTables = Collections.unmodifiableSet(affectedTables);
+        this.affectedRowIds = Collections.unmodifiableMap(affectedRowIds);
     }
 
     /**
@@ -36,7 +60,7 @@ public class Changes {
      */
     @NonNull
     public static Changes newInstance(@NonNull Set<String> affectedTables) {
-        return new Changes(affectedTables);
+        return new Changes(affectedTables, Collections.<String, Set<Long>>emptyMap());
     }
 
     /**
@@ -48,7 +72,46 @@ public class Changes {
     @NonNull
     public static Changes newInstance(@NonNull String affectedTable) {
         checkNotNull(affectedTable, "Please specify affected table");
-        return new Changes(Collections.singleton(affectedTable));
+        return newInstance(Collections.singleton(affectedTable));
+    }
+
+    /**
+     * Creates {@link Changes} container with info about changes of known rows of one table
+     *
+     * @param affectedTable  table that was affected
+     * @param affectedRowIds ids of affected rows
+     * @return new immutable instance of {@link Changes}
+     */
+    @NonNull
+    public static Changes newInstance(@NonNull String affectedTable, @NonNull Collection<Long> affectedRowIds) {
+        checkNotNull(affectedTable, "Please specify affected table");
+        checkNotNull(affectedRowIds, "Please specify affected row ids");
+
+        return new Changes(
+                Collections.singleton(affectedTable),
+                Collections.<String, Set<Long>>singletonMap(affectedTable, Collections.unmodifiableSet(new HashSet<Long>(affectedRowIds)))
+        );
+    }
+
+    /**
+     * Creates {@link Changes} container with info about changes of several tables
+     *
+     * @param affectedTables non-null set of affected tables
+     * @param affectedRowIds map of pairs (table, ids of affected rows) for tables with known affected rows,
+     *                       tables which are not in the map could be affected at any row
+     * @return new immutable instance of {@link Changes}
+     */
+    @NonNull
+    public static Changes newInstance(@NonNull Set<String> affectedTables, @NonNull Map<String, ? extends Collection<Long>> affectedRowIds) {
+        checkNotNull(affectedRowIds, "Please specify affected row ids");
+
+        final Map<String, Set<Long>> rowIds = new HashMap<String, Set<Long>>(affectedRowIds.size() * 2);
+
+        for (Map.Entry<String, ? extends Collection<Long>> entry : affectedRowIds.entrySet()) {
+            rowIds.put(entry.getKey(), Collections.unmodifiableSet(new HashSet<Long>(entry.getValue())));
+        }
+
+        return new Changes(affectedTables, rowIds);
     }
 
     /**
@@ -61,6 +124,35 @@ public class Changes {
         return affectedTables;
     }
 
+    /**
+     * Gets ids of affected rows of the table
+     *
+     * @param table table
+     * @return immutable set of ids of affected rows or {@code null} if table was not affected
+     * or ids of its affected rows are unknown, please use {@link #affectsRow(String, long)} for checks
+     */
+    @Nullable
+    public Set<Long> affectedRowIds(@NonNull String table) {
+        return affectedRowIds.get(table);
+    }
+
+    /**
+     * Checks whether row of the table could be affected by these changes
+     *
+     * @param table table of the row
+     * @param rowId id of the row
+     * @return {@code true} if row was affected or table was affected and ids of its affected rows are unknown,
+     * {@code false} otherwise
+     */
+    public boolean affectsRow(@NonNull String table, long rowId) {
+        if (!affectedTables.contains(table)) {
+            return false;
+        }
+
+        final Set<Long> rowIds = affectedRowIds.get(table);
+        return rowIds == null || rowIds.contains(rowId);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -68,18 +160,138 @@ public class Changes {
 
         Changes changes = (Changes) o;
 
-        return affectedTables.equals(changes.affectedTables);
+        if (!affectedTables.equals(changes.affectedTables)) return false;
+        return affectedRowIds.equals(changes.affectedRowIds);
     }
 
     @Override
     public int hashCode() {
-        return affectedTables.hashCode();
+        int result = affectedTables.hashCode();
+        result = 31 * result + affectedRowIds.hashCode();
+        return result;
     }
 
     @Override
     public String toString() {
         return "Changes{" +
                 "affectedTables=" + affectedTables +
+                ", affectedRowIds=" + affectedRowIds +
                 '}';
     }
+
+    /**
+     * Mutable builder which merges several changes into one {@link Changes}
+     * <p>
+     * If ids of affected rows of the table are unknown for one of merged changes,
+     * they are unknown for result too
+     * <p>
+     * Not thread safe
+     */
+    public static class Builder {
+
+        @NonNull
+        private final Set<String> affectedTables = new HashSet<String>();
+
+        @NonNull
+        private final Map<String, Set<Long>> affectedRowIds = new HashMap<String, Set<Long>>();
+
+        /**
+         * Adds table with unknown affected rows
+         *
+         * @param table affected table
+         * @return builder
+         */
+        @NonNull
+        public Builder addTable(@NonNull String table) {
+            checkNotNull(table, "Please specify affected table");
+            affectedTables.add(table);
+            affectedRowIds.remove(table);
+            return this;
+        }
+
+        /**
+         * Adds affected row of the table, does nothing with ids of rows
+         * if table was added before with unknown affected rows
+         *
+         * @param table affected table
+         * @param rowId id of affected row
+         * @return builder
+         */
+        @NonNull
+        public Builder addRow(@NonNull String table, long rowId) {
+            return addRows(table, Collections.singleton(rowId));
+        }
+
+        /**
+         * Adds affected rows of the table, does nothing with ids of rows
+         * if table was added before with unknown affected rows
+         *
+         * @param table  affected table
+         * @param rowIds ids of affected rows
+         * @return builder
+         */
+        @NonNull
+        public Builder addRows(@NonNull String table, @NonNull Collection<Long> rowIds) {
+            checkNotNull(table, "Please specify affected table");
+            checkNotNull(rowIds, "Please specify affected row ids");
+
+            Set<Long> tableRowIds = affectedRowIds.get(table);
+
+            if (tableRowIds == null) {
+                if (affectedTables.contains(table)) {
+                    // affected rows are already unknown
+                    return this;
+                }
+
+                tableRowIds = new HashSet<Long>();
+                affectedRowIds.put(table, tableRowIds);
+                affectedTables.add(table);
+            }
+
+            tableRowIds.addAll(rowIds);
+            return this;
+        }
+
+        /**
+         * Adds all tables and rows of passed changes
+         *
+         * @param changes changes to merge
+         * @return builder
+         */
+        @NonNull
+        public Builder addChanges(@NonNull Changes changes) {
+            checkNotNull(changes, "Please specify changes");
+
+            for (String table : changes.affectedTables) {
+                final Set<Long> rowIds = changes.affectedRowIds.get(table);
+
+                if (rowIds == null) {
+                    addTable(table);
+                } else {
+                    addRows(table, rowIds);
+                }
+            }
+
+            return this;
+        }
+
+        /**
+         * Checks whether nothing was added
+         *
+         * @return {@code true} if there are no affected tables, {@code false} otherwise
+         */
+        public boolean isEmpty() {
+            return affectedTables.isEmpty();
+        }
+
+        /**
+         * Builds immutable {@link Changes}, builder can be reused after that
+         *
+         * @return new immutable instance of {@link Changes}
+         */
+        @NonNull
+        public Changes build() {
+            return Changes.newInstance(new HashSet<String>(affectedTables), affectedRowIds);
+        }
+    }
 }
@@ -0,0 +1,275 @@
+package com.pushtorefresh.storio.sqlite;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.pushtorefresh.storio.sqlite.query.SqlTables;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory cache of mapped query results for {@link StorIOSQLite}
+ * <p>
+ * Entries are invalidated by tables of {@link Changes} sent via
+ * {@link StorIOSQLite.Internal#notifyAboutChanges(Changes)}, names of tables are compared case insensitively.
+ * Writes which bypass notifications leave stale entries in the cache. Least recently used entries are evicted
+ * when number of entries or approximate size of entries exceeds the limit.
+ * <p>
+ * Cache keeps references to mapped objects, so objects of cached results are shared
+ * between callers and should not be mutated.
+ * <p>
+ * Thread safe
+ */
+public final class QueryCache {
+
+    /**
+     * Approximate size of one value (cell) of query result in bytes,
+     * used by Get Operations to estimate size of results
+     */
+    public static final int ESTIMATED_VALUE_SIZE_IN_BYTES = 32;
+
+    private final int maxEntries;
+
+    private final long maxSizeInBytes;
+
+    @NonNull
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+
+    /**
+     * Version of cache at the moment of last invalidation of each table
+     */
+    @NonNull
+    private final Map<String, Long> tableInvalidationVersions = new HashMap<String, Long>();
+
+    private long version;
+
+    /**
+     * Version of cache at the moment of last {@link #clear()}
+     */
+    private long clearVersion;
+
+    private long sizeInBytes;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    private static class Entry {
+
+        @NonNull
+        final Set<String> tables;
+
+        @NonNull
+        final List<?> result;
+
+        final long sizeInBytes;
+
+        Entry(@NonNull Set<String> tables, @NonNull List<?> result, long sizeInBytes) {
+            this.tables = tables;
+            this.result = result;
+            this.sizeInBytes = sizeInBytes;
+        }
+    }
+
+    /**
+     * Creates new instance of {@link QueryCache}
+     *
+     * @param maxEntries     max number of cached results, should be > 0
+     * @param maxSizeInBytes max approximate size of cached results in bytes, should be > 0
+     */
+    public QueryCache(int maxEntries, long maxSizeInBytes) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries should be > 0, but was " + maxEntries);
+        }
+
+        if (maxSizeInBytes <= 0) {
+            throw new IllegalArgumentException("Max size in bytes should be > 0, but was " + maxSizeInBytes);
+        }
+
+        this.maxEntries = maxEntries;
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    /**
+     * Returns cached result
+     *
+     * @param key key of result
+     * @param <T> type of objects of result
+     * @return cached result or {@code null} if there is no result for passed key
+     */
+    @SuppressWarnings("unchecked") // type of objects is part of the key
+    @Nullable
+    public synchronized <T> List<T> get(@NonNull Object key) {
+        final Entry entry = entries.get(key);
+
+        if (entry == null) {
+            missCount++;
+            return null;
+        } else {
+            hitCount++;
+            return (List<T>) entry.result;
+        }
+    }
+
+    /**
+     * Returns current version of the cache, it changes with each invalidation
+     * <p>
+     * Please take it before the query and pass it to {@link #put(Object, Set, List, long, long)},
+     * so result of query that raced with a write won't be cached
+     *
+     * @return current version of the cache
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Puts result into the cache
+     * <p>
+     * Result is not cached if one of its tables was invalidated or cache was cleared after passed version
+     * or if it's bigger than max size of the cache
+     *
+     * @param key                key of result
+     * @param tables             tables which were read by query, changes of these tables invalidate result
+     * @param result             result of query, should not be modified after put
+     * @param sizeInBytes        approximate size of result in bytes
+     * @param versionBeforeQuery version of cache taken via {@link #version()} before the query
+     */
+    public synchronized void put(@NonNull Object key,
+                                 @NonNull Set<String> tables,
+                                 @NonNull List<?> result,
+                                 long sizeInBytes,
+                                 long versionBeforeQuery) {
+        if (sizeInBytes > maxSizeInBytes || versionBeforeQuery < clearVersion) {
+            return;
+        }
+
+        tables = SqlTables.normalize(tables);
+
+        for (String table : tables) {
+            final Long tableInvalidationVersion = tableInvalidationVersions.get(table);
+
+            if (tableInvalidationVersion != null && tableInvalidationVersion > versionBeforeQuery) {
+                return;
+            }
+        }
+
+        final Entry previousEntry = entries.put(key, new Entry(tables, result, sizeInBytes));
+
+        if (previousEntry != null) {
+            this.sizeInBytes -= previousEntry.sizeInBytes;
+        }
+
+        this.sizeInBytes += sizeInBytes;
+        trimToLimits();
+    }
+
+    /**
+     * Removes results which depend on passed tables
+     *
+     * @param tables changed tables
+     */
+    public synchronized void invalidate(@NonNull Collection<String> tables) {
+        version++;
+        tables = SqlTables.normalize(tables);
+
+        for (String table : tables) {
+            tableInvalidationVersions.put(table, version);
+        }
+
+        final Iterator<Entry> iterator = entries.values().iterator();
+
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+
+            for (String table : tables) {
+                if (entry.tables.contains(table)) {
+                    iterator.remove();
+                    sizeInBytes -= entry.sizeInBytes;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all results from the cache, results of queries which were started before
+     * will not be cached
+     */
+    public synchronized void clear() {
+        version++;
+        clearVersion = version;
+
+        // results with older versions are rejected anyway
+        tableInvalidationVersions.clear();
+
+        entries.clear();
+        sizeInBytes = 0;
+    }
+
+    /**
+     * @return number of times {@link #get(Object)} returned cached result
+     */
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of times {@link #get(Object)} returned {@code null}
+     */
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of results evicted because of limits of the cache
+     */
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return number of cached results
+     */
+    public synchronized int entryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return approximate size of cached results in bytes
+     */
+    public synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    private void trimToLimits() {
+        final Iterator<Entry> iterator = entries.values().iterator();
+
+        // iteration order of access-ordered LinkedHashMap starts from least recently used entry
+        while ((entries.size() > maxEntries || sizeInBytes > maxSizeInBytes) && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            iterator.remove();
+            sizeInBytes -= entry.sizeInBytes;
+            evictionCount++;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "QueryCache{" +
+                "entryCount=" + entries.size() +
+                ", sizeInBytes=" + sizeInBytes +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                '}';
+    }
+}
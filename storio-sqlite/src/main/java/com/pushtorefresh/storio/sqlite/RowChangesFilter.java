@@ -0,0 +1,63 @@
+package com.pushtorefresh.storio.sqlite;
+
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.sqlite.query.SqlTables;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import rx.Observable;
+import rx.functions.Func1;
+
+/**
+ * Passes only {@link Changes} which could affect one of required rows of the table
+ * <p>
+ * Hiding RxJava from ClassLoader via separate class
+ */
+class RowChangesFilter implements Func1<Changes, Boolean> {
+
+    @NonNull
+    private final String table;
+
+    @NonNull
+    private final Set<Long> rowIds;
+
+    private RowChangesFilter(@NonNull String table, @NonNull Set<Long> rowIds) {
+        this.table = table;
+        this.rowIds = rowIds;
+    }
+
+    @NonNull
+    static Observable<Changes> apply(@NonNull Observable<Changes> changesOfTable,
+                                     @NonNull String table,
+                                     @NonNull Collection<Long> rowIds) {
+        return changesOfTable.filter(new RowChangesFilter(SqlTables.normalize(table), new HashSet<Long>(rowIds)));
+    }
+
+    @Override
+    public Boolean call(Changes changes) {
+        // names of tables are case insensitive, changes keep names as they were passed
+        for (String affectedTable : changes.affectedTables()) {
+            if (!table.equals(SqlTables.normalize(affectedTable))) {
+                continue;
+            }
+
+            final Set<Long> affectedRowIds = changes.affectedRowIds(affectedTable);
+
+            if (affectedRowIds == null) {
+                // affected rows are unknown
+                return true;
+            }
+
+            for (Long rowId : rowIds) {
+                if (affectedRowIds.contains(rowId)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+}
@@ -3,23 +3,32 @@ package com.pushtorefresh.storio.sqlite;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.pushtorefresh.storio.LogListener;
 import com.pushtorefresh.storio.Loggi;
+import com.pushtorefresh.storio.operation.PreparedOperation;
+import com.pushtorefresh.storio.operation.group.Transactional;
 import com.pushtorefresh.storio.sqlite.operation.delete.PreparedDelete;
 import com.pushtorefresh.storio.sqlite.operation.exec_sql.PreparedExecSql;
 import com.pushtorefresh.storio.sqlite.operation.get.PreparedGet;
 import com.pushtorefresh.storio.sqlite.operation.put.PreparedPut;
+import com.pushtorefresh.storio.sqlite.operation.transaction.PreparedTransaction;
 import com.pushtorefresh.storio.sqlite.query.DeleteQuery;
 import com.pushtorefresh.storio.sqlite.query.InsertQuery;
 import com.pushtorefresh.storio.sqlite.query.Query;
 import com.pushtorefresh.storio.sqlite.query.RawQuery;
 import com.pushtorefresh.storio.sqlite.query.UpdateQuery;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import rx.Observable;
+import rx.Scheduler;
+
+import static com.pushtorefresh.storio.util.Checks.checkNotNull;
 
 /**
  * Powerful abstraction for databases
@@ -69,6 +78,17 @@ public abstract class StorIOSQLite {
         return new PreparedDelete.Builder(this);
     }
 
+    /**
+     * Prepares "transaction" operation for {@link StorIOSQLite}
+     * Allows to execute several operations atomically in one transaction,
+     * observers will be notified once after commit
+     *
+     * @return builder for PreparedTransaction
+     */
+    @NonNull public PreparedTransaction.Builder transaction() {
+        return new PreparedTransaction.Builder(this);
+    }
+
     /**
      * Subscribes to changes in required tables
      *
@@ -89,6 +109,28 @@ public abstract class StorIOSQLite {
         return observeChangesInTables(Collections.singleton(table));
     }
 
+    /**
+     * Subscribes to changes of rows of required table
+     * <p>
+     * Observer is notified if one of rows was affected or if table was changed and affected rows are unknown,
+     * for example after delete by arbitrary where clause. Affected rows are reported by {@code ROWID}:
+     * ids of inserted rows, ids of rows updated by {@link com.pushtorefresh.storio.sqlite.operation.put.DefaultPutResolver}
+     * which declares its id column as {@code ROWID} alias and ids of rows deleted by {@code rowid} where clause.
+     * <p>
+     * Useful for screens which show one or few objects: writes to other rows of the table don't trigger re-query
+     *
+     * @param table  table name to monitor
+     * @param rowIds ids of rows to monitor
+     * @return {@link rx.Observable} of {@link Changes} which affect required rows
+     */
+    @NonNull
+    public Observable<Changes> observeChangesOfRows(@NonNull String table, @NonNull Collection<Long> rowIds) {
+        checkNotNull(rowIds, "Please specify row ids");
+
+        // indirect usage of RxJava filter() required to avoid problems with ClassLoader when RxJava is not in ClassPath
+        return RowChangesFilter.apply(observeChangesInTable(table), table, rowIds);
+    }
+
     /**
      * Set your own logger, and it will be use instead of default.
      *
@@ -122,7 +164,7 @@ public abstract class StorIOSQLite {
      * Hides some internal operations of {@link StorIOSQLite}
      * to make {@link StorIOSQLite} API clean and easy to understand
      */
-    public static abstract class Internal {
+    public static abstract class Internal implements Transactional {
 
         /**
          * Log wrapper for internal usage only.
@@ -161,6 +203,29 @@ public abstract class StorIOSQLite {
          */
         public abstract long insert(@NonNull InsertQuery insertQuery, @NonNull ContentValues contentValues);
 
+        /**
+         * Inserts multiple rows into the database
+         * <p>
+         * Default implementation inserts rows one by one via {@link #insert(InsertQuery, ContentValues)},
+         * implementations can override it to insert several rows with one statement. In that case ids of rows
+         * can be calculated from id of last inserted row, so table should have {@code ROWID}
+         * and rows should not contain explicit values of {@code ROWID}.
+         *
+         * @param insertQuery       query
+         * @param contentValuesList list of initial column values for each row
+         * @return ids of inserted rows in same order as content values
+         */
+        @NonNull
+        public long[] insertBatch(@NonNull InsertQuery insertQuery, @NonNull List<ContentValues> contentValuesList) {
+            final long[] insertedIds = new long[contentValuesList.size()];
+
+            for (int i = 0; i < insertedIds.length; i++) {
+                insertedIds[i] = insert(insertQuery, contentValuesList.get(i));
+            }
+
+            return insertedIds;
+        }
+
         /**
          * Updates one or multiple rows in the database
          *
@@ -182,6 +247,9 @@ public abstract class StorIOSQLite {
          * Notifies subscribers about changes happened in {@link StorIOSQLite}
          * Operations can be executed in transaction or one operation can affect multiple tables, so to reduce number of notifications
          * you can call this method once and provide Changes object
+         * <p>
+         * Implementations which support transactions should hold changes made inside of transaction
+         * until outermost transaction is committed and drop them if it was rolled back
          *
          * @param changes changes happened in {@link StorIOSQLite}
          */
@@ -206,9 +274,73 @@ public abstract class StorIOSQLite {
 
         /**
          * End a transaction
+         * <p>
+         * If it's outermost transaction and it was committed, changes made inside of it
+         * will be sent to subscribers as one notification
          */
         public abstract void endTransaction();
 
+        /**
+         * Creates {@link Observable} for write operation (Put or Delete)
+         * <p>
+         * Default implementation executes operation via {@link PreparedOperation#executeAsBlocking()}
+         * on subscription, implementations can override it to queue write operations
+         * and execute them in batches
+         *
+         * @param preparedWriteOperation write operation
+         * @param <Result>               type of result of write operation
+         * @return non-null {@link Observable} which will emit result of write operation
+         */
+        @NonNull
+        public <Result> Observable<Result> createWriteObservable(@NonNull PreparedOperation<Result> preparedWriteOperation) {
+            return BlockingWriteObservable.create(preparedWriteOperation);
+        }
+
+        /**
+         * Creates {@link Observable} which shares one subscription to query stream
+         * between subscribers of streams with equal keys
+         * <p>
+         * Get Operations call it only if sharing was requested, for example via
+         * {@link com.pushtorefresh.storio.sqlite.operation.get.PreparedGetListOfObjects.CompleteBuilder#shareStream()}
+         * <p>
+         * Default implementation does not share streams and returns passed query stream,
+         * implementations can override it to run one query for all observers of equal queries
+         * and replay latest result to new subscribers, so results of shared stream should be immutable
+         *
+         * @param key         key of query stream, streams with equal keys should emit equal results
+         * @param queryStream query stream
+         * @param <T>         type of results
+         * @return non-null {@link Observable} which will emit results of query stream
+         */
+        @NonNull
+        public <T> Observable<T> shareQueryStream(@NonNull Object key, @NonNull Observable<T> queryStream) {
+            return queryStream;
+        }
+
+        /**
+         * Returns cache of query results which Get Operations of current thread should use
+         * <p>
+         * Default implementation returns {@code null}
+         *
+         * @return cache of query results or {@code null} if results should not be cached
+         */
+        @Nullable
+        public QueryCache queryCache() {
+            return null;
+        }
+
+        /**
+         * Returns scheduler for the first query of streams of Get Operations
+         * <p>
+         * Default implementation returns {@code null}
+         *
+         * @return scheduler for the first query or {@code null} if it should be executed on the thread of subscription
+         */
+        @Nullable
+        public Scheduler defaultScheduler() {
+            return null;
+        }
+
         /**
          * Log wrapper getter.
          *
@@ -0,0 +1,98 @@
+package com.pushtorefresh.storio.sqlite.impl;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.pushtorefresh.storio.sqlite.Changes;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+
+/**
+ * Merges {@link Changes} that occur during time window into one {@link Changes}
+ * <p>
+ * Window starts with first change and has fixed length, so observers receive notification
+ * not later than one window after the change even if changes occur continuously.
+ * <p>
+ * Hiding RxJava from ClassLoader via separate class
+ */
+class ChangesCoalescer implements Action0 {
+
+    @NonNull
+    private final ChangesDispatcher changesDispatcher;
+
+    private final long windowMillis;
+
+    @NonNull
+    private final Scheduler.Worker worker;
+
+    @NonNull
+    private final Object lock = new Object();
+
+    @NonNull
+    private Changes.Builder pendingChanges = new Changes.Builder();
+
+    private boolean flushScheduled;
+
+    private ChangesCoalescer(@NonNull ChangesDispatcher changesDispatcher, long windowMillis, @NonNull Scheduler scheduler) {
+        this.changesDispatcher = changesDispatcher;
+        this.windowMillis = windowMillis;
+        worker = scheduler.createWorker();
+    }
+
+    /**
+     * Creates new instance of {@link ChangesCoalescer}
+     *
+     * @param changesDispatcher dispatcher which will receive merged changes
+     * @param windowMillis      length of time window in milliseconds
+     * @param scheduler         scheduler for delivery of merged changes,
+     *                          if {@code null} {@link Schedulers#computation()} will be used
+     * @return new instance of {@link ChangesCoalescer}
+     */
+    @NonNull
+    static ChangesCoalescer newInstance(@NonNull ChangesDispatcher changesDispatcher, long windowMillis, @Nullable Scheduler scheduler) {
+        return new ChangesCoalescer(
+                changesDispatcher,
+                windowMillis,
+                scheduler != null ? scheduler : Schedulers.computation()
+        );
+    }
+
+    /**
+     * Adds changes to current window, opens new window if there is no current
+     *
+     * @param changes changes to merge
+     */
+    void onChanges(@NonNull Changes changes) {
+        synchronized (lock) {
+            pendingChanges.addChanges(changes);
+
+            if (flushScheduled) {
+                return;
+            }
+
+            flushScheduled = true;
+        }
+
+        worker.schedule(this, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // end of window
+    @Override
+    public void call() {
+        final Changes.Builder changes;
+
+        synchronized (lock) {
+            changes = pendingChanges;
+            pendingChanges = new Changes.Builder();
+            flushScheduled = false;
+        }
+
+        if (!changes.isEmpty()) {
+            changesDispatcher.dispatch(changes.build());
+        }
+    }
+}
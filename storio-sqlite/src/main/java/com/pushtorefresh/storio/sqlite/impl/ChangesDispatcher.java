@@ -0,0 +1,305 @@
+package com.pushtorefresh.storio.sqlite.impl;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.pushtorefresh.storio.sqlite.Changes;
+import com.pushtorefresh.storio.sqlite.query.SqlTables;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Delivers {@link Changes} only to subscribers of affected tables
+ * <p>
+ * Subscribers are indexed by table, so cost of notification depends on number of subscribers of affected tables
+ * instead of number of all subscribers. Each table holds immutable array of its subscribers which is replaced
+ * via compare-and-set, so subscribe, unsubscribe and dispatch don't take locks.
+ * <p>
+ * If scheduler is specified, each subscriber receives changes on its own worker of the scheduler
+ * in order of dispatch, so thread which made changes does not wait for re-queries of subscribers.
+ * Changes dispatched while subscriber handles previous ones are merged into one {@link Changes},
+ * so slow subscriber re-queries once per its turn instead of once per change.
+ * <p>
+ * Index entries of tables are kept after last subscriber of the table left, number of tables is expected to be small.
+ * <p>
+ * Hiding RxJava from ClassLoader via separate class
+ */
+class ChangesDispatcher {
+
+    @NonNull
+    private static final Receiver[] NO_RECEIVERS = new Receiver[0];
+
+    @NonNull
+    private final ConcurrentMap<String, AtomicReference<Receiver[]>> receiversByTable
+            = new ConcurrentHashMap<String, AtomicReference<Receiver[]>>();
+
+    /**
+     * Scheduler for asynchronous delivery, {@code null} if changes are delivered on the thread of dispatch
+     */
+    @Nullable
+    private final Scheduler scheduler;
+
+    private static class Receiver {
+
+        @NonNull
+        final Subscriber<? super Changes> subscriber;
+
+        Receiver(@NonNull Subscriber<? super Changes> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void onChanges(@NonNull Changes changes) {
+            if (!subscriber.isUnsubscribed()) {
+                subscriber.onNext(changes);
+            }
+        }
+    }
+
+    /**
+     * Delivers changes on its own worker, serially and in order of dispatch
+     */
+    private static class AsyncReceiver extends Receiver implements Action0 {
+
+        @NonNull
+        private final Scheduler.Worker worker;
+
+        @NonNull
+        private final Queue<Changes> queue = new ConcurrentLinkedQueue<Changes>();
+
+        @NonNull
+        private final AtomicInteger wip = new AtomicInteger();
+
+        AsyncReceiver(@NonNull Subscriber<? super Changes> subscriber, @NonNull Scheduler.Worker worker) {
+            super(subscriber);
+            this.worker = worker;
+        }
+
+        @Override
+        void onChanges(@NonNull Changes changes) {
+            if (subscriber.isUnsubscribed()) {
+                return;
+            }
+
+            queue.offer(changes);
+
+            if (wip.getAndIncrement() == 0) {
+                worker.schedule(this);
+            }
+        }
+
+        // drains queue on the worker
+        @Override
+        public void call() {
+            while (true) {
+                // each counted change is already in the queue
+                final int queued = wip.get();
+
+                final Changes changes;
+
+                if (queued == 1) {
+                    changes = queue.poll();
+                } else {
+                    final Changes.Builder builder = new Changes.Builder();
+
+                    for (int i = 0; i < queued; i++) {
+                        builder.addChanges(queue.poll());
+                    }
+
+                    changes = builder.build();
+                }
+
+                if (subscriber.isUnsubscribed()) {
+                    queue.clear();
+                    return;
+                }
+
+                subscriber.onNext(changes);
+
+                if (wip.addAndGet(-queued) == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private ChangesDispatcher(@Nullable Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Creates new instance of {@link ChangesDispatcher} which delivers changes on the thread of dispatch
+     *
+     * @return new instance of {@link ChangesDispatcher}
+     */
+    @NonNull
+    static ChangesDispatcher newInstance() {
+        return new ChangesDispatcher(null);
+    }
+
+    /**
+     * Creates new instance of {@link ChangesDispatcher} which delivers changes asynchronously
+     *
+     * @param scheduler scheduler for delivery, each subscriber uses its own worker,
+     *                  if {@code null} {@link Schedulers#io()} will be used
+     * @return new instance of {@link ChangesDispatcher}
+     */
+    @NonNull
+    static ChangesDispatcher newAsyncInstance(@Nullable Scheduler scheduler) {
+        return new ChangesDispatcher(scheduler != null ? scheduler : Schedulers.io());
+    }
+
+    /**
+     * Creates {@link Observable} of changes of required tables,
+     * each subscriber receives {@link Changes} once even if several of its tables were affected
+     * <p>
+     * Names of tables are matched case insensitively: receivers are registered by names normalized
+     * via {@link SqlTables#normalize(String)} and names of dispatched changes are normalized for lookup
+     *
+     * @param tables tables to observe
+     * @return {@link Observable} of changes of required tables
+     */
+    @NonNull
+    Observable<Changes> observeChangesInTables(@NonNull Set<String> tables) {
+        final Set<String> tablesCopy = SqlTables.normalize(tables);
+
+        return Observable.create(new Observable.OnSubscribe<Changes>() {
+            @Override
+            public void call(Subscriber<? super Changes> subscriber) {
+                final Receiver receiver;
+
+                if (scheduler != null) {
+                    final Scheduler.Worker worker = scheduler.createWorker();
+                    subscriber.add(worker);
+                    receiver = new AsyncReceiver(subscriber, worker);
+                } else {
+                    receiver = new Receiver(subscriber);
+                }
+
+                for (String table : tablesCopy) {
+                    add(table, receiver);
+                }
+
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        for (String table : tablesCopy) {
+                            remove(table, receiver);
+                        }
+                    }
+                }));
+            }
+        });
+    }
+
+    /**
+     * Delivers changes to subscribers of affected tables
+     *
+     * @param changes changes
+     */
+    void dispatch(@NonNull Changes changes) {
+        final Set<String> affectedTables = changes.affectedTables();
+
+        if (affectedTables.size() == 1) {
+            // one receiver is registered for the table only once, so no deduplication needed
+            for (Receiver receiver : receiversOf(SqlTables.normalize(affectedTables.iterator().next()))) {
+                receiver.onChanges(changes);
+            }
+
+            return;
+        }
+
+        final Map<Receiver, Boolean> receivers = new IdentityHashMap<Receiver, Boolean>();
+
+        for (String table : affectedTables) {
+            for (Receiver receiver : receiversOf(SqlTables.normalize(table))) {
+                if (receivers.put(receiver, Boolean.TRUE) == null) {
+                    receiver.onChanges(changes);
+                }
+            }
+        }
+    }
+
+    @NonNull
+    private Receiver[] receiversOf(@NonNull String table) {
+        final AtomicReference<Receiver[]> receivers = receiversByTable.get(table);
+        return receivers != null ? receivers.get() : NO_RECEIVERS;
+    }
+
+    private void add(@NonNull String table, @NonNull Receiver receiver) {
+        AtomicReference<Receiver[]> receivers = receiversByTable.get(table);
+
+        if (receivers == null) {
+            final AtomicReference<Receiver[]> newReceivers = new AtomicReference<Receiver[]>(NO_RECEIVERS);
+            receivers = receiversByTable.putIfAbsent(table, newReceivers);
+
+            if (receivers == null) {
+                receivers = newReceivers;
+            }
+        }
+
+        while (true) {
+            final Receiver[] current = receivers.get();
+            final Receiver[] next = new Receiver[current.length + 1];
+            System.arraycopy(current, 0, next, 0, current.length);
+            next[current.length] = receiver;
+
+            if (receivers.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private void remove(@NonNull String table, @NonNull Receiver receiver) {
+        final AtomicReference<Receiver[]> receivers = receiversByTable.get(table);
+
+        if (receivers == null) {
+            return;
+        }
+
+        while (true) {
+            final Receiver[] current = receivers.get();
+
+            int index = -1;
+
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == receiver) {
+                    index = i;
+                    break;
+                }
+            }
+
+            if (index == -1) {
+                return;
+            }
+
+            final Receiver[] next;
+
+            if (current.length == 1) {
+                next = NO_RECEIVERS;
+            } else {
+                next = new Receiver[current.length - 1];
+                System.arraycopy(current, 0, next, 0, index);
+                System.arraycopy(current, index + 1, next, index, current.length - index - 1);
+            }
+
+            if (receivers.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+}
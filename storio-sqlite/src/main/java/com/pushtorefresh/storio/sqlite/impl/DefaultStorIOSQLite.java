@@ -1,14 +1,21 @@
 package com.pushtorefresh.storio.sqlite.impl;
 
+import android.annotation.TargetApi;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
+import android.os.CancellationSignal;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.pushtorefresh.storio.operation.PreparedOperation;
 import com.pushtorefresh.storio.sqlite.Changes;
+import com.pushtorefresh.storio.sqlite.QueryCache;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+import com.pushtorefresh.storio.sqlite.operation.get.QueryCancellation;
+import com.pushtorefresh.storio.sqlite.query.ConflictStrategy;
 import com.pushtorefresh.storio.sqlite.query.DeleteQuery;
 import com.pushtorefresh.storio.sqlite.query.InsertQuery;
 import com.pushtorefresh.storio.sqlite.query.Query;
@@ -17,10 +24,12 @@ import com.pushtorefresh.storio.sqlite.query.UpdateQuery;
 import com.pushtorefresh.storio.util.EnvironmentUtil;
 import com.pushtorefresh.storio.util.QueryUtil;
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import rx.Observable;
-import rx.subjects.PublishSubject;
+import rx.Scheduler;
 
 import static com.pushtorefresh.storio.util.Checks.checkNotNull;
 import static com.pushtorefresh.storio.util.EnvironmentUtil.newRxJavaIsNotAvailableException;
@@ -29,6 +38,17 @@ import static com.pushtorefresh.storio.util.EnvironmentUtil.newRxJavaIsNotAvaila
  * Default implementation of {@link StorIOSQLite} for {@link SQLiteDatabase}
  * <p>
  * Thread safe
+ * <p>
+ * With write-ahead logging (see {@link CompleteBuilder#enableWriteAheadLogging()})
+ * queries made outside of transaction are executed by {@link SQLiteDatabase} on pool of read-only connections,
+ * so they don't wait for writers
+ * <p>
+ * With batching of writes (see {@link CompleteBuilder#batchWrites(long, TimeUnit, int)})
+ * Observables of Put and Delete Operations are executed on one writer, several operations share one transaction
+ * <p>
+ * Inserts and updates use cached compiled statements. Schema changes made via ExecSql Operation
+ * ({@code CREATE}, {@code ALTER}, {@code DROP}) clear the cache automatically, but if you change schema
+ * directly via {@link SQLiteDatabase}, please call {@link #clearStatementCache()} after that
  */
 public class DefaultStorIOSQLite extends StorIOSQLite {
 
@@ -39,12 +59,42 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
     private final SQLiteDatabase db;
 
     /**
-     * Reactive bus for notifying observers about changes in StorIOSQLite
+     * Compiled statements for inserts and updates, so bulk puts don't recompile sql for each row
+     */
+    @NonNull
+    private final StatementCache statementCache;
+
+    /**
+     * Delivers changes in StorIOSQLite to observers of affected tables
      * One change can affect several tables, so we use {@link Changes} as representation of changes
      */
     @Nullable
-    private final PublishSubject<Changes> changesBus = EnvironmentUtil.IS_RX_JAVA_AVAILABLE
-            ? PublishSubject.<Changes>create()
+    private final ChangesDispatcher changesDispatcher;
+
+    /**
+     * Merges changes that occur during time window, {@code null} if changes should be delivered immediately
+     */
+    @Nullable
+    private final ChangesCoalescer changesCoalescer;
+
+    /**
+     * Holds changes made inside of transactions until outermost transaction is committed
+     */
+    @NonNull
+    private final TransactionChangesBuffer transactionChangesBuffer = new TransactionChangesBuffer();
+
+    /**
+     * Cache of results of Get Operations, {@code null} if results should not be cached
+     */
+    @Nullable
+    private final QueryCache queryCache;
+
+    /**
+     * Streams of equal queries, so several observers of one query cause one re-query per change
+     */
+    @Nullable
+    private final SharedQueryStreams sharedQueryStreams = EnvironmentUtil.IS_RX_JAVA_AVAILABLE
+            ? new SharedQueryStreams()
             : null;
 
     /**
@@ -53,8 +103,55 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
     @NonNull
     private final Internal internal = new InternalImpl();
 
+    /**
+     * Executes Observables of write operations in batches, {@code null} if they should be executed by subscriber
+     */
+    @Nullable
+    private final WriteBatcher writeBatcher;
+
+    /**
+     * Scheduler for the first query of streams of Get Operations, {@code null} if it should be executed by subscriber
+     */
+    @Nullable
+    private final Scheduler defaultScheduler;
+
     protected DefaultStorIOSQLite(@NonNull SQLiteDatabase db) {
-        this.db = db;
+        this(new Builder().db(db));
+    }
+
+    /**
+     * Creates instance with options of the builder, subclasses can pass their own builder
+     *
+     * @param builder builder with {@link SQLiteDatabase} and options
+     */
+    protected DefaultStorIOSQLite(@NonNull CompleteBuilder builder) {
+        db = builder.db;
+        queryCache = builder.queryCache;
+        defaultScheduler = builder.defaultScheduler;
+        statementCache = new StatementCache(db, builder.statementCacheSize);
+
+        if (!EnvironmentUtil.IS_RX_JAVA_AVAILABLE) {
+            changesDispatcher = null;
+        } else if (builder.asyncObservers) {
+            changesDispatcher = ChangesDispatcher.newAsyncInstance(builder.observersScheduler);
+        } else {
+            changesDispatcher = ChangesDispatcher.newInstance();
+        }
+
+        changesCoalescer = changesDispatcher != null && builder.notificationsWindowMillis > 0
+                ? ChangesCoalescer.newInstance(changesDispatcher, builder.notificationsWindowMillis, builder.notificationsScheduler)
+                : null;
+
+        writeBatcher = EnvironmentUtil.IS_RX_JAVA_AVAILABLE && builder.maxWriteBatchSize > 0
+                ? WriteBatcher.newInstance(
+                        db,
+                        internal,
+                        transactionChangesBuffer,
+                        builder.writeBatchWindowMillis,
+                        builder.maxWriteBatchSize,
+                        builder.writeScheduler
+                )
+                : null;
     }
 
     /**
@@ -63,12 +160,12 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
     @Override
     @NonNull
     public Observable<Changes> observeChangesInTables(@NonNull final Set<String> tables) {
-        if (changesBus == null) {
+        if (changesDispatcher == null) {
             throw newRxJavaIsNotAvailableException("Observing changes in StorIOSQLite");
         }
 
-        // indirect usage of RxJava filter() required to avoid problems with ClassLoader when RxJava is not in ClassPath
-        return ChangesFilter.apply(changesBus, tables);
+        // indirect usage of RxJava required to avoid problems with ClassLoader when RxJava is not in ClassPath
+        return changesDispatcher.observeChangesInTables(tables);
     }
 
     /**
@@ -80,6 +177,23 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
         return internal;
     }
 
+    /**
+     * Closes cached compiled statements, should be called after schema change made directly
+     * via {@link SQLiteDatabase}, because cached statements could refer to dropped or altered tables
+     */
+    public void clearStatementCache() {
+        statementCache.clear();
+    }
+
+    /**
+     * Closes cached statements and underlying {@link SQLiteDatabase},
+     * instance can not be used after that
+     */
+    public void close() {
+        statementCache.close();
+        db.close();
+    }
+
     protected class InternalImpl extends Internal {
 
         /**
@@ -88,6 +202,11 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
         @Override
         public void execSql(@NonNull RawQuery rawQuery) {
             db.execSQL(rawQuery.query, QueryUtil.listToArray(rawQuery.args));
+
+            if (isSchemaChange(rawQuery.query)) {
+                // cached statements could refer to dropped or altered tables
+                statementCache.clear();
+            }
         }
 
         /**
@@ -96,18 +215,36 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
         @NonNull
         @Override
         public Cursor rawQuery(@NonNull RawQuery rawQuery) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                return rawQueryCancellable(rawQuery);
+            }
+
             return db.rawQuery(
                     rawQuery.query,
                     QueryUtil.listToArray(rawQuery.args)
             );
         }
 
+        @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+        @NonNull
+        private Cursor rawQueryCancellable(@NonNull RawQuery rawQuery) {
+            return db.rawQuery(
+                    rawQuery.query,
+                    QueryUtil.listToArray(rawQuery.args),
+                    currentCancellationSignal()
+            );
+        }
+
         /**
          * {@inheritDoc}
          */
         @NonNull
         @Override
         public Cursor query(@NonNull Query query) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                return queryCancellable(query);
+            }
+
             return db.query(
                     query.distinct,
                     query.table,
@@ -121,16 +258,76 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
             );
         }
 
+        @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+        @NonNull
+        private Cursor queryCancellable(@NonNull Query query) {
+            return db.query(
+                    query.distinct,
+                    query.table,
+                    QueryUtil.listToArray(query.columns),
+                    query.where,
+                    QueryUtil.listToArray(query.whereArgs),
+                    query.groupBy,
+                    query.having,
+                    query.orderBy,
+                    query.limit,
+                    currentCancellationSignal()
+            );
+        }
+
         /**
          * {@inheritDoc}
          */
         @Override
         public long insert(@NonNull InsertQuery insertQuery, @NonNull ContentValues contentValues) {
-            return db.insertOrThrow(
-                    insertQuery.table,
-                    insertQuery.nullColumnHack,
-                    contentValues
-            );
+            if (contentValues.size() != 0) {
+                return statementCache.insert(
+                        insertQuery.table,
+                        insertQuery.conflictStrategy,
+                        contentValues
+                );
+            }
+
+            // only SQLiteDatabase knows how to apply nullColumnHack for empty row
+            if (insertQuery.conflictStrategy == ConflictStrategy.ABORT) {
+                return db.insertOrThrow(
+                        insertQuery.table,
+                        insertQuery.nullColumnHack,
+                        contentValues
+                );
+            } else {
+                return db.insertWithOnConflict(
+                        insertQuery.table,
+                        insertQuery.nullColumnHack,
+                        contentValues,
+                        toConflictAlgorithm(insertQuery.conflictStrategy)
+                );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * On API 16+ rows with same set of columns are inserted with {@link ConflictStrategy#ABORT}
+         * via multi-row {@code INSERT INTO t (..) VALUES (..),(..)} statements, up to 999 bound values each.
+         * Other conflict strategies, empty rows and older versions of SQLite are inserted row by row.
+         */
+        @NonNull
+        @Override
+        public long[] insertBatch(@NonNull InsertQuery insertQuery, @NonNull List<ContentValues> contentValuesList) {
+            // multi-row VALUES requires SQLite 3.7.11,
+            // ids of ignored or replaced rows can not be calculated from id of last inserted row
+            boolean canInsertWithMultiRowStatements = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                    && insertQuery.conflictStrategy == ConflictStrategy.ABORT;
+
+            // only SQLiteDatabase knows how to apply nullColumnHack for empty row
+            for (int i = 0; canInsertWithMultiRowStatements && i < contentValuesList.size(); i++) {
+                canInsertWithMultiRowStatements = contentValuesList.get(i).size() != 0;
+            }
+
+            return canInsertWithMultiRowStatements
+                    ? statementCache.insertBatch(insertQuery.table, contentValuesList)
+                    : super.insertBatch(insertQuery, contentValuesList);
         }
 
         /**
@@ -138,11 +335,22 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
          */
         @Override
         public int update(@NonNull UpdateQuery updateQuery, @NonNull ContentValues contentValues) {
-            return db.update(
+            if (contentValues.size() != 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+                return statementCache.update(
+                        updateQuery.table,
+                        updateQuery.conflictStrategy,
+                        contentValues,
+                        updateQuery.where,
+                        updateQuery.whereArgs
+                );
+            }
+
+            return db.updateWithOnConflict(
                     updateQuery.table,
                     contentValues,
                     updateQuery.where,
-                    QueryUtil.listToArray(updateQuery.whereArgs)
+                    QueryUtil.listToArray(updateQuery.whereArgs),
+                    toConflictAlgorithm(updateQuery.conflictStrategy)
             );
         }
 
@@ -160,15 +368,82 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
 
         /**
          * {@inheritDoc}
+         * <p>
+         * If current thread is in transaction, changes will be sent after commit of outermost transaction
+         * merged with other changes of this transaction, or dropped if transaction was rolled back
          */
         @Override
         public void notifyAboutChanges(@NonNull Changes changes) {
+            if (!transactionChangesBuffer.bufferIfInTransaction(changes)) {
+                sendChanges(changes);
+            }
+        }
+
+        private void sendChanges(@NonNull Changes changes) {
+            // cache should not return stale results even if notifications are delayed
+            if (queryCache != null) {
+                queryCache.invalidate(changes.affectedTables());
+            }
+
             // Notifying about changes requires RxJava, if RxJava is not available -> skip notification
-            if (changesBus != null) {
-                changesBus.onNext(changes);
+            if (changesCoalescer != null) {
+                changesCoalescer.onChanges(changes);
+            } else if (changesDispatcher != null) {
+                changesDispatcher.dispatch(changes);
             }
         }
 
+        /**
+         * {@inheritDoc}
+         * <p>
+         * If batching of writes is enabled, operation will be queued and executed on the writer
+         * in one transaction with other queued operations
+         */
+        @NonNull
+        @Override
+        public <Result> Observable<Result> createWriteObservable(@NonNull PreparedOperation<Result> preparedWriteOperation) {
+            return writeBatcher != null
+                    ? writeBatcher.createObservable(preparedWriteOperation)
+                    : super.createWriteObservable(preparedWriteOperation);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Query stream is subscribed once for all subscribers with equal keys,
+         * new subscribers receive latest result immediately
+         */
+        @NonNull
+        @Override
+        public <T> Observable<T> shareQueryStream(@NonNull Object key, @NonNull Observable<T> queryStream) {
+            return sharedQueryStreams != null
+                    ? sharedQueryStreams.share(key, queryStream)
+                    : queryStream;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Results of queries made inside of transaction can contain uncommitted changes,
+         * so cache is not used by thread which is in transaction
+         */
+        @Nullable
+        @Override
+        public QueryCache queryCache() {
+            return queryCache != null && !db.inTransaction()
+                    ? queryCache
+                    : null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Nullable
+        @Override
+        public Scheduler defaultScheduler() {
+            return defaultScheduler;
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -183,6 +458,7 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
         @Override
         public void beginTransaction() {
             db.beginTransaction();
+            transactionChangesBuffer.beginTransaction();
         }
 
         /**
@@ -191,6 +467,7 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
         @Override
         public void setTransactionSuccessful() {
             db.setTransactionSuccessful();
+            transactionChangesBuffer.setTransactionSuccessful();
         }
 
         /**
@@ -198,7 +475,56 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
          */
         @Override
         public void endTransaction() {
+            final Changes committedChanges = transactionChangesBuffer.endTransaction();
+
             db.endTransaction();
+
+            if (committedChanges != null) {
+                sendChanges(committedChanges);
+            }
+        }
+    }
+
+    /**
+     * @param sdkInt version of platform, {@link Build.VERSION#SDK_INT} in production
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    static void enableWriteAheadLoggingIfSupported(@NonNull SQLiteDatabase db, int sdkInt) {
+        if (sdkInt >= Build.VERSION_CODES.HONEYCOMB) {
+            // SQLiteDatabase opens secondary read-only connections only in WAL mode
+            db.enableWriteAheadLogging();
+        }
+    }
+
+    /**
+     * @return signal of query executed by current thread, {@code null} if the query can not be canceled
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Nullable
+    private static CancellationSignal currentCancellationSignal() {
+        final QueryCancellation queryCancellation = QueryCancellation.current();
+        return queryCancellation != null ? queryCancellation.cancellationSignal() : null;
+    }
+
+    /**
+     * @return {@code true} if sql starts with CREATE, ALTER or DROP, {@code false} otherwise
+     */
+    static boolean isSchemaChange(@NonNull String sql) {
+        final String trimmed = sql.trim();
+        return trimmed.regionMatches(true, 0, "CREATE", 0, 6)
+                || trimmed.regionMatches(true, 0, "ALTER", 0, 5)
+                || trimmed.regionMatches(true, 0, "DROP", 0, 4);
+    }
+
+    private static int toConflictAlgorithm(@NonNull ConflictStrategy conflictStrategy) {
+        switch (conflictStrategy) {
+            case IGNORE:
+                return SQLiteDatabase.CONFLICT_IGNORE;
+            case REPLACE:
+                return SQLiteDatabase.CONFLICT_REPLACE;
+            default:
+                // SQLiteDatabase.update() uses CONFLICT_NONE which is ABORT in SQLite
+                return SQLiteDatabase.CONFLICT_NONE;
         }
     }
 
@@ -243,6 +569,28 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
      */
     public static class CompleteBuilder extends Builder {
 
+        private int statementCacheSize = StatementCache.DEFAULT_MAX_SIZE;
+
+        private long notificationsWindowMillis;
+
+        private Scheduler notificationsScheduler;
+
+        private boolean writeAheadLogging;
+
+        private long writeBatchWindowMillis;
+
+        private int maxWriteBatchSize;
+
+        private Scheduler writeScheduler;
+
+        private QueryCache queryCache;
+
+        private boolean asyncObservers;
+
+        private Scheduler observersScheduler;
+
+        private Scheduler defaultScheduler;
+
         CompleteBuilder(@NonNull Builder builder) {
             db = builder.db;
         }
@@ -267,6 +615,219 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
             return this;
         }
 
+        /**
+         * Optional: Specifies max number of compiled insert/update statements
+         * that will be cached and reused by Put Operations
+         * <p>
+         * Statements are keyed by table and set of columns, so usually you need
+         * one cached statement per type of object you put
+         * <p>
+         * Default value is <code>25</code>
+         *
+         * @param statementCacheSize max number of cached statements, should be > 0
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder statementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        /**
+         * Optional: Enables merging of change notifications
+         * <p>
+         * All changes that occur during time window after first change will be delivered to observers
+         * as one {@link Changes} with all affected tables, so bulk write without transaction
+         * causes one re-query per observer instead of one re-query per row.
+         * Use window about 16 ms to get at most one notification per frame.
+         * <p>
+         * Notifications will be delivered on {@link rx.schedulers.Schedulers#computation()}
+         * <p>
+         * By default notifications are delivered immediately on the thread which made changes
+         *
+         * @param window length of time window, should be >= 0, <code>0</code> disables merging
+         * @param unit   time unit of window
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder coalesceNotifications(long window, @NonNull TimeUnit unit) {
+            return coalesceNotifications(window, unit, null);
+        }
+
+        /**
+         * Optional: Enables merging of change notifications
+         * <p>
+         * Same as {@link #coalesceNotifications(long, TimeUnit)} but notifications will be delivered on passed scheduler
+         *
+         * @param window    length of time window, should be >= 0, <code>0</code> disables merging
+         * @param unit      time unit of window
+         * @param scheduler scheduler for delivery of notifications
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder coalesceNotifications(long window, @NonNull TimeUnit unit, @Nullable Scheduler scheduler) {
+            if (window < 0) {
+                throw new IllegalArgumentException("Window should be >= 0, but was " + window);
+            }
+
+            notificationsWindowMillis = unit.toMillis(window);
+            notificationsScheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Optional: Enables write-ahead logging for database
+         * <p>
+         * In WAL mode {@link SQLiteDatabase} keeps one connection for writes and pool of read-only connections,
+         * Get Operations executed outside of transaction use read-only connections and don't wait
+         * for writes (for example, bulk put in other thread), they see last committed state.
+         * Operations executed inside of transaction use connection of the transaction.
+         * <p>
+         * Requires API 11+, on older versions this option is ignored.
+         * Can not be enabled for in-memory and read-only databases.
+         * <p>
+         * By default journal mode of passed database is not changed
+         *
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder enableWriteAheadLogging() {
+            writeAheadLogging = true;
+            return this;
+        }
+
+        /**
+         * Optional: Enables batching of write operations
+         * <p>
+         * Observables of Put and Delete Operations will queue operations on subscription,
+         * operations queued during time window after first one are executed on one writer in one transaction,
+         * so concurrent writes share one commit instead of waiting for each other's commits.
+         * Each subscriber receives its own result after commit of the batch. If operation fails, whole batch
+         * is rolled back and all its subscribers receive the error, operations are never executed again.
+         * Results and notifications about changes are delivered on another worker, not on the writer.
+         * <p>
+         * Writer uses {@link rx.schedulers.Schedulers#io()}.
+         * Subscriptions made inside of transaction are executed in place.
+         * {@link com.pushtorefresh.storio.operation.PreparedOperation#executeAsBlocking()} is not affected.
+         * <p>
+         * By default Observables of write operations are executed on the subscriber's thread
+         *
+         * @param window       length of time window, should be >= 0
+         * @param unit         time unit of window
+         * @param maxBatchSize max number of operations in one transaction, should be > 0,
+         *                     full batch is executed without waiting for end of window
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder batchWrites(long window, @NonNull TimeUnit unit, int maxBatchSize) {
+            return batchWrites(window, unit, maxBatchSize, null);
+        }
+
+        /**
+         * Optional: Enables batching of write operations
+         * <p>
+         * Same as {@link #batchWrites(long, TimeUnit, int)} but writer will use passed scheduler
+         *
+         * @param window       length of time window, should be >= 0
+         * @param unit         time unit of window
+         * @param maxBatchSize max number of operations in one transaction, should be > 0
+         * @param scheduler    scheduler for writer, all batches are executed on one worker of it,
+         *                     results are delivered on another one
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder batchWrites(long window, @NonNull TimeUnit unit, int maxBatchSize, @Nullable Scheduler scheduler) {
+            if (window < 0) {
+                throw new IllegalArgumentException("Window should be >= 0, but was " + window);
+            }
+
+            if (maxBatchSize <= 0) {
+                throw new IllegalArgumentException("Max batch size should be > 0, but was " + maxBatchSize);
+            }
+
+            writeBatchWindowMillis = unit.toMillis(window);
+            maxWriteBatchSize = maxBatchSize;
+            writeScheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Optional: Specifies cache of query results
+         * <p>
+         * Get Operations which return list of objects will return cached result
+         * until one of query tables is changed. Keep reference to the cache to read its hit/miss counters.
+         * <p>
+         * Only changes sent via {@link StorIOSQLite.Internal#notifyAboutChanges(Changes)} invalidate the cache,
+         * all operations of StorIO do it, but if you write to the database directly, please notify about changes
+         * or clear the cache.
+         * <p>
+         * By default results are not cached
+         *
+         * @param queryCache cache of query results
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder queryCache(@NonNull QueryCache queryCache) {
+            checkNotNull(queryCache, "Please specify query cache");
+            this.queryCache = queryCache;
+            return this;
+        }
+
+        /**
+         * Optional: Enables asynchronous delivery of change notifications to observers
+         * <p>
+         * Each observer of changes (and each stream of Get Operation) receives notifications on its own worker,
+         * serially and in order of changes, so thread which made changes (for example, writer of batched writes)
+         * does not wait for re-queries of observers, and slow observer does not delay others.
+         * Changes which occur while observer handles previous notification are merged into one {@link Changes}.
+         * <p>
+         * Notifications will be delivered on {@link rx.schedulers.Schedulers#io()}
+         * <p>
+         * By default notifications are delivered on the thread which made changes
+         * (or on scheduler of {@link #coalesceNotifications(long, TimeUnit, Scheduler)})
+         *
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder notifyObserversAsync() {
+            return notifyObserversAsync(null);
+        }
+
+        /**
+         * Optional: Enables asynchronous delivery of change notifications to observers
+         * <p>
+         * Same as {@link #notifyObserversAsync()} but notifications will be delivered on passed scheduler
+         *
+         * @param scheduler scheduler for delivery of notifications, each observer uses its own worker of it
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder notifyObserversAsync(@Nullable Scheduler scheduler) {
+            asyncObservers = true;
+            observersScheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Optional: Specifies scheduler for the first query of streams of Get Operations
+         * <p>
+         * Streams created by {@code createObservableStream()} will subscribe to changes and execute
+         * the first query on this scheduler (usually {@link rx.schedulers.Schedulers#io()}),
+         * so subscription on main thread does not wait for disk reads. Next queries are executed
+         * on the thread which delivers changes (see {@link #notifyObserversAsync()}).
+         * <p>
+         * By default the first query is executed on the thread of subscription
+         *
+         * @param scheduler scheduler for the first query
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder defaultScheduler(@NonNull Scheduler scheduler) {
+            checkNotNull(scheduler, "Please specify scheduler");
+            defaultScheduler = scheduler;
+            return this;
+        }
+
         /**
          * Builds {@link DefaultStorIOSQLite} instance with required params
          *
@@ -275,7 +836,12 @@ public class DefaultStorIOSQLite extends StorIOSQLite {
         @NonNull
         public DefaultStorIOSQLite build() {
             checkNotNull(db, "Please specify SQLiteDatabase instance");
-            return new DefaultStorIOSQLite(db);
+
+            if (writeAheadLogging) {
+                enableWriteAheadLoggingIfSupported(db, Build.VERSION.SDK_INT);
+            }
+
+            return new DefaultStorIOSQLite(this);
         }
     }
 }
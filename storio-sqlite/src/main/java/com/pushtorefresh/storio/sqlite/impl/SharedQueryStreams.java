@@ -0,0 +1,97 @@
+package com.pushtorefresh.storio.sqlite.impl;
+
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Shares one subscription to query stream between subscribers of streams with equal keys
+ * and replays latest result to new subscribers
+ * <p>
+ * Query stream is unsubscribed and forgotten when its last subscriber unsubscribes,
+ * next subscriber will subscribe to the query stream again.
+ * <p>
+ * All subscribers receive same instances of results, so results should be immutable,
+ * for example shared list streams of Get Operation emit unmodifiable lists.
+ * <p>
+ * Hiding RxJava from ClassLoader via separate class
+ */
+class SharedQueryStreams {
+
+    @NonNull
+    private final Map<Object, SharedStream<?>> sharedStreams = new HashMap<Object, SharedStream<?>>();
+
+    private static class SharedStream<T> {
+
+        @NonNull
+        final Observable<T> observable;
+
+        int subscribersCount;
+
+        SharedStream(@NonNull Observable<T> queryStream) {
+            observable = queryStream.replay(1).refCount();
+        }
+    }
+
+    /**
+     * Creates {@link Observable} which will share query stream with other subscribers of equal key
+     *
+     * @param key         key of query stream, streams with equal keys should emit equal results
+     * @param queryStream query stream, it will be subscribed only if there is no active stream with equal key
+     * @param <T>         type of results
+     * @return non-null {@link Observable} which will emit latest result and then results of shared query stream
+     */
+    @NonNull
+    <T> Observable<T> share(@NonNull final Object key, @NonNull final Observable<T> queryStream) {
+        return Observable.create(new Observable.OnSubscribe<T>() {
+            @Override
+            public void call(Subscriber<? super T> subscriber) {
+                final SharedStream<T> sharedStream = acquire(key, queryStream);
+
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        release(key, sharedStream);
+                    }
+                }));
+
+                if (!subscriber.isUnsubscribed()) {
+                    sharedStream.observable.unsafeSubscribe(subscriber);
+                }
+            }
+        });
+    }
+
+    @NonNull
+    private <T> SharedStream<T> acquire(@NonNull Object key, @NonNull Observable<T> queryStream) {
+        synchronized (sharedStreams) {
+            // equal keys guarantee same type of results
+            @SuppressWarnings("unchecked")
+            SharedStream<T> sharedStream = (SharedStream<T>) sharedStreams.get(key);
+
+            if (sharedStream == null) {
+                sharedStream = new SharedStream<T>(queryStream);
+                sharedStreams.put(key, sharedStream);
+            }
+
+            sharedStream.subscribersCount++;
+            return sharedStream;
+        }
+    }
+
+    private void release(@NonNull Object key, @NonNull SharedStream<?> sharedStream) {
+        synchronized (sharedStreams) {
+            sharedStream.subscribersCount--;
+
+            if (sharedStream.subscribersCount == 0 && sharedStreams.get(key) == sharedStream) {
+                sharedStreams.remove(key);
+            }
+        }
+    }
+}
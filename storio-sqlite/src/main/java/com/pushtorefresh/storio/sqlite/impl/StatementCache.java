@@ -0,0 +1,384 @@
+package com.pushtorefresh.storio.sqlite.impl;
+
+import android.annotation.TargetApi;
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.pushtorefresh.storio.sqlite.query.ConflictStrategy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU cache of compiled {@link SQLiteStatement} for {@link DefaultStorIOSQLite}
+ * <p>
+ * Statements are keyed by their sql, which is built from table name and sorted set of columns,
+ * so puts of the same "shape" reuse one compiled statement instead of recompiling it for each row.
+ * <p>
+ * Thread safe: statement is removed from the cache while it's in use and returned back after execution,
+ * so two threads never bind arguments to the same statement and no lock is held while SQLite works.
+ * Statements which were in use during {@link #clear()} or {@link #close()} are closed instead of returning
+ * to the cache, so statements compiled before schema change are never reused.
+ */
+class StatementCache {
+
+    /**
+     * Default max number of cached statements per {@link DefaultStorIOSQLite}
+     */
+    static final int DEFAULT_MAX_SIZE = 25;
+
+    /**
+     * Default SQLITE_MAX_VARIABLE_NUMBER, max number of "?" in one statement
+     */
+    static final int MAX_BIND_ARGS = 999;
+
+    /**
+     * Default SQLITE_MAX_COMPOUND_SELECT, multi-row VALUES is compound select for old versions of SQLite
+     */
+    static final int MAX_ROWS_PER_INSERT = 500;
+
+    @NonNull
+    private static final Comparator<Map.Entry<String, Object>> BY_COLUMN_NAME = new Comparator<Map.Entry<String, Object>>() {
+        @Override
+        public int compare(Map.Entry<String, Object> lhs, Map.Entry<String, Object> rhs) {
+            return lhs.getKey().compareTo(rhs.getKey());
+        }
+    };
+
+    @NonNull
+    private final SQLiteDatabase db;
+
+    @NonNull
+    private final LinkedHashMap<String, SQLiteStatement> statements;
+
+    /**
+     * Incremented by each {@link #clear()}, guarded by {@link #statements}
+     */
+    private int generation;
+
+    /**
+     * Guarded by {@link #statements}
+     */
+    private boolean closed;
+
+    StatementCache(@NonNull SQLiteDatabase db, final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size of statement cache should be > 0, but was " + maxSize);
+        }
+
+        this.db = db;
+
+        // access-ordered map gives us LRU eviction for free
+        statements = new LinkedHashMap<String, SQLiteStatement>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+                if (size() > maxSize) {
+                    eldest.getValue().close();
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+
+    /**
+     * Inserts a row via cached compiled statement
+     *
+     * @param table            table name
+     * @param conflictStrategy what to do if row violates constraint
+     * @param contentValues    non-empty values of the row
+     * @return id of inserted row or <code>-1</code> if row was ignored because of {@link ConflictStrategy#IGNORE}
+     * @throws android.database.SQLException if insert failed
+     */
+    long insert(@NonNull String table, @NonNull ConflictStrategy conflictStrategy, @NonNull ContentValues contentValues) {
+        return insertRows(table, conflictStrategy, Collections.singletonList(sortedValues(contentValues)), 0, 1);
+    }
+
+    /**
+     * Inserts rows via multi-row {@code INSERT INTO t (..) VALUES (..),(..)} statements
+     * with {@link ConflictStrategy#ABORT}
+     * <p>
+     * Consecutive rows with same set of columns are packed into one statement,
+     * number of rows per statement is limited by {@link #MAX_ROWS_PER_INSERT} and {@link #MAX_BIND_ARGS}.
+     * <p>
+     * Requires SQLite 3.7.11+ (API 16+). Rows inserted by one statement get consecutive rowids,
+     * so ids are calculated from id of last inserted row. Because of that table should have rowid
+     * and rows should not contain explicit values of rowid.
+     *
+     * @param table             table name
+     * @param contentValuesList non-empty values of the rows
+     * @return ids of inserted rows in same order as content values
+     * @throws android.database.SQLException if insert failed, rows of failed statement are not inserted
+     */
+    @NonNull
+    long[] insertBatch(@NonNull String table, @NonNull List<ContentValues> contentValuesList) {
+        final int count = contentValuesList.size();
+        final long[] ids = new long[count];
+
+        final List<List<Map.Entry<String, Object>>> rows = new ArrayList<List<Map.Entry<String, Object>>>(count);
+
+        for (ContentValues contentValues : contentValuesList) {
+            rows.add(sortedValues(contentValues));
+        }
+
+        int start = 0;
+
+        while (start < count) {
+            final List<Map.Entry<String, Object>> firstRow = rows.get(start);
+            final int maxRows = Math.max(1, Math.min(MAX_ROWS_PER_INSERT, MAX_BIND_ARGS / firstRow.size()));
+
+            int end = start + 1;
+
+            while (end < count && end - start < maxRows && sameColumns(firstRow, rows.get(end))) {
+                end++;
+            }
+
+            final long lastInsertedId = insertRows(table, ConflictStrategy.ABORT, rows, start, end);
+
+            // rowids of rows inserted by one statement are consecutive
+            for (int row = start; row < end; row++) {
+                ids[row] = lastInsertedId - (end - 1 - row);
+            }
+
+            start = end;
+        }
+
+        return ids;
+    }
+
+    /**
+     * @return id of last inserted row or <code>-1</code> if nothing was inserted
+     */
+    private long insertRows(@NonNull String table,
+                            @NonNull ConflictStrategy conflictStrategy,
+                            @NonNull List<List<Map.Entry<String, Object>>> rows,
+                            int start,
+                            int end) {
+
+        final List<Map.Entry<String, Object>> firstRow = rows.get(start);
+
+        final StringBuilder sql = new StringBuilder(32 + firstRow.size() * (end - start) * 16);
+
+        sql.append("INSERT");
+        appendConflictStrategy(sql, conflictStrategy);
+        sql.append(" INTO ").append(table).append('(');
+
+        for (int i = 0; i < firstRow.size(); i++) {
+            sql.append(i > 0 ? "," : "").append(firstRow.get(i).getKey());
+        }
+
+        sql.append(") VALUES ");
+
+        for (int row = start; row < end; row++) {
+            sql.append(row > start ? ",(" : "(");
+
+            for (int i = 0; i < firstRow.size(); i++) {
+                sql.append(i > 0 ? ",?" : "?");
+            }
+
+            sql.append(')');
+        }
+
+        final String key = sql.toString();
+        final int generation = generation();
+        final SQLiteStatement statement = acquire(key);
+
+        try {
+            for (int row = start; row < end; row++) {
+                bindValues(statement, rows.get(row), (row - start) * firstRow.size());
+            }
+
+            return statement.executeInsert();
+        } finally {
+            release(key, statement, generation);
+        }
+    }
+
+    /**
+     * Updates rows via cached compiled statement
+     * <p>
+     * Requires API 11+ because of {@link SQLiteStatement#executeUpdateDelete()}
+     *
+     * @param table            table name
+     * @param conflictStrategy what to do if updated row violates constraint
+     * @param contentValues    non-empty new values
+     * @param where            optional where clause
+     * @param whereArgs        optional arguments for where clause
+     * @return number of updated rows
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    int update(@NonNull String table, @NonNull ConflictStrategy conflictStrategy, @NonNull ContentValues contentValues,
+               @Nullable String where, @Nullable List<String> whereArgs) {
+
+        final List<Map.Entry<String, Object>> values = sortedValues(contentValues);
+
+        final StringBuilder sql = new StringBuilder(32 + values.size() * 16);
+
+        sql.append("UPDATE");
+        appendConflictStrategy(sql, conflictStrategy);
+        sql.append(' ').append(table).append(" SET ");
+
+        for (int i = 0; i < values.size(); i++) {
+            sql.append(i > 0 ? "," : "").append(values.get(i).getKey()).append("=?");
+        }
+
+        if (where != null && where.length() > 0) {
+            sql.append(" WHERE ").append(where);
+        }
+
+        final String key = sql.toString();
+        final int generation = generation();
+        final SQLiteStatement statement = acquire(key);
+
+        try {
+            bindValues(statement, values, 0);
+
+            if (whereArgs != null) {
+                for (int i = 0; i < whereArgs.size(); i++) {
+                    // null where arg is bound as NULL, same as SQLiteDatabase.update() does
+                    bindValue(statement, values.size() + i + 1, whereArgs.get(i));
+                }
+            }
+
+            return statement.executeUpdateDelete();
+        } finally {
+            release(key, statement, generation);
+        }
+    }
+
+    /**
+     * Closes all cached statements, statements which are in use will be closed after execution,
+     * should be called after schema change because statements could refer to changed tables
+     */
+    void clear() {
+        synchronized (statements) {
+            generation++;
+
+            for (SQLiteStatement statement : statements.values()) {
+                statement.close();
+            }
+
+            statements.clear();
+        }
+    }
+
+    /**
+     * Closes and removes all cached statements, statements which are in use will be closed after execution
+     * and next statements will not be cached
+     */
+    void close() {
+        synchronized (statements) {
+            closed = true;
+            clear();
+        }
+    }
+
+    private int generation() {
+        synchronized (statements) {
+            return generation;
+        }
+    }
+
+    @NonNull
+    private SQLiteStatement acquire(@NonNull String sql) {
+        final SQLiteStatement cached;
+
+        synchronized (statements) {
+            cached = statements.remove(sql);
+        }
+
+        return cached != null
+                ? cached
+                : db.compileStatement(sql);
+    }
+
+    private void release(@NonNull String sql, @NonNull SQLiteStatement statement, int acquiredInGeneration) {
+        statement.clearBindings();
+
+        final boolean stale;
+        final SQLiteStatement previous;
+
+        synchronized (statements) {
+            stale = closed || generation != acquiredInGeneration;
+            previous = stale
+                    ? null
+                    : statements.put(sql, statement);
+        }
+
+        if (stale) {
+            // statement was acquired before clear() and could be compiled against old schema
+            statement.close();
+            return;
+        }
+
+        // other thread has returned same statement while we were using ours
+        if (previous != null && previous != statement) {
+            previous.close();
+        }
+    }
+
+    private static void appendConflictStrategy(@NonNull StringBuilder sql, @NonNull ConflictStrategy conflictStrategy) {
+        // ABORT is default behavior of SQLite, so we keep sql same as SQLiteDatabase generates
+        if (conflictStrategy != ConflictStrategy.ABORT) {
+            sql.append(" OR ").append(conflictStrategy.name());
+        }
+    }
+
+    private static boolean sameColumns(@NonNull List<Map.Entry<String, Object>> lhs,
+                                       @NonNull List<Map.Entry<String, Object>> rhs) {
+        if (lhs.size() != rhs.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < lhs.size(); i++) {
+            if (!lhs.get(i).getKey().equals(rhs.get(i).getKey())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @NonNull
+    private static List<Map.Entry<String, Object>> sortedValues(@NonNull ContentValues contentValues) {
+        final List<Map.Entry<String, Object>> values = new ArrayList<Map.Entry<String, Object>>(contentValues.valueSet());
+        Collections.sort(values, BY_COLUMN_NAME);
+        return values;
+    }
+
+    private static void bindValues(@NonNull SQLiteStatement statement,
+                                   @NonNull List<Map.Entry<String, Object>> values,
+                                   int offset) {
+
+        // bind indexes are 1-based
+        for (int i = 0; i < values.size(); i++) {
+            bindValue(statement, offset + i + 1, values.get(i).getValue());
+        }
+    }
+
+    // same conversions as DatabaseUtils.bindObjectToProgram() does for SQLiteDatabase.insert()
+    private static void bindValue(@NonNull SQLiteStatement statement, int index, @Nullable Object value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else if (value instanceof Double || value instanceof Float) {
+            statement.bindDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            statement.bindLong(index, ((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            statement.bindLong(index, (Boolean) value ? 1 : 0);
+        } else if (value instanceof byte[]) {
+            statement.bindBlob(index, (byte[]) value);
+        } else {
+            statement.bindString(index, value.toString());
+        }
+    }
+}
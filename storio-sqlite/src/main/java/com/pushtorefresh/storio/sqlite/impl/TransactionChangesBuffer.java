@@ -0,0 +1,109 @@
+package com.pushtorefresh.storio.sqlite.impl;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.pushtorefresh.storio.sqlite.Changes;
+
+/**
+ * Tracks nesting of transactions of current thread and buffers {@link Changes} made inside of them
+ * <p>
+ * Same as {@link android.database.sqlite.SQLiteDatabase}: nested transaction that was not marked as successful
+ * rolls back whole transaction, so buffered changes are sent only if all levels were successful.
+ * <p>
+ * Transactions of {@link android.database.sqlite.SQLiteDatabase} are bound to thread, so state is thread local
+ * and changes made by other threads are not buffered.
+ */
+class TransactionChangesBuffer {
+
+    @NonNull
+    private final ThreadLocal<State> state = new ThreadLocal<State>();
+
+    private static class State {
+
+        int depth;
+
+        boolean currentLevelSuccessful;
+
+        boolean failed;
+
+        @NonNull
+        final Changes.Builder changes = new Changes.Builder();
+    }
+
+    /**
+     * Should be called when transaction of current thread begins
+     */
+    void beginTransaction() {
+        State state = this.state.get();
+
+        if (state == null) {
+            state = new State();
+            this.state.set(state);
+        }
+
+        state.depth++;
+        state.currentLevelSuccessful = false;
+    }
+
+    /**
+     * Should be called when transaction of current thread is marked as successful
+     */
+    void setTransactionSuccessful() {
+        final State state = this.state.get();
+
+        if (state != null) {
+            state.currentLevelSuccessful = true;
+        }
+    }
+
+    /**
+     * Buffers changes if current thread is in transaction
+     *
+     * @param changes changes
+     * @return {@code true} if changes were buffered, {@code false} if they should be sent right now
+     */
+    boolean bufferIfInTransaction(@NonNull Changes changes) {
+        final State state = this.state.get();
+
+        if (state == null) {
+            return false;
+        }
+
+        state.changes.addChanges(changes);
+        return true;
+    }
+
+    /**
+     * Should be called when transaction of current thread ends
+     *
+     * @return merged changes if outermost transaction was committed and there were changes,
+     * {@code null} if transaction is nested, was rolled back or there were no changes
+     */
+    @Nullable
+    Changes endTransaction() {
+        final State state = this.state.get();
+
+        if (state == null) {
+            return null;
+        }
+
+        if (!state.currentLevelSuccessful) {
+            state.failed = true;
+        }
+
+        // outer level can not be marked as successful before nested transaction, see SQLiteSession
+        state.currentLevelSuccessful = false;
+        state.depth--;
+
+        if (state.depth > 0) {
+            return null;
+        }
+
+        this.state.remove();
+
+        return state.failed || state.changes.isEmpty()
+                ? null
+                : state.changes.build();
+    }
+}
@@ -0,0 +1,307 @@
+package com.pushtorefresh.storio.sqlite.impl;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.pushtorefresh.storio.operation.PreparedOperation;
+import com.pushtorefresh.storio.sqlite.Changes;
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+
+/**
+ * Executes write operations subscribed from different threads on one writer,
+ * operations queued during time window are executed in one transaction, so they share one commit
+ * <p>
+ * If one of operations fails, transaction of the batch is rolled back, following operations of the batch
+ * are not executed and all subscribers of the batch receive the error. Operations are never executed twice.
+ * <p>
+ * Subscribers receive results only after commit. Results and notifications about changes of the batch
+ * are delivered on another worker of the scheduler, so slow subscribers don't delay next batch.
+ * <p>
+ * Hiding RxJava from ClassLoader via separate class
+ */
+class WriteBatcher implements Action0 {
+
+    @NonNull
+    private final SQLiteDatabase db;
+
+    @NonNull
+    private final StorIOSQLite.Internal internal;
+
+    @NonNull
+    private final TransactionChangesBuffer transactionChangesBuffer;
+
+    private final long windowMillis;
+
+    private final int maxBatchSize;
+
+    @NonNull
+    private final Scheduler.Worker worker;
+
+    @NonNull
+    private final Scheduler.Worker deliveryWorker;
+
+    @NonNull
+    private final Object lock = new Object();
+
+    @NonNull
+    private final List<QueuedWrite<?>> queue = new ArrayList<QueuedWrite<?>>();
+
+    private boolean drainScheduled;
+
+    private WriteBatcher(@NonNull SQLiteDatabase db,
+                         @NonNull StorIOSQLite.Internal internal,
+                         @NonNull TransactionChangesBuffer transactionChangesBuffer,
+                         long windowMillis,
+                         int maxBatchSize,
+                         @NonNull Scheduler scheduler) {
+        this.db = db;
+        this.internal = internal;
+        this.transactionChangesBuffer = transactionChangesBuffer;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        worker = scheduler.createWorker();
+        deliveryWorker = scheduler.createWorker();
+    }
+
+    /**
+     * Creates new instance of {@link WriteBatcher}
+     *
+     * @param db                       database for transactions of batches,
+     *                                 also required to detect transaction of subscriber's thread
+     * @param internal                 internal operations of {@link StorIOSQLite}, notifications about changes
+     *                                 of committed batch will be sent through it
+     * @param transactionChangesBuffer buffer of changes of {@code internal}, collects changes of the batch
+     * @param windowMillis             length of time window in milliseconds
+     * @param maxBatchSize             max number of operations in one transaction, batch is executed without waiting
+     *                                 for end of window when it's full
+     * @param scheduler                scheduler for writer, if {@code null} {@link Schedulers#io()} will be used
+     * @return new instance of {@link WriteBatcher}
+     */
+    @NonNull
+    static WriteBatcher newInstance(@NonNull SQLiteDatabase db,
+                                    @NonNull StorIOSQLite.Internal internal,
+                                    @NonNull TransactionChangesBuffer transactionChangesBuffer,
+                                    long windowMillis,
+                                    int maxBatchSize,
+                                    @Nullable Scheduler scheduler) {
+        return new WriteBatcher(
+                db,
+                internal,
+                transactionChangesBuffer,
+                windowMillis,
+                maxBatchSize,
+                scheduler != null ? scheduler : Schedulers.io()
+        );
+    }
+
+    /**
+     * Creates {@link Observable} which will queue write operation on subscription
+     *
+     * @param preparedWriteOperation write operation
+     * @param <Result>               type of result of write operation
+     * @return non-null {@link Observable} which will emit result of write operation after commit
+     */
+    @NonNull
+    <Result> Observable<Result> createObservable(@NonNull final PreparedOperation<Result> preparedWriteOperation) {
+        return Observable.create(new Observable.OnSubscribe<Result>() {
+            @Override
+            public void call(Subscriber<? super Result> subscriber) {
+                final QueuedWrite<Result> write = new QueuedWrite<Result>(preparedWriteOperation, subscriber);
+
+                if (db.inTransaction()) {
+                    // writer can not join transaction of current thread and waiting for it would cause deadlock
+                    if (write.execute()) {
+                        write.onCommitted();
+                    } else {
+                        write.onFailed();
+                    }
+                } else {
+                    enqueue(write);
+                }
+            }
+        });
+    }
+
+    private void enqueue(@NonNull QueuedWrite<?> write) {
+        final long delayMillis;
+
+        synchronized (lock) {
+            queue.add(write);
+
+            if (queue.size() < maxBatchSize) {
+                if (drainScheduled) {
+                    return;
+                }
+
+                delayMillis = windowMillis;
+            } else if (queue.size() == maxBatchSize) {
+                // batch is full, no need to wait for end of window
+                delayMillis = 0;
+            } else {
+                // drain of full batch is already scheduled
+                return;
+            }
+
+            drainScheduled = true;
+        }
+
+        worker.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // end of window or batch is full
+    @Override
+    public void call() {
+        final List<QueuedWrite<?>> batch;
+        final boolean hasMoreWrites;
+
+        synchronized (lock) {
+            final List<QueuedWrite<?>> batchView = queue.subList(0, Math.min(queue.size(), maxBatchSize));
+            batch = new ArrayList<QueuedWrite<?>>(batchView);
+            batchView.clear();
+
+            hasMoreWrites = !queue.isEmpty();
+            drainScheduled = hasMoreWrites;
+        }
+
+        if (hasMoreWrites) {
+            // these writes already waited for the batch
+            worker.schedule(this);
+        }
+
+        executeBatch(batch);
+    }
+
+    private void executeBatch(@NonNull List<QueuedWrite<?>> batch) {
+        final List<QueuedWrite<?>> writes = new ArrayList<QueuedWrite<?>>(batch.size());
+
+        for (QueuedWrite<?> write : batch) {
+            if (!write.subscriber.isUnsubscribed()) {
+                writes.add(write);
+            }
+        }
+
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        final Changes changes;
+        QueuedWrite<?> failedWrite = null;
+
+        try {
+            // transaction is managed here instead of internal, so its changes are not sent on the writer
+            db.beginTransaction();
+            transactionChangesBuffer.beginTransaction();
+
+            try {
+                for (QueuedWrite<?> write : writes) {
+                    if (!write.execute()) {
+                        failedWrite = write;
+                        break;
+                    }
+                }
+
+                if (failedWrite == null) {
+                    db.setTransactionSuccessful();
+                    transactionChangesBuffer.setTransactionSuccessful();
+                }
+            } finally {
+                changes = transactionChangesBuffer.endTransaction();
+                db.endTransaction();
+            }
+        } catch (RuntimeException e) {
+            // transaction can not be started or committed
+            deliver(writes, null, e);
+            return;
+        }
+
+        if (failedWrite != null) {
+            deliver(writes, null, failedWrite.error);
+        } else {
+            deliver(writes, changes, null);
+        }
+    }
+
+    private void deliver(@NonNull final List<QueuedWrite<?>> writes,
+                         @Nullable final Changes changes,
+                         @Nullable final Throwable error) {
+        deliveryWorker.schedule(new Action0() {
+            @Override
+            public void call() {
+                if (changes != null) {
+                    // delivery worker is not in transaction, so changes are sent right now
+                    internal.notifyAboutChanges(changes);
+                }
+
+                for (QueuedWrite<?> write : writes) {
+                    if (error == null) {
+                        write.onCommitted();
+                    } else {
+                        write.onError(error);
+                    }
+                }
+            }
+        });
+    }
+
+    private static class QueuedWrite<Result> {
+
+        @NonNull
+        final PreparedOperation<Result> preparedOperation;
+
+        @NonNull
+        final Subscriber<? super Result> subscriber;
+
+        @Nullable
+        private Result result;
+
+        @Nullable
+        private RuntimeException error;
+
+        QueuedWrite(@NonNull PreparedOperation<Result> preparedOperation, @NonNull Subscriber<? super Result> subscriber) {
+            this.preparedOperation = preparedOperation;
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * @return {@code true} if write was executed successfully, {@code false} if it failed
+         */
+        boolean execute() {
+            try {
+                result = preparedOperation.executeAsBlocking();
+                error = null;
+                return true;
+            } catch (RuntimeException e) {
+                error = e;
+                return false;
+            }
+        }
+
+        void onCommitted() {
+            if (!subscriber.isUnsubscribed()) {
+                subscriber.onNext(result);
+                subscriber.onCompleted();
+            }
+        }
+
+        void onFailed() {
+            onError(error);
+        }
+
+        void onError(@Nullable Throwable throwable) {
+            if (!subscriber.isUnsubscribed()) {
+                subscriber.onError(throwable);
+            }
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package com.pushtorefresh.storio.sqlite.operation.delete;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.pushtorefresh.storio.operation.PreparedOperation;
+import com.pushtorefresh.storio.sqlite.Changes;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.sqlite.query.DeleteQuery;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
 
 public abstract class PreparedDelete<T> implements PreparedOperation<T> {
 
@@ -21,6 +26,76 @@ public abstract class PreparedDelete<T> implements PreparedOperation<T> {
         this.deleteResolver = deleteResolver;
     }
 
+    /**
+     * Where clause by row id: {@code rowid = ?} or {@code rowid IN (?, ?, ...)},
+     * where {@code rowid} is one of {@code rowid}, {@code oid} or {@code _rowid_}
+     * <p>
+     * Other columns (including {@code _id}) are not matched: they are not row ids
+     * unless they are declared as {@code INTEGER PRIMARY KEY}, which can not be checked here
+     */
+    @NonNull
+    private static final Pattern WHERE_BY_ROW_IDS = Pattern.compile(
+            "^\\s*[`\"\\[]?(rowid|oid|_rowid_)[`\"\\]]?\\s*(=\\s*\\?|IN\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\))\\s*$",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    /**
+     * Adds table and, if they can be parsed from where clause, rows affected by Delete Operation to changes
+     * <p>
+     * Rows are known only if where clause selects rows by row id (see {@link #WHERE_BY_ROW_IDS})
+     * and all where args are integers. To get changes of rows instead of whole table,
+     * select rows by {@code rowid} (it's same as selection by {@code INTEGER PRIMARY KEY} column)
+     *
+     * @param changes     changes
+     * @param deleteQuery query of Delete Operation
+     */
+    static void addChanges(@NonNull Changes.Builder changes, @NonNull DeleteQuery deleteQuery) {
+        final List<Long> rowIds = parseRowIds(deleteQuery);
+
+        if (rowIds != null) {
+            changes.addRows(deleteQuery.table, rowIds);
+        } else {
+            changes.addTable(deleteQuery.table);
+        }
+    }
+
+    /**
+     * Creates changes made by Delete Operation
+     *
+     * @param deleteQuery query of Delete Operation
+     * @return changes with affected table and, if they are known, affected rows
+     */
+    @NonNull
+    static Changes changesOf(@NonNull DeleteQuery deleteQuery) {
+        final Changes.Builder changes = new Changes.Builder();
+        addChanges(changes, deleteQuery);
+        return changes.build();
+    }
+
+    /**
+     * @return ids of deleted rows or {@code null} if they can not be parsed from query
+     */
+    @Nullable
+    private static List<Long> parseRowIds(@NonNull DeleteQuery deleteQuery) {
+        if (deleteQuery.where == null
+                || deleteQuery.whereArgs == null
+                || !WHERE_BY_ROW_IDS.matcher(deleteQuery.where).matches()) {
+            return null;
+        }
+
+        final List<Long> rowIds = new ArrayList<Long>(deleteQuery.whereArgs.size());
+
+        try {
+            for (String whereArg : deleteQuery.whereArgs) {
+                rowIds.add(Long.parseLong(whereArg));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        return rowIds;
+    }
+
     /**
      * Builder for {@link PreparedDelete}
      */
@@ -2,13 +2,11 @@ package com.pushtorefresh.storio.sqlite.operation.delete;
 
 import android.support.annotation.NonNull;
 
-import com.pushtorefresh.storio.sqlite.Changes;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.sqlite.query.DeleteQuery;
 import com.pushtorefresh.storio.util.EnvironmentUtil;
 
 import rx.Observable;
-import rx.Subscriber;
 
 /**
  * Prepared Delete Operation for {@link StorIOSQLite}
@@ -32,7 +30,7 @@ public class PreparedDeleteByQuery extends PreparedDelete<DeleteResult> {
     @Override
     public DeleteResult executeAsBlocking() {
         final DeleteResult deleteResult = deleteResolver.performDelete(storIOSQLite, deleteQuery);
-        storIOSQLite.internal().notifyAboutChanges(Changes.newInstance(deleteQuery.table));
+        storIOSQLite.internal().notifyAboutChanges(changesOf(deleteQuery));
         return deleteResult;
     }
 
@@ -45,18 +43,7 @@ public class PreparedDeleteByQuery extends PreparedDelete<DeleteResult> {
     @Override
     public Observable<DeleteResult> createObservable() {
         EnvironmentUtil.throwExceptionIfRxJavaIsNotAvailable("createObservable()");
-
-        return Observable.create(new Observable.OnSubscribe<DeleteResult>() {
-            @Override
-            public void call(Subscriber<? super DeleteResult> subscriber) {
-                final DeleteResult deleteByQueryResult = executeAsBlocking();
-
-                if (!subscriber.isUnsubscribed()) {
-                    subscriber.onNext(deleteByQueryResult);
-                    subscriber.onCompleted();
-                }
-            }
-        });
+        return storIOSQLite.internal().createWriteObservable(this);
     }
 
     /**
@@ -3,13 +3,11 @@ package com.pushtorefresh.storio.sqlite.operation.delete;
 import android.support.annotation.NonNull;
 
 import com.pushtorefresh.storio.operation.MapFunc;
-import com.pushtorefresh.storio.sqlite.Changes;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.sqlite.query.DeleteQuery;
 import com.pushtorefresh.storio.util.EnvironmentUtil;
 
 import rx.Observable;
-import rx.Subscriber;
 
 import static com.pushtorefresh.storio.util.Checks.checkNotNull;
 
@@ -47,7 +45,7 @@ public class PreparedDeleteObject<T> extends PreparedDelete<DeleteResult> {
 
         internal.getLoggi().v(deleteResult.numberOfRowsDeleted() + " object(s) deleted");
 
-        internal.notifyAboutChanges(Changes.newInstance(deleteQuery.table));
+        internal.notifyAboutChanges(changesOf(deleteQuery));
 
         return deleteResult;
     }
@@ -61,18 +59,7 @@ public class PreparedDeleteObject<T> extends PreparedDelete<DeleteResult> {
     @Override
     public Observable<DeleteResult> createObservable() {
         EnvironmentUtil.throwExceptionIfRxJavaIsNotAvailable("createObservable()");
-
-        return Observable.create(new Observable.OnSubscribe<DeleteResult>() {
-            @Override
-            public void call(Subscriber<? super DeleteResult> subscriber) {
-                final DeleteResult deleteResult = executeAsBlocking();
-
-                if (!subscriber.isUnsubscribed()) {
-                    subscriber.onNext(deleteResult);
-                    subscriber.onCompleted();
-                }
-            }
-        });
+        return storIOSQLite.internal().createWriteObservable(this);
     }
 
     /**
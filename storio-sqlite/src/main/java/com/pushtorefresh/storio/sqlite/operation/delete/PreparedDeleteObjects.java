@@ -1,26 +1,47 @@
 package com.pushtorefresh.storio.sqlite.operation.delete;
 
+import android.database.Cursor;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.pushtorefresh.storio.operation.MapFunc;
 import com.pushtorefresh.storio.sqlite.Changes;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.sqlite.query.DeleteQuery;
+import com.pushtorefresh.storio.sqlite.query.RawQuery;
 import com.pushtorefresh.storio.util.EnvironmentUtil;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import rx.Observable;
-import rx.Subscriber;
 
 import static com.pushtorefresh.storio.util.Checks.checkNotNull;
 
 public class PreparedDeleteObjects<T> extends PreparedDelete<DeleteResults<T>> {
 
+    /**
+     * Max number of keys in one bulk delete statement, keys are counted by compound select
+     * with one term per key and SQLite allows 500 terms of compound select by default
+     */
+    static final int MAX_KEYS_PER_BULK_DELETE = 500;
+
+    /**
+     * Where clause by one key column: {@code column = ?}, column name can be quoted
+     */
+    @NonNull
+    private static final Pattern WHERE_BY_KEY = Pattern.compile(
+            "^\\s*([`\"\\[]?[A-Za-z_][A-Za-z0-9_]*[`\"\\]]?)\\s*=\\s*\\?\\s*$"
+    );
+
     @NonNull
     private final Collection<T> objects;
 
@@ -29,11 +50,18 @@ public class PreparedDeleteObjects<T> extends PreparedDelete<DeleteResults<T>> {
 
     private final boolean useTransactionIfPossible;
 
+    private final boolean inBulk;
+
     PreparedDeleteObjects(@NonNull StorIOSQLite storIOSQLite, @NonNull Collection<T> objects, @NonNull MapFunc<T, DeleteQuery> mapFunc, boolean useTransactionIfPossible, @NonNull DeleteResolver deleteResolver) {
+        this(storIOSQLite, objects, mapFunc, useTransactionIfPossible, false, deleteResolver);
+    }
+
+    PreparedDeleteObjects(@NonNull StorIOSQLite storIOSQLite, @NonNull Collection<T> objects, @NonNull MapFunc<T, DeleteQuery> mapFunc, boolean useTransactionIfPossible, boolean inBulk, @NonNull DeleteResolver deleteResolver) {
         super(storIOSQLite, deleteResolver);
         this.objects = objects;
         this.mapFunc = mapFunc;
         this.useTransactionIfPossible = useTransactionIfPossible;
+        this.inBulk = inBulk;
     }
 
     /**
@@ -56,18 +84,27 @@ public class PreparedDeleteObjects<T> extends PreparedDelete<DeleteResults<T>> {
 
         boolean transactionSuccessful = false;
 
-        try {
-            for (final T object : objects) {
-                final DeleteQuery deleteQuery = mapFunc.map(object);
-                final DeleteResult deleteResult = deleteResolver.performDelete(storIOSQLite, deleteQuery);
-
-                results.put(
-                        object,
-                        deleteResult
-                );
+        final Changes.Builder changes = new Changes.Builder();
 
-                if (!withTransaction) {
-                    internal.notifyAboutChanges(Changes.newInstance(deleteQuery.table));
+        try {
+            if (inBulk) {
+                // changes are merged into one notification even without transaction
+                deleteInBulk(results, changes);
+            } else {
+                for (final T object : objects) {
+                    final DeleteQuery deleteQuery = mapFunc.map(object);
+                    final DeleteResult deleteResult = deleteResolver.performDelete(storIOSQLite, deleteQuery);
+
+                    results.put(
+                            object,
+                            deleteResult
+                    );
+
+                    if (withTransaction) {
+                        addChanges(changes, deleteQuery);
+                    } else {
+                        internal.notifyAboutChanges(changesOf(deleteQuery));
+                    }
                 }
             }
 
@@ -81,19 +118,147 @@ public class PreparedDeleteObjects<T> extends PreparedDelete<DeleteResults<T>> {
 
                 if (transactionSuccessful) {
                     // if delete was in transaction and it was successful -> notify about changes
+                    internal.notifyAboutChanges(changes.build());
+                }
+            } else if (!changes.isEmpty()) {
+                // notify about bulk deletes which were executed before failure too
+                internal.notifyAboutChanges(changes.build());
+            }
+        }
 
-                    final Set<String> affectedTables = new HashSet<String>(1); // in most cases it will be one table
+        return DeleteResults.newInstance(results);
+    }
 
-                    for (final T object : results.keySet()) {
-                        affectedTables.add(results.get(object).affectedTable());
-                    }
+    /**
+     * Deletes objects which are selected by one key column with chunked {@code DELETE ... WHERE key IN (?, ...)},
+     * other objects are deleted one by one
+     *
+     * @param results map for results of objects
+     * @param changes builder for changes made by deletes
+     */
+    private void deleteInBulk(@NonNull Map<T, DeleteResult> results, @NonNull Changes.Builder changes) {
+        // pairs (table, key column) -> objects with their keys, in order of objects
+        final Map<List<String>, Map<T, String>> groups = new LinkedHashMap<List<String>, Map<T, String>>();
+
+        for (final T object : objects) {
+            final DeleteQuery deleteQuery = mapFunc.map(object);
+            final String keyColumn = keyColumnOf(deleteQuery);
+
+            if (keyColumn == null) {
+                results.put(object, deleteResolver.performDelete(storIOSQLite, deleteQuery));
+                addChanges(changes, deleteQuery);
+                continue;
+            }
+
+            final List<String> group = Arrays.asList(deleteQuery.table, keyColumn);
+            Map<T, String> keysOfObjects = groups.get(group);
+
+            if (keysOfObjects == null) {
+                keysOfObjects = new LinkedHashMap<T, String>();
+                groups.put(group, keysOfObjects);
+            }
+
+            //noinspection ConstantConditions
+            keysOfObjects.put(object, deleteQuery.whereArgs.get(0));
+        }
+
+        for (Map.Entry<List<String>, Map<T, String>> group : groups.entrySet()) {
+            final String table = group.getKey().get(0);
+            final String keyColumn = group.getKey().get(1);
 
-                    internal.notifyAboutChanges(Changes.newInstance(affectedTables));
+            final Map<T, String> chunk = new LinkedHashMap<T, String>();
+            final Set<String> chunkKeys = new LinkedHashSet<String>();
+
+            for (Map.Entry<T, String> keyOfObject : group.getValue().entrySet()) {
+                if (!chunkKeys.contains(keyOfObject.getValue()) && chunkKeys.size() == MAX_KEYS_PER_BULK_DELETE) {
+                    deleteChunk(table, keyColumn, chunk, chunkKeys, results, changes);
+                    chunk.clear();
+                    chunkKeys.clear();
                 }
+
+                chunk.put(keyOfObject.getKey(), keyOfObject.getValue());
+                chunkKeys.add(keyOfObject.getValue());
             }
+
+            if (!chunk.isEmpty()) {
+                deleteChunk(table, keyColumn, chunk, chunkKeys, results, changes);
+            }
+        }
+    }
+
+    @SuppressWarnings("TryFinallyCanBeTryWithResources") // Min SDK :(
+    private void deleteChunk(@NonNull String table,
+                             @NonNull String keyColumn,
+                             @NonNull Map<T, String> chunk,
+                             @NonNull Set<String> keys,
+                             @NonNull Map<T, DeleteResult> results,
+                             @NonNull Changes.Builder changes) {
+        final StringBuilder where = new StringBuilder(keyColumn.length() + 6 + keys.size() * 3);
+        where.append(keyColumn).append(" IN (");
+
+        for (int i = 0; i < keys.size(); i++) {
+            where.append(i == 0 ? "?" : ", ?");
         }
 
-        return DeleteResults.newInstance(results);
+        where.append(')');
+
+        final Object[] whereArgs = keys.toArray();
+
+        // one delete can not tell how many rows of each key it deleted, so rows are counted before it.
+        // Query selects bound keys themselves, so SQLite compares them with the column the same way as delete does
+        // and counts are mapped back by the exact key of each object
+        final StringBuilder count = new StringBuilder(64 + table.length() + keyColumn.length() + keys.size() * 25);
+        count.append("SELECT bulk_keys.bulk_key, (SELECT COUNT(*) FROM ").append(table)
+                .append(" WHERE ").append(keyColumn).append(" = bulk_keys.bulk_key) FROM (");
+
+        for (int i = 0; i < keys.size(); i++) {
+            count.append(i == 0 ? "SELECT ? AS bulk_key" : " UNION ALL SELECT ?");
+        }
+
+        count.append(") AS bulk_keys");
+
+        final Map<String, Integer> deletedRowsByKey = new HashMap<String, Integer>(keys.size() * 2);
+
+        final Cursor cursor = storIOSQLite.internal().rawQuery(new RawQuery.Builder()
+                .query(count.toString())
+                .args(whereArgs)
+                .build());
+
+        try {
+            while (cursor.moveToNext()) {
+                deletedRowsByKey.put(cursor.getString(0), cursor.getInt(1));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        final DeleteQuery deleteQuery = new DeleteQuery.Builder()
+                .table(table)
+                .where(where.toString())
+                .whereArgs(whereArgs)
+                .build();
+
+        deleteResolver.performDelete(storIOSQLite, deleteQuery);
+        addChanges(changes, deleteQuery);
+
+        for (Map.Entry<T, String> keyOfObject : chunk.entrySet()) {
+            // rows of duplicated key are deleted by first of its objects
+            final Integer deletedRows = deletedRowsByKey.remove(keyOfObject.getValue());
+            results.put(keyOfObject.getKey(), DeleteResult.newInstance(deletedRows != null ? deletedRows : 0, table));
+        }
+    }
+
+    /**
+     * @return key column if query deletes rows by one key column, {@code null} otherwise
+     */
+    @Nullable
+    private static String keyColumnOf(@NonNull DeleteQuery deleteQuery) {
+        if (deleteQuery.where == null || deleteQuery.whereArgs == null || deleteQuery.whereArgs.size() != 1) {
+            return null;
+        }
+
+        final Matcher matcher = WHERE_BY_KEY.matcher(deleteQuery.where);
+        return matcher.matches() ? matcher.group(1) : null;
     }
 
     /**
@@ -105,18 +270,7 @@ public class PreparedDeleteObjects<T> extends PreparedDelete<DeleteResults<T>> {
     @Override
     public Observable<DeleteResults<T>> createObservable() {
         EnvironmentUtil.throwExceptionIfRxJavaIsNotAvailable("createObservable()");
-
-        return Observable.create(new Observable.OnSubscribe<DeleteResults<T>>() {
-            @Override
-            public void call(Subscriber<? super DeleteResults<T>> subscriber) {
-                final DeleteResults<T> deleteResults = executeAsBlocking();
-
-                if (!subscriber.isUnsubscribed()) {
-                    subscriber.onNext(deleteResults);
-                    subscriber.onCompleted();
-                }
-            }
-        });
+        return storIOSQLite.internal().createWriteObservable(this);
     }
 
     /**
@@ -133,6 +287,7 @@ public class PreparedDeleteObjects<T> extends PreparedDelete<DeleteResults<T>> {
 
         private MapFunc<T, DeleteQuery> mapFunc;
         private boolean useTransactionIfPossible = true;
+        private boolean inBulk;
         private DeleteResolver deleteResolver;
 
         Builder(@NonNull StorIOSQLite storIOSQLite, @NonNull Collection<T> objects) {
@@ -169,6 +324,8 @@ public class PreparedDeleteObjects<T> extends PreparedDelete<DeleteResults<T>> {
         /**
          * Optional: Defines that Delete Operation won't use transaction
          * <p>
+         * Can not be combined with {@link #inBulk()}
+         * <p>
          * By default, transaction will be used
          *
          * @return builder
@@ -179,6 +336,31 @@ public class PreparedDeleteObjects<T> extends PreparedDelete<DeleteResults<T>> {
             return this;
         }
 
+        /**
+         * Optional: Enables set-based deletion
+         * <p>
+         * Objects whose {@link DeleteQuery} selects rows by one key column ({@code column = ?} with one where arg)
+         * are deleted by {@code DELETE FROM table WHERE column IN (?, ?, ...)}, one statement per
+         * up to 999 keys of the same table and column, so deletion of thousands of objects takes few statements.
+         * {@link DeleteResolver} receives these merged queries. Other objects are deleted one by one.
+         * <p>
+         * Each object still gets its own {@link DeleteResult}: rows of each key are counted before deletion
+         * in the same transaction, by query which selects bound keys, so keys are matched by SQLite
+         * the same way as by deletion. Objects with equal where args share rows, they are reported
+         * for first of them only. Observers receive one notification with all changes.
+         * <p>
+         * Requires transaction, so it can not be combined with {@link #dontUseTransaction()}
+         * <p>
+         * By default, each object is deleted by its own query
+         *
+         * @return builder
+         */
+        @NonNull
+        public Builder<T> inBulk() {
+            inBulk = true;
+            return this;
+        }
+
         /**
          * Optional: Specifies {@link DeleteResolver} for Delete Operation
          * <p>
@@ -206,11 +388,17 @@ public class PreparedDeleteObjects<T> extends PreparedDelete<DeleteResults<T>> {
 
             checkNotNull(mapFunc, "Please specify map function");
 
+            if (inBulk && !useTransactionIfPossible) {
+                throw new IllegalStateException("Deletion in bulk counts and deletes rows in one transaction, "
+                        + "it can not be combined with dontUseTransaction()");
+            }
+
             return new PreparedDeleteObjects<T>(
                     storIOSQLite,
                     objects,
                     mapFunc,
                     useTransactionIfPossible,
+                    inBulk,
                     deleteResolver
             );
         }
@@ -3,10 +3,14 @@ package com.pushtorefresh.storio.sqlite.operation.exec_sql;
 import android.support.annotation.NonNull;
 
 import com.pushtorefresh.storio.operation.PreparedOperation;
+import com.pushtorefresh.storio.sqlite.Changes;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.sqlite.query.RawQuery;
+import com.pushtorefresh.storio.sqlite.query.SqlTables;
 import com.pushtorefresh.storio.util.EnvironmentUtil;
 
+import java.util.Set;
+
 import rx.Observable;
 import rx.Subscriber;
 
@@ -22,8 +26,24 @@ public class PreparedExecSql implements PreparedOperation<Void> {
         this.rawQuery = rawQuery;
     }
 
+    /**
+     * Executes SQL statement and notifies observers of changed tables:
+     * {@link RawQuery#affectedTables} if they were specified, otherwise tables parsed from the statement
+     * via {@link SqlTables#writtenTablesOf(String)}
+     *
+     * @return {@code null}
+     */
     @NonNull @Override public Void executeAsBlocking() {
         storIOSQLite.internal().execSql(rawQuery);
+
+        final Set<String> affectedTables = rawQuery.affectedTables != null
+                ? rawQuery.affectedTables
+                : SqlTables.writtenTablesOf(rawQuery.query);
+
+        if (affectedTables != null && !affectedTables.isEmpty()) {
+            storIOSQLite.internal().notifyAboutChanges(Changes.newInstance(affectedTables));
+        }
+
         return null;
     }
 
@@ -0,0 +1,260 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.database.Cursor;
+import android.provider.BaseColumns;
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+import com.pushtorefresh.storio.sqlite.Changes;
+import com.pushtorefresh.storio.sqlite.query.SqlTables;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import static com.pushtorefresh.storio.util.Checks.checkNotEmpty;
+import static com.pushtorefresh.storio.util.Checks.checkNotNull;
+
+/**
+ * {@link MapFunc} which keeps identity map of mapped objects of one table keyed by primary key
+ * and returns previous instance for the row if row was not changed since it was mapped
+ * <p>
+ * Row is considered unchanged if value of its version column is same, version column should be changed
+ * with each update of the row (for example, by trigger). Query still reads all columns, but after change
+ * of several rows wrapped map function is called and objects are allocated only for changed rows,
+ * unchanged objects keep reference equality.
+ * <p>
+ * Instances are held via weak references, so identity map does not prevent them from being garbage collected.
+ * Returned instances are shared between all queries which use this map function, so they should be immutable.
+ * <p>
+ * Please reuse one instance of {@link IdentityMapFunc} for the table. Streams of Get Operations
+ * (see {@link PreparedGetListOfObjects#createObservableStream()}) pass changes of the table
+ * to {@link #onChanges(Changes)} automatically, if you use it only for blocking execution,
+ * pass {@link Changes} of {@link com.pushtorefresh.storio.sqlite.StorIOSQLite} to it yourself.
+ * <p>
+ * Thread safe
+ *
+ * @param <T> type of mapped objects
+ */
+public class IdentityMapFunc<T> implements MapFunc<Cursor, T> {
+
+    @NonNull
+    private final String table;
+
+    @NonNull
+    private final String idColumn;
+
+    @NonNull
+    private final String versionColumn;
+
+    @NonNull
+    private final MapFunc<Cursor, T> mapFunc;
+
+    @NonNull
+    private final Map<Long, Entry<T>> entries = new HashMap<Long, Entry<T>>();
+
+    private static class Entry<T> {
+
+        final long rowVersion;
+
+        @NonNull
+        final WeakReference<T> reference;
+
+        Entry(long rowVersion, @NonNull T object) {
+            this.rowVersion = rowVersion;
+            reference = new WeakReference<T>(object);
+        }
+    }
+
+    IdentityMapFunc(@NonNull String table,
+                    @NonNull String idColumn,
+                    @NonNull String versionColumn,
+                    @NonNull MapFunc<Cursor, T> mapFunc) {
+        this.table = SqlTables.normalize(table);
+        this.idColumn = idColumn;
+        this.versionColumn = versionColumn;
+        this.mapFunc = mapFunc;
+    }
+
+    /**
+     * Returns previous instance for the row if row was not changed, otherwise maps row via wrapped map function
+     *
+     * @param cursor cursor positioned on the row
+     * @return mapped object
+     */
+    @NonNull
+    @Override
+    public T map(@NonNull Cursor cursor) {
+        final long id = cursor.getLong(cursor.getColumnIndexOrThrow(idColumn));
+        final long rowVersion = cursor.getLong(cursor.getColumnIndexOrThrow(versionColumn));
+
+        synchronized (entries) {
+            final Entry<T> entry = entries.get(id);
+
+            if (entry != null && entry.rowVersion == rowVersion) {
+                final T object = entry.reference.get();
+
+                if (object != null) {
+                    return object;
+                }
+            }
+        }
+
+        final T object = mapFunc.map(cursor);
+
+        synchronized (entries) {
+            entries.put(id, new Entry<T>(rowVersion, object));
+        }
+
+        return object;
+    }
+
+    /**
+     * Should be called with changes of {@link com.pushtorefresh.storio.sqlite.StorIOSQLite}
+     * <p>
+     * Entries of changed rows are removed, so their objects can be garbage collected before next query.
+     * If changed rows of the table are unknown, only entries of garbage collected objects are removed,
+     * other entries are checked by version column during next mapping.
+     *
+     * @param changes changes of {@link com.pushtorefresh.storio.sqlite.StorIOSQLite}
+     */
+    public void onChanges(@NonNull Changes changes) {
+        boolean affectedRowsAreKnown = true;
+        final Set<Long> affectedRowIds = new HashSet<Long>();
+
+        // names of tables are case insensitive, changes keep names as they were passed
+        for (String affectedTable : changes.affectedTables()) {
+            if (table.equals(SqlTables.normalize(affectedTable))) {
+                final Set<Long> rowIds = changes.affectedRowIds(affectedTable);
+
+                if (rowIds != null) {
+                    affectedRowIds.addAll(rowIds);
+                } else {
+                    affectedRowsAreKnown = false;
+                }
+            }
+        }
+
+        synchronized (entries) {
+            if (affectedRowsAreKnown) {
+                entries.keySet().removeAll(affectedRowIds);
+                return;
+            }
+
+            final Iterator<Entry<T>> iterator = entries.values().iterator();
+
+            while (iterator.hasNext()) {
+                if (iterator.next().reference.get() == null) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all entries, next mapping of each row will create new instance
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Builder for {@link IdentityMapFunc}
+     *
+     * @param <T> type of mapped objects
+     */
+    public static class Builder<T> {
+
+        /**
+         * Required: Specifies table of mapped rows
+         *
+         * @param table table of mapped rows
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder<T> table(@NonNull String table) {
+            checkNotEmpty(table, "Table name is null or empty");
+            return new CompleteBuilder<T>(table);
+        }
+    }
+
+    /**
+     * Compile-time safe part of builder for {@link IdentityMapFunc}
+     *
+     * @param <T> type of mapped objects
+     */
+    public static class CompleteBuilder<T> {
+
+        @NonNull
+        private final String table;
+
+        @NonNull
+        private String idColumn = BaseColumns._ID;
+
+        private String versionColumn;
+
+        private MapFunc<Cursor, T> mapFunc;
+
+        CompleteBuilder(@NonNull String table) {
+            this.table = table;
+        }
+
+        /**
+         * Optional: Specifies primary key column, it should be integer
+         * <p>
+         * Default value is {@link BaseColumns#_ID}
+         *
+         * @param idColumn primary key column
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder<T> idColumn(@NonNull String idColumn) {
+            checkNotEmpty(idColumn, "Id column name is null or empty");
+            this.idColumn = idColumn;
+            return this;
+        }
+
+        /**
+         * Required: Specifies integer column which is changed with each update of the row,
+         * rows with same id and version are not mapped again
+         *
+         * @param versionColumn version column
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder<T> versionColumn(@NonNull String versionColumn) {
+            checkNotEmpty(versionColumn, "Version column name is null or empty");
+            this.versionColumn = versionColumn;
+            return this;
+        }
+
+        /**
+         * Required: Specifies map function which will be used for new and changed rows
+         *
+         * @param mapFunc map function
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder<T> withMapFunc(@NonNull MapFunc<Cursor, T> mapFunc) {
+            this.mapFunc = mapFunc;
+            return this;
+        }
+
+        /**
+         * Builds {@link IdentityMapFunc}
+         *
+         * @return new instance of {@link IdentityMapFunc}
+         */
+        @NonNull
+        public IdentityMapFunc<T> build() {
+            checkNotNull(versionColumn, "Please specify version column");
+            checkNotNull(mapFunc, "Please specify map function");
+            return new IdentityMapFunc<T>(table, idColumn, versionColumn, mapFunc);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.sqlite.Changes;
+
+import rx.functions.Action1;
+
+/**
+ * Passes changes observed by query stream to {@link IdentityMapFunc} of the stream before re-query,
+ * so entries of changed rows are removed before they are mapped again
+ * <p>
+ * Hiding RxJava from ClassLoader via separate class
+ */
+class IdentityMapFuncChangesAction implements Action1<Changes> {
+
+    @NonNull
+    private final IdentityMapFunc<?> identityMapFunc;
+
+    private IdentityMapFuncChangesAction(@NonNull IdentityMapFunc<?> identityMapFunc) {
+        this.identityMapFunc = identityMapFunc;
+    }
+
+    @NonNull
+    static Action1<Changes> newInstance(@NonNull IdentityMapFunc<?> identityMapFunc) {
+        return new IdentityMapFuncChangesAction(identityMapFunc);
+    }
+
+    @Override
+    public void call(Changes changes) {
+        identityMapFunc.onChanges(changes);
+    }
+}
@@ -0,0 +1,371 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+import com.pushtorefresh.storio.sqlite.query.Query;
+import com.pushtorefresh.storio.util.EnvironmentUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rx.Observable;
+
+import static com.pushtorefresh.storio.util.Checks.checkNotEmpty;
+import static com.pushtorefresh.storio.util.Checks.checkNotNull;
+
+/**
+ * Splits result of {@link Query} into pages via keyset (seek) pagination:
+ * {@code WHERE key > ? ORDER BY key LIMIT n}, where "?" is the key of the last row of previous page
+ * <p>
+ * Unlike {@code LIMIT n OFFSET m} it does not read and skip all previous rows, so deep pages
+ * are as fast as the first one (if key column is indexed), and pages don't shift when rows are inserted or deleted.
+ * <p>
+ * Key column should be unique (for example, primary key), otherwise rows with same key on the page boundary will be lost.
+ * <p>
+ * Instances of this class are Immutable
+ *
+ * @param <T> type of objects
+ */
+public class KeysetPager<T> {
+
+    @NonNull
+    private final StorIOSQLite storIOSQLite;
+
+    @NonNull
+    private final Query query;
+
+    @NonNull
+    private final String keyColumn;
+
+    @NonNull
+    private final MapFunc<T, ?> keyFunc;
+
+    private final int pageSize;
+
+    private final boolean descending;
+
+    @NonNull
+    private final GetResolver getResolver;
+
+    @NonNull
+    private final MapFunc<Cursor, T> mapFunc;
+
+    KeysetPager(@NonNull StorIOSQLite storIOSQLite,
+                @NonNull Query query,
+                @NonNull String keyColumn,
+                @NonNull MapFunc<T, ?> keyFunc,
+                int pageSize,
+                boolean descending,
+                @NonNull GetResolver getResolver,
+                @NonNull MapFunc<Cursor, T> mapFunc) {
+        this.storIOSQLite = storIOSQLite;
+        this.query = query;
+        this.keyColumn = keyColumn;
+        this.keyFunc = keyFunc;
+        this.pageSize = pageSize;
+        this.descending = descending;
+        this.getResolver = getResolver;
+        this.mapFunc = mapFunc;
+    }
+
+    /**
+     * Returns max number of objects on one page
+     *
+     * @return page size
+     */
+    public int pageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns key of the object which should be passed to {@link #page(Object)} to get next page after it
+     *
+     * @param object object from the page
+     * @return key of the object
+     */
+    @NonNull
+    public Object keyOf(@NonNull T object) {
+        return keyFunc.map(object);
+    }
+
+    /**
+     * Creates {@link Query} for the page which follows row with passed key
+     *
+     * @param lastSeenKey key of the last object of previous page or {@code null} for first page
+     * @return non-null query for the page
+     */
+    @NonNull
+    public Query pageQuery(@Nullable Object lastSeenKey) {
+        return pageQuery(lastSeenKey, null, true);
+    }
+
+    /**
+     * Prepares Get Operation for the page which follows row with passed key
+     *
+     * @param lastSeenKey key of the last object of previous page or {@code null} for first page
+     * @return {@link PreparedGetListOfObjects} instance
+     */
+    @NonNull
+    public PreparedGetListOfObjects<T> page(@Nullable Object lastSeenKey) {
+        return prepareGet(pageQuery(lastSeenKey));
+    }
+
+    /**
+     * Creates an {@link Observable} which will emit all loaded objects (one page at start)
+     * and will load next page each time passed {@link Observable} emits something.
+     * <p>
+     * It will be subscribed to changes of query table and will re-query loaded pages by their key ranges
+     * (without OFFSET): one query for all pages except last and one for the last page,
+     * result will be emitted only if some of pages were changed.
+     *
+     * @param loadNextPageRequests emission of this {@link Observable} is request to load next page,
+     *                             usually it's "user scrolled to the end of the list" event
+     * @return non-null {@link Observable} which will emit non-null list with objects of loaded pages
+     */
+    @NonNull
+    public Observable<List<T>> createObservableStream(@NonNull Observable<?> loadNextPageRequests) {
+        EnvironmentUtil.throwExceptionIfRxJavaIsNotAvailable("createObservableStream()");
+        return Observable.create(OnSubscribeKeysetPager.newInstance(this, loadNextPageRequests));
+    }
+
+    @NonNull
+    StorIOSQLite storIOSQLite() {
+        return storIOSQLite;
+    }
+
+    @NonNull
+    String table() {
+        return query.table;
+    }
+
+    @NonNull
+    PreparedGetListOfObjects<T> prepareGet(@NonNull Query pageQuery) {
+        return new PreparedGetListOfObjects<T>(storIOSQLite, pageQuery, getResolver, mapFunc, false);
+    }
+
+    /**
+     * Checks if object goes after the row with passed key in order of pages
+     *
+     * @param object object from the page
+     * @param key    key of the row, can be {@code null} only for empty first page
+     * @return true if key of the object is greater than passed key (less for descending order)
+     */
+    boolean isAfter(@NonNull T object, @Nullable Object key) {
+        if (key == null) {
+            return true;
+        }
+
+        final int result = compareKeys(keyOf(object), key);
+        return descending ? result < 0 : result > 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareKeys(@NonNull Object key1, @NonNull Object key2) {
+        if (key1 instanceof Number && key2 instanceof Number) {
+            if (isIntegral(key1) && isIntegral(key2)) {
+                final long value1 = ((Number) key1).longValue();
+                final long value2 = ((Number) key2).longValue();
+                return value1 < value2 ? -1 : (value1 == value2 ? 0 : 1);
+            } else {
+                return Double.compare(((Number) key1).doubleValue(), ((Number) key2).doubleValue());
+            }
+        }
+
+        return ((Comparable<Object>) key1).compareTo(key2);
+    }
+
+    private static boolean isIntegral(@NonNull Object number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte;
+    }
+
+    /**
+     * Creates query for rows with keys in range (lowerKey, upperKey]
+     *
+     * @param lowerKey  exclusive lower bound or {@code null} if there is no lower bound
+     * @param upperKey  inclusive upper bound or {@code null} if there is no upper bound
+     * @param withLimit {@code true} if query should be limited by page size
+     * @return query for the page
+     */
+    @NonNull
+    Query pageQuery(@Nullable Object lowerKey, @Nullable Object upperKey, boolean withLimit) {
+        final StringBuilder where = new StringBuilder();
+        final List<Object> whereArgs = new ArrayList<Object>();
+
+        if (query.where != null) {
+            where.append('(').append(query.where).append(')');
+
+            if (query.whereArgs != null) {
+                whereArgs.addAll(query.whereArgs);
+            }
+        }
+
+        if (lowerKey != null) {
+            where.append(where.length() > 0 ? " AND " : "")
+                    .append(keyColumn).append(descending ? " < ?" : " > ?");
+            whereArgs.add(lowerKey);
+        }
+
+        if (upperKey != null) {
+            where.append(where.length() > 0 ? " AND " : "")
+                    .append(keyColumn).append(descending ? " >= ?" : " <= ?");
+            whereArgs.add(upperKey);
+        }
+
+        return new Query.Builder()
+                .table(query.table)
+                .distinct(query.distinct)
+                .columns(query.columns == null ? null : query.columns.toArray(new String[query.columns.size()]))
+                .where(where.length() > 0 ? where.toString() : null)
+                .whereArgs(whereArgs.toArray())
+                .groupBy(query.groupBy)
+                .having(query.having)
+                .orderBy(keyColumn + (descending ? " DESC" : " ASC"))
+                .limit(withLimit ? String.valueOf(pageSize) : null)
+                .build();
+    }
+
+    /**
+     * Builder for {@link KeysetPager}
+     * <p>
+     * Required: You should specify map function, query and key
+     *
+     * @param <T> type of objects
+     */
+    public static class Builder<T> {
+
+        /**
+         * Default number of objects on one page
+         */
+        public static final int DEFAULT_PAGE_SIZE = 50;
+
+        @NonNull
+        private final StorIOSQLite storIOSQLite;
+
+        private MapFunc<Cursor, T> mapFunc;
+        private Query query;
+        private String keyColumn;
+        private MapFunc<T, ?> keyFunc;
+        private int pageSize = DEFAULT_PAGE_SIZE;
+        private boolean descending;
+        private GetResolver getResolver;
+
+        Builder(@NonNull StorIOSQLite storIOSQLite, @NonNull Class<T> type) {
+            this.storIOSQLite = storIOSQLite;
+        }
+
+        /**
+         * Required: Specifies map function which will map {@link Cursor} to object of required type
+         *
+         * @param mapFunc map function
+         * @return builder
+         */
+        @NonNull
+        public Builder<T> withMapFunc(@NonNull MapFunc<Cursor, T> mapFunc) {
+            this.mapFunc = mapFunc;
+            return this;
+        }
+
+        /**
+         * Required: Specifies {@link Query} which result should be split into pages
+         * <p>
+         * Query should not have order by and limit clauses, pager sets them
+         *
+         * @param query query
+         * @return builder
+         */
+        @NonNull
+        public Builder<T> withQuery(@NonNull Query query) {
+            this.query = query;
+            return this;
+        }
+
+        /**
+         * Required: Specifies unique column which defines order of rows and function which returns its value for object
+         * <p>
+         * Values of the key should be numbers or {@link Comparable} (for example strings),
+         * pager compares them to split re-queried rows into loaded pages
+         *
+         * @param keyColumn name of the column, for example "_id"
+         * @param keyFunc   function which returns value of key column for object
+         * @return builder
+         */
+        @NonNull
+        public Builder<T> withKey(@NonNull String keyColumn, @NonNull MapFunc<T, ?> keyFunc) {
+            this.keyColumn = keyColumn;
+            this.keyFunc = keyFunc;
+            return this;
+        }
+
+        /**
+         * Optional: Specifies max number of objects on one page
+         * <p>
+         * Default value is {@link #DEFAULT_PAGE_SIZE}
+         *
+         * @param pageSize page size, should be > 0
+         * @return builder
+         */
+        @NonNull
+        public Builder<T> pageSize(int pageSize) {
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Optional: Specifies that rows should be ordered by key in descending order, for example "newest first"
+         * <p>
+         * Default order is ascending
+         *
+         * @return builder
+         */
+        @NonNull
+        public Builder<T> descending() {
+            this.descending = true;
+            return this;
+        }
+
+        /**
+         * Optional: Specifies {@link GetResolver} for Get Operation
+         * <p>
+         * Default value is instance of {@link DefaultGetResolver}
+         *
+         * @param getResolver get resolver
+         * @return builder
+         */
+        @NonNull
+        public Builder<T> withGetResolver(@NonNull GetResolver getResolver) {
+            this.getResolver = getResolver;
+            return this;
+        }
+
+        /**
+         * Prepares pager
+         *
+         * @return {@link KeysetPager} instance
+         */
+        @NonNull
+        public KeysetPager<T> prepare() {
+            checkNotNull(mapFunc, "Please specify map function");
+            checkNotNull(query, "Please specify query");
+            checkNotEmpty(keyColumn, "Please specify key column");
+            checkNotNull(keyFunc, "Please specify key function");
+
+            if (pageSize <= 0) {
+                throw new IllegalArgumentException("Page size should be > 0, but was " + pageSize);
+            }
+
+            if (query.orderBy != null || query.limit != null) {
+                throw new IllegalStateException("Please don't specify order by and limit in query, pager sets them");
+            }
+
+            if (getResolver == null) {
+                getResolver = DefaultGetResolver.INSTANCE;
+            }
+
+            return new KeysetPager<T>(storIOSQLite, query, keyColumn, keyFunc, pageSize, descending, getResolver, mapFunc);
+        }
+    }
+}
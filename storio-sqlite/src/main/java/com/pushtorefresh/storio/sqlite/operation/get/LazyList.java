@@ -0,0 +1,129 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+
+import java.io.Closeable;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Read-only {@link java.util.List} backed by open {@link Cursor}
+ * which maps rows to objects only when they are requested via {@link #get(int)}
+ * <p>
+ * Recently mapped objects are kept in small LRU cache, so scrolling back and forth
+ * (for example, in RecyclerView adapter) does not map same rows again and again.
+ * <p>
+ * List owns the cursor, you should call {@link #close()} when you don't need the list anymore,
+ * after that {@link #get(int)} will throw {@link IllegalStateException}.
+ * <p>
+ * Thread-safe, but please note that access to rows requires moving of the cursor,
+ * so concurrent reads are serialized.
+ *
+ * @param <T> type of objects
+ */
+public final class LazyList<T> extends AbstractList<T> implements RandomAccess, Closeable {
+
+    /**
+     * Default max number of mapped objects kept in memory by {@link LazyList}
+     */
+    public static final int DEFAULT_OBJECT_CACHE_SIZE = 32;
+
+    @NonNull
+    private final Cursor cursor;
+
+    @NonNull
+    private final MapFunc<Cursor, T> mapFunc;
+
+    @NonNull
+    private final LinkedHashMap<Integer, T> objectCache;
+
+    private final int size;
+
+    private boolean closed;
+
+    LazyList(@NonNull Cursor cursor, @NonNull MapFunc<Cursor, T> mapFunc, final int objectCacheSize) {
+        if (objectCacheSize <= 0) {
+            throw new IllegalArgumentException("Object cache size should be > 0, but was " + objectCacheSize);
+        }
+
+        this.cursor = cursor;
+        this.mapFunc = mapFunc;
+        this.size = cursor.getCount();
+
+        // access-ordered map gives us LRU eviction for free
+        objectCache = new LinkedHashMap<Integer, T>(objectCacheSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) {
+                return size() > objectCacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns object for the row at passed position, maps it from the cursor if it's not in cache
+     *
+     * @param location position of the row
+     * @return mapped object
+     * @throws IndexOutOfBoundsException if location is out of bounds
+     * @throws IllegalStateException     if list was closed
+     */
+    @Override
+    public synchronized T get(int location) {
+        if (location < 0 || location >= size) {
+            throw new IndexOutOfBoundsException("Invalid index " + location + ", size is " + size);
+        }
+
+        if (closed) {
+            throw new IllegalStateException("LazyList was closed");
+        }
+
+        T object = objectCache.get(location);
+
+        if (object == null) {
+            if (!cursor.moveToPosition(location)) {
+                throw new IllegalStateException("Cursor can not move to position " + location);
+            }
+
+            object = mapFunc.map(cursor);
+            objectCache.put(location, object);
+        }
+
+        return object;
+    }
+
+    /**
+     * Returns number of rows in the cursor, it's calculated once when list is created
+     *
+     * @return number of rows
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if list was closed
+     *
+     * @return {@code true} if list was closed, {@code false} otherwise
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes underlying cursor and releases cached objects, can be called multiple times
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            objectCache.clear();
+            cursor.close();
+        }
+    }
+}
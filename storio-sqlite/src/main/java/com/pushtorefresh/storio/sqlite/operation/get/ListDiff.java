@@ -0,0 +1,549 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.pushtorefresh.storio.util.Checks.checkNotNull;
+
+/**
+ * Immutable result of comparison of two lists: new list and updates which transform previous list into new one
+ * <p>
+ * Updates should be applied in order they are listed, positions of each update are relative
+ * to the list after previous updates: removals go first (from the end of list), then moves, insertions
+ * and changes, so they can be passed directly to {@code notifyItemRangeRemoved()}, {@code notifyItemMoved()},
+ * {@code notifyItemRangeInserted()} and {@code notifyItemRangeChanged()} of RecyclerView.Adapter.
+ * <p>
+ * Items are matched by ids, item with same id is changed if it's not equal to the previous one.
+ *
+ * @param <T> type of items
+ */
+public final class ListDiff<T> {
+
+    @NonNull
+    private final List<T> list;
+
+    @NonNull
+    private final List<Update> updates;
+
+    private ListDiff(@NonNull List<T> list, @NonNull List<Update> updates) {
+        this.list = list;
+        this.updates = Collections.unmodifiableList(updates);
+    }
+
+    /**
+     * Calculates updates which transform previous list into new list
+     * <p>
+     * If one of lists contains several items with same id, result contains removal of all previous items
+     * and insertion of all new items
+     *
+     * @param previousList previous list
+     * @param list         new list
+     * @param idFunc       function which returns id of item, ids should implement equals() and hashCode()
+     * @param <T>          type of items
+     * @return diff of lists
+     */
+    @NonNull
+    public static <T> ListDiff<T> calculate(@NonNull List<T> previousList,
+                                            @NonNull List<T> list,
+                                            @NonNull MapFunc<T, ?> idFunc) {
+        checkNotNull(previousList, "Please specify previous list");
+        checkNotNull(list, "Please specify list");
+        checkNotNull(idFunc, "Please specify id function");
+
+        final List<Object> previousIds = mapToIds(previousList, idFunc);
+        final List<Object> ids = mapToIds(list, idFunc);
+
+        final Map<Object, Integer> previousPositions = positionsOf(previousIds);
+        final Map<Object, Integer> positions = positionsOf(ids);
+
+        if (previousPositions == null || positions == null) {
+            return reload(previousList, list);
+        }
+
+        final List<Update> updates = new ArrayList<Update>();
+
+        // removals from the end, so positions of next removals are not affected
+        final List<Object> survivedIds = new ArrayList<Object>(previousIds.size());
+        final RangeCollector removals = new RangeCollector(Update.Type.REMOVE, updates);
+
+        for (int i = previousIds.size() - 1; i >= 0; i--) {
+            final Object id = previousIds.get(i);
+
+            if (positions.containsKey(id)) {
+                survivedIds.add(id);
+            } else {
+                removals.addDescending(i);
+            }
+        }
+
+        removals.flush();
+        Collections.reverse(survivedIds);
+
+        // order of survived items in new list
+        final List<Object> targetIds = new ArrayList<Object>(survivedIds.size());
+
+        for (Object id : ids) {
+            if (previousPositions.containsKey(id)) {
+                targetIds.add(id);
+            }
+        }
+
+        addMoves(survivedIds, targetIds, updates);
+
+        final RangeCollector insertions = new RangeCollector(Update.Type.INSERT, updates);
+
+        for (int i = 0; i < ids.size(); i++) {
+            if (!previousPositions.containsKey(ids.get(i))) {
+                insertions.addAscending(i);
+            }
+        }
+
+        insertions.flush();
+
+        final RangeCollector changes = new RangeCollector(Update.Type.CHANGE, updates);
+
+        for (int i = 0; i < ids.size(); i++) {
+            final Integer previousPosition = previousPositions.get(ids.get(i));
+
+            if (previousPosition != null && !equal(previousList.get(previousPosition), list.get(i))) {
+                changes.addAscending(i);
+            }
+        }
+
+        changes.flush();
+
+        return new ListDiff<T>(list, updates);
+    }
+
+    /**
+     * Moves items which are not part of longest increasing subsequence of target positions,
+     * each moved item is placed right after its predecessor in target order
+     * <p>
+     * Positions are not searched in the list: each item is ordered by key (base, offset), where base is position
+     * in list of survived items (offset 0) or base of predecessor for moved item (offset of predecessor + 1),
+     * so moved item goes right after its predecessor. Keys are known before moves, so they are sorted up front
+     * and current position of item is number of present keys before its key, O(n log n) in total.
+     */
+    private static void addMoves(@NonNull List<Object> survivedIds,
+                                 @NonNull List<Object> targetIds,
+                                 @NonNull List<Update> updates) {
+        final int size = survivedIds.size();
+        final Map<Object, Integer> targetPositions = positionsOf(targetIds);
+
+        final int[] targetPositionsOfSurvivedIds = new int[size];
+        final int[] survivedPositionsOfTargetIds = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            //noinspection ConstantConditions ids are unique and same in both lists
+            final int targetPosition = targetPositions.get(survivedIds.get(i));
+            targetPositionsOfSurvivedIds[i] = targetPosition;
+            survivedPositionsOfTargetIds[targetPosition] = i;
+        }
+
+        final boolean[] stableTargetPositions = new boolean[size];
+
+        for (int position : longestIncreasingSubsequence(targetPositionsOfSurvivedIds)) {
+            stableTargetPositions[position] = true;
+        }
+
+        // keys by target position, base -1 is start of the list
+        final int[] bases = new int[size];
+        final int[] offsets = new int[size];
+
+        // max offset of keys with same base, indexed by base + 1
+        final int[] maxOffsets = new int[size + 1];
+
+        for (int targetPosition = 0; targetPosition < size; targetPosition++) {
+            if (stableTargetPositions[targetPosition]) {
+                bases[targetPosition] = survivedPositionsOfTargetIds[targetPosition];
+            } else {
+                bases[targetPosition] = targetPosition == 0 ? -1 : bases[targetPosition - 1];
+                offsets[targetPosition] = targetPosition == 0 ? 1 : offsets[targetPosition - 1] + 1;
+                maxOffsets[bases[targetPosition] + 1] = offsets[targetPosition];
+            }
+        }
+
+        // sorted keys: key with offset 0 of each base goes before keys of items moved after it
+        final int[] firstSlots = new int[size + 1];
+        int slotsCount = 0;
+
+        for (int base = -1; base < size; base++) {
+            firstSlots[base + 1] = slotsCount;
+            slotsCount += (base >= 0 ? 1 : 0) + maxOffsets[base + 1];
+        }
+
+        final FenwickTree presentSlots = new FenwickTree(slotsCount);
+
+        for (int i = 0; i < size; i++) {
+            presentSlots.add(firstSlots[i + 1], 1);
+        }
+
+        for (int targetPosition = 0; targetPosition < size; targetPosition++) {
+            if (stableTargetPositions[targetPosition]) {
+                continue;
+            }
+
+            final int fromSlot = firstSlots[survivedPositionsOfTargetIds[targetPosition] + 1];
+            final int base = bases[targetPosition];
+            final int toSlot = firstSlots[base + 1] + offsets[targetPosition] - (base >= 0 ? 0 : 1);
+
+            final int fromPosition = presentSlots.countBefore(fromSlot);
+            presentSlots.add(fromSlot, -1);
+            presentSlots.add(toSlot, 1);
+            final int toPosition = presentSlots.countBefore(toSlot);
+
+            if (fromPosition != toPosition) {
+                updates.add(Update.newMove(fromPosition, toPosition));
+            }
+        }
+    }
+
+    /**
+     * Binary indexed tree of counts of slots
+     */
+    private static class FenwickTree {
+
+        @NonNull
+        private final int[] tree;
+
+        FenwickTree(int size) {
+            tree = new int[size + 1];
+        }
+
+        void add(int index, int delta) {
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        /**
+         * @return sum of counts of slots with indices less than passed index
+         */
+        int countBefore(int index) {
+            int count = 0;
+
+            for (int i = index; i > 0; i -= i & -i) {
+                count += tree[i];
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * @return values of longest strictly increasing subsequence
+     */
+    @NonNull
+    private static int[] longestIncreasingSubsequence(@NonNull int[] values) {
+        // tailIndices[k] is index of smallest tail of increasing subsequence with length k + 1
+        final int[] tailIndices = new int[values.length];
+        final int[] previousIndices = new int[values.length];
+        int length = 0;
+
+        for (int i = 0; i < values.length; i++) {
+            int low = 0;
+            int high = length;
+
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+
+                if (values[tailIndices[middle]] < values[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            previousIndices[i] = low > 0 ? tailIndices[low - 1] : -1;
+            tailIndices[low] = i;
+
+            if (low == length) {
+                length++;
+            }
+        }
+
+        final int[] subsequence = new int[length];
+
+        for (int i = length - 1, index = length > 0 ? tailIndices[length - 1] : -1; i >= 0; i--) {
+            subsequence[i] = values[index];
+            index = previousIndices[index];
+        }
+
+        return subsequence;
+    }
+
+    @NonNull
+    private static <T> ListDiff<T> reload(@NonNull List<T> previousList, @NonNull List<T> list) {
+        final List<Update> updates = new ArrayList<Update>(2);
+
+        if (!previousList.isEmpty()) {
+            updates.add(Update.newRange(Update.Type.REMOVE, 0, previousList.size()));
+        }
+
+        if (!list.isEmpty()) {
+            updates.add(Update.newRange(Update.Type.INSERT, 0, list.size()));
+        }
+
+        return new ListDiff<T>(list, updates);
+    }
+
+    @NonNull
+    private static <T> List<Object> mapToIds(@NonNull List<T> list, @NonNull MapFunc<T, ?> idFunc) {
+        final List<Object> ids = new ArrayList<Object>(list.size());
+
+        for (T item : list) {
+            ids.add(idFunc.map(item));
+        }
+
+        return ids;
+    }
+
+    /**
+     * @return map of pairs (id, position) or {@code null} if ids are not unique
+     */
+    @Nullable
+    private static Map<Object, Integer> positionsOf(@NonNull List<Object> ids) {
+        final Map<Object, Integer> positions = new HashMap<Object, Integer>(ids.size() * 2);
+
+        for (int i = 0; i < ids.size(); i++) {
+            if (positions.put(ids.get(i), i) != null) {
+                return null;
+            }
+        }
+
+        return positions;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    /**
+     * Merges consecutive positions into one range update
+     */
+    private static class RangeCollector {
+
+        @NonNull
+        private final Update.Type type;
+
+        @NonNull
+        private final List<Update> updates;
+
+        private int start = -1;
+
+        private int count;
+
+        RangeCollector(@NonNull Update.Type type, @NonNull List<Update> updates) {
+            this.type = type;
+            this.updates = updates;
+        }
+
+        void addAscending(int position) {
+            if (count > 0 && start + count == position) {
+                count++;
+            } else {
+                flush();
+                start = position;
+                count = 1;
+            }
+        }
+
+        void addDescending(int position) {
+            if (count > 0 && start - 1 == position) {
+                start = position;
+                count++;
+            } else {
+                flush();
+                start = position;
+                count = 1;
+            }
+        }
+
+        void flush() {
+            if (count > 0) {
+                updates.add(Update.newRange(type, start, count));
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * Gets new list
+     *
+     * @return new list
+     */
+    @NonNull
+    public List<T> list() {
+        return list;
+    }
+
+    /**
+     * Gets updates which transform previous list into new list, should be applied in order
+     *
+     * @return immutable list of updates, empty if lists are equal
+     */
+    @NonNull
+    public List<Update> updates() {
+        return updates;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ListDiff<?> listDiff = (ListDiff<?>) o;
+
+        if (!list.equals(listDiff.list)) return false;
+        return updates.equals(listDiff.updates);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = list.hashCode();
+        result = 31 * result + updates.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ListDiff{" +
+                "list=" + list +
+                ", updates=" + updates +
+                '}';
+    }
+
+    /**
+     * Immutable update of range of list
+     */
+    public static final class Update {
+
+        /**
+         * Type of update
+         */
+        public enum Type {
+            /**
+             * Items were inserted at position
+             */
+            INSERT,
+
+            /**
+             * Items were removed from position
+             */
+            REMOVE,
+
+            /**
+             * One item was moved from position to another position
+             */
+            MOVE,
+
+            /**
+             * Items at position were changed
+             */
+            CHANGE
+        }
+
+        @NonNull
+        private final Type type;
+
+        private final int position;
+
+        private final int count;
+
+        private final int toPosition;
+
+        private Update(@NonNull Type type, int position, int count, int toPosition) {
+            this.type = type;
+            this.position = position;
+            this.count = count;
+            this.toPosition = toPosition;
+        }
+
+        @NonNull
+        static Update newRange(@NonNull Type type, int position, int count) {
+            return new Update(type, position, count, -1);
+        }
+
+        @NonNull
+        static Update newMove(int fromPosition, int toPosition) {
+            return new Update(Type.MOVE, fromPosition, 1, toPosition);
+        }
+
+        /**
+         * Gets type of update
+         *
+         * @return type of update
+         */
+        @NonNull
+        public Type type() {
+            return type;
+        }
+
+        /**
+         * Gets start position of updated range, for {@link Type#MOVE} it's position from which item was moved
+         *
+         * @return start position
+         */
+        public int position() {
+            return position;
+        }
+
+        /**
+         * Gets number of items in updated range, for {@link Type#MOVE} it's always {@code 1}
+         *
+         * @return number of items
+         */
+        public int count() {
+            return count;
+        }
+
+        /**
+         * Gets position to which item was moved, only for {@link Type#MOVE}
+         *
+         * @return position to which item was moved or {@code -1} for other types
+         */
+        public int toPosition() {
+            return toPosition;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Update update = (Update) o;
+
+            if (position != update.position) return false;
+            if (count != update.count) return false;
+            if (toPosition != update.toPosition) return false;
+            return type == update.type;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = type.hashCode();
+            result = 31 * result + position;
+            result = 31 * result + count;
+            result = 31 * result + toPosition;
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Update{" +
+                    "type=" + type +
+                    ", position=" + position +
+                    ", count=" + count +
+                    ", toPosition=" + toPosition +
+                    '}';
+        }
+    }
+}
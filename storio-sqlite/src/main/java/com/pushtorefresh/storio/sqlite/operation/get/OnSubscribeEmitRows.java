@@ -0,0 +1,174 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Observable;
+import rx.Producer;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Emits rows of the query mapped to objects one by one while iterating the {@link Cursor}
+ * <p>
+ * Honors backpressure: next row is read only when subscriber has requested it,
+ * so memory usage does not depend on number of rows.
+ * Cursor is closed after last row, on error or on unsubscribe.
+ * <p>
+ * Separate class is required to avoid problems with ClassLoader when RxJava is not in ClassPath.
+ * <p>
+ * For internal usage only!
+ */
+final class OnSubscribeEmitRows<T> implements Observable.OnSubscribe<T> {
+
+    @NonNull
+    private final PreparedGetListOfObjects<T> preparedGet;
+
+    private OnSubscribeEmitRows(@NonNull PreparedGetListOfObjects<T> preparedGet) {
+        this.preparedGet = preparedGet;
+    }
+
+    /**
+     * Creates new instance of {@link OnSubscribeEmitRows}
+     *
+     * @param preparedGet non-null instance of {@link PreparedGetListOfObjects} which will be used to query and map rows
+     * @param <T>         type of objects
+     * @return new instance of {@link OnSubscribeEmitRows}
+     */
+    @NonNull
+    static <T> Observable.OnSubscribe<T> newInstance(@NonNull PreparedGetListOfObjects<T> preparedGet) {
+        return new OnSubscribeEmitRows<T>(preparedGet);
+    }
+
+    @Override
+    public void call(Subscriber<? super T> subscriber) {
+        final Cursor cursor;
+
+        try {
+            cursor = preparedGet.performGet();
+        } catch (RuntimeException e) {
+            subscriber.onError(e);
+            return;
+        }
+
+        final RowsProducer<T> producer = new RowsProducer<T>(cursor, preparedGet.mapFunc, subscriber);
+
+        subscriber.add(Subscriptions.create(producer));
+        subscriber.setProducer(producer);
+    }
+
+    /**
+     * Reads rows only from one thread at a time (drain loop),
+     * it's also {@link Action0} which closes the cursor on unsubscribe if rows are not being read right now
+     */
+    static final class RowsProducer<T> implements Producer, Action0 {
+
+        @NonNull
+        private final Cursor cursor;
+
+        @NonNull
+        private final MapFunc<Cursor, T> mapFunc;
+
+        @NonNull
+        private final Subscriber<? super T> subscriber;
+
+        @NonNull
+        private final AtomicLong requested = new AtomicLong();
+
+        @NonNull
+        private final AtomicInteger wip = new AtomicInteger();
+
+        RowsProducer(@NonNull Cursor cursor, @NonNull MapFunc<Cursor, T> mapFunc, @NonNull Subscriber<? super T> subscriber) {
+            this.cursor = cursor;
+            this.mapFunc = mapFunc;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                return;
+            }
+
+            for (; ; ) {
+                final long current = requested.get();
+
+                if (current == Long.MAX_VALUE) {
+                    break;
+                }
+
+                long next = current + n;
+
+                if (next < 0) { // overflow
+                    next = Long.MAX_VALUE;
+                }
+
+                if (requested.compareAndSet(current, next)) {
+                    break;
+                }
+            }
+
+            drain();
+        }
+
+        // unsubscribe
+        @Override
+        public void call() {
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                // other thread is reading rows, it will see our request or unsubscribe
+                return;
+            }
+
+            // after terminal event we return without decrementing wip, so drain loop never starts again
+            do {
+                final long requestedCount = requested.get();
+                long emittedCount = 0;
+
+                while (emittedCount != requestedCount) {
+                    if (subscriber.isUnsubscribed()) {
+                        cursor.close();
+                        return;
+                    }
+
+                    if (!cursor.moveToNext()) {
+                        cursor.close();
+                        subscriber.onCompleted();
+                        return;
+                    }
+
+                    final T object;
+
+                    try {
+                        object = mapFunc.map(cursor);
+                    } catch (RuntimeException e) {
+                        cursor.close();
+                        subscriber.onError(e);
+                        return;
+                    }
+
+                    subscriber.onNext(object);
+                    emittedCount++;
+                }
+
+                if (subscriber.isUnsubscribed()) {
+                    cursor.close();
+                    return;
+                }
+
+                if (emittedCount != 0 && requestedCount != Long.MAX_VALUE) {
+                    requested.addAndGet(-emittedCount);
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.pushtorefresh.storio.sqlite.Changes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rx.Observable;
+import rx.Subscriber;
+
+/**
+ * Keeps pages loaded by {@link KeysetPager}, loads next page on request
+ * and re-queries loaded pages on changes of the table: pages bounded by keys with one range query
+ * which result is split into pages by their upper keys, last page with separate query limited by page size
+ * <p>
+ * Separate class is required to avoid problems with ClassLoader when RxJava is not in ClassPath.
+ * <p>
+ * For internal usage only!
+ */
+final class OnSubscribeKeysetPager<T> implements Observable.OnSubscribe<List<T>> {
+
+    @NonNull
+    private final KeysetPager<T> pager;
+
+    @NonNull
+    private final Observable<?> loadNextPageRequests;
+
+    private OnSubscribeKeysetPager(@NonNull KeysetPager<T> pager, @NonNull Observable<?> loadNextPageRequests) {
+        this.pager = pager;
+        this.loadNextPageRequests = loadNextPageRequests;
+    }
+
+    /**
+     * Creates new instance of {@link OnSubscribeKeysetPager}
+     *
+     * @param pager                non-null pager
+     * @param loadNextPageRequests non-null {@link Observable} which emissions are requests to load next page
+     * @param <T>                  type of objects
+     * @return new instance of {@link OnSubscribeKeysetPager}
+     */
+    @NonNull
+    static <T> Observable.OnSubscribe<List<T>> newInstance(@NonNull KeysetPager<T> pager, @NonNull Observable<?> loadNextPageRequests) {
+        return new OnSubscribeKeysetPager<T>(pager, loadNextPageRequests);
+    }
+
+    @Override
+    public void call(Subscriber<? super List<T>> subscriber) {
+        final Pages<T> pages = new Pages<T>(pager, subscriber);
+
+        pages.loadNextPage();
+
+        if (!subscriber.isUnsubscribed()) {
+            subscriber.add(pager.storIOSQLite()
+                    .observeChangesInTable(pager.table())
+                    .subscribe(new ChangesSubscriber<T>(pages)));
+
+            subscriber.add(loadNextPageRequests.subscribe(new LoadNextPageSubscriber<T>(pages)));
+        }
+    }
+
+    static final class Page<T> {
+
+        /**
+         * Exclusive lower bound of keys, {@code null} for first page
+         */
+        @Nullable
+        final Object lowerKey;
+
+        /**
+         * Inclusive upper bound of keys, key of last object at the time when page was loaded
+         */
+        @Nullable
+        Object upperKey;
+
+        @NonNull
+        List<T> objects;
+
+        Page(@Nullable Object lowerKey, @NonNull List<T> objects) {
+            this.lowerKey = lowerKey;
+            this.objects = objects;
+        }
+    }
+
+    static final class Pages<T> {
+
+        @NonNull
+        private final KeysetPager<T> pager;
+
+        @NonNull
+        private final Subscriber<? super List<T>> subscriber;
+
+        @NonNull
+        private final List<Page<T>> pages = new ArrayList<Page<T>>();
+
+        private boolean endReached;
+
+        Pages(@NonNull KeysetPager<T> pager, @NonNull Subscriber<? super List<T>> subscriber) {
+            this.pager = pager;
+            this.subscriber = subscriber;
+        }
+
+        synchronized void loadNextPage() {
+            if (endReached || subscriber.isUnsubscribed()) {
+                return;
+            }
+
+            final Page<T> lastPage = pages.isEmpty() ? null : pages.get(pages.size() - 1);
+            final Object lowerKey = lastPage == null ? null : lastPage.upperKey;
+
+            final Page<T> page = new Page<T>(lowerKey, Collections.<T>emptyList());
+            final boolean changed = reloadLastPage(page);
+
+            if (lastPage == null || !page.objects.isEmpty()) {
+                pages.add(page);
+            }
+
+            if (lastPage == null || changed) {
+                emit();
+            }
+        }
+
+        synchronized void reloadPages() {
+            if (subscriber.isUnsubscribed()) {
+                return;
+            }
+
+            boolean changed = false;
+            final int lastIndex = pages.size() - 1;
+
+            if (lastIndex > 0) {
+                // one query for all pages bounded by keys, rows inserted into this range don't shift following pages
+                final List<T> objects = pager
+                        .prepareGet(pager.pageQuery(pages.get(0).lowerKey, pages.get(lastIndex - 1).upperKey, false))
+                        .executeAsBlocking();
+
+                int from = 0;
+
+                for (int i = 0; i < lastIndex; i++) {
+                    final Page<T> page = pages.get(i);
+                    int to = from;
+
+                    if (i == lastIndex - 1) {
+                        to = objects.size();
+                    } else {
+                        while (to < objects.size() && !pager.isAfter(objects.get(to), page.upperKey)) {
+                            to++;
+                        }
+                    }
+
+                    final List<T> pageObjects = new ArrayList<T>(objects.subList(from, to));
+                    from = to;
+
+                    if (!pageObjects.equals(page.objects)) {
+                        page.objects = pageObjects;
+                        changed = true;
+                    }
+                }
+            }
+
+            if (lastIndex >= 0 && reloadLastPage(pages.get(lastIndex))) {
+                changed = true;
+            }
+
+            if (changed) {
+                emit();
+            }
+        }
+
+        /**
+         * Last page is not bounded from the top, it's limited by page size, so it can receive new rows
+         *
+         * @return true if objects of the page were changed
+         */
+        private boolean reloadLastPage(@NonNull Page<T> page) {
+            final List<T> objects = pager
+                    .prepareGet(pager.pageQuery(page.lowerKey, null, true))
+                    .executeAsBlocking();
+
+            endReached = objects.size() < pager.pageSize();
+            page.upperKey = objects.isEmpty() ? page.lowerKey : pager.keyOf(objects.get(objects.size() - 1));
+
+            if (objects.equals(page.objects)) {
+                return false;
+            } else {
+                page.objects = objects;
+                return true;
+            }
+        }
+
+        private void emit() {
+            if (subscriber.isUnsubscribed()) {
+                return;
+            }
+
+            int size = 0;
+
+            for (Page<T> page : pages) {
+                size += page.objects.size();
+            }
+
+            final List<T> objects = new ArrayList<T>(size);
+
+            for (Page<T> page : pages) {
+                objects.addAll(page.objects);
+            }
+
+            subscriber.onNext(Collections.unmodifiableList(objects));
+        }
+
+        void onError(@NonNull Throwable e) {
+            if (!subscriber.isUnsubscribed()) {
+                subscriber.onError(e);
+            }
+        }
+    }
+
+    static final class ChangesSubscriber<T> extends Subscriber<Changes> {
+
+        @NonNull
+        private final Pages<T> pages;
+
+        ChangesSubscriber(@NonNull Pages<T> pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        public void onNext(Changes changes) {
+            pages.reloadPages();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            pages.onError(e);
+        }
+
+        @Override
+        public void onCompleted() {
+            // no impl
+        }
+    }
+
+    static final class LoadNextPageSubscriber<T> extends Subscriber<Object> {
+
+        @NonNull
+        private final Pages<T> pages;
+
+        LoadNextPageSubscriber(@NonNull Pages<T> pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        public void onNext(Object request) {
+            pages.loadNextPage();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            pages.onError(e);
+        }
+
+        @Override
+        public void onCompleted() {
+            // no impl, loaded pages are still observed
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.pushtorefresh.storio.operation.PreparedOperation;
+import com.pushtorefresh.storio.sqlite.Changes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Emits result of the operation on subscription and after each change of query tables
+ * with latest-wins semantics: at most one query is in flight and at most one is pending,
+ * changes received during the query are collapsed into one re-query and the query in flight
+ * is canceled via {@link QueryCancellation} because its result is already stale.
+ * <p>
+ * Subscription to changes is made before the first query, so changes made during the first query are not missed.
+ * First query is executed on the thread of subscription, next queries are executed on the thread
+ * which delivered change, other threads only mark re-query as pending.
+ * Query which replaces canceled one is not canceled, so continuous changes can not starve the stream.
+ * <p>
+ * Hiding RxJava from ClassLoader via separate class
+ *
+ * @param <T> type of result
+ */
+class OnSubscribeLatestQuery<T> implements Observable.OnSubscribe<T> {
+
+    @NonNull
+    private final Observable<Changes> changes;
+
+    @NonNull
+    private final PreparedOperation<T> preparedOperation;
+
+    private OnSubscribeLatestQuery(@NonNull Observable<Changes> changes, @NonNull PreparedOperation<T> preparedOperation) {
+        this.changes = changes;
+        this.preparedOperation = preparedOperation;
+    }
+
+    /**
+     * Creates new instance of {@link OnSubscribeLatestQuery}
+     *
+     * @param changes           changes of query tables
+     * @param preparedOperation operation which executes the query
+     * @param <T>               type of result
+     * @return new instance of {@link OnSubscribeLatestQuery}
+     */
+    @NonNull
+    static <T> Observable.OnSubscribe<T> newInstance(@NonNull Observable<Changes> changes, @NonNull PreparedOperation<T> preparedOperation) {
+        return new OnSubscribeLatestQuery<T>(changes, preparedOperation);
+    }
+
+    @Override
+    public void call(Subscriber<? super T> child) {
+        final LatestQuerySubscriber parent = new LatestQuerySubscriber(child);
+
+        child.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                parent.cancelQueryInFlight();
+            }
+        }));
+
+        changes.unsafeSubscribe(parent);
+        parent.requestQuery();
+    }
+
+    private class LatestQuerySubscriber extends Subscriber<Changes> {
+
+        @NonNull
+        private final Subscriber<? super T> child;
+
+        /**
+         * Number of requests of query which were not handled yet, non-zero while query is executed
+         */
+        @NonNull
+        private final AtomicInteger pendingRequests = new AtomicInteger();
+
+        @Nullable
+        private volatile QueryCancellation queryInFlight;
+
+        /**
+         * Accessed only by the thread which executes queries
+         */
+        private boolean previousQueryCanceled;
+
+        LatestQuerySubscriber(@NonNull Subscriber<? super T> child) {
+            super(child);
+            this.child = child;
+        }
+
+        @Override
+        public void onNext(Changes changes) {
+            requestQuery();
+        }
+
+        void requestQuery() {
+            if (pendingRequests.getAndIncrement() != 0) {
+                // query in flight (if any) will be repeated, its result would be stale
+                cancelQueryInFlight();
+                return;
+            }
+
+            while (true) {
+                final int handledRequests = pendingRequests.get();
+
+                if (child.isUnsubscribed()) {
+                    return;
+                }
+
+                final QueryCancellation queryCancellation = previousQueryCanceled
+                        ? null
+                        : QueryCancellation.newInstance();
+
+                queryInFlight = queryCancellation;
+
+                final T result;
+
+                try {
+                    result = queryCancellation != null
+                            ? queryCancellation.execute(preparedOperation)
+                            : preparedOperation.executeAsBlocking();
+                } catch (RuntimeException e) {
+                    queryInFlight = null;
+
+                    if (queryCancellation != null && !queryCancellation.complete()) {
+                        previousQueryCanceled = true;
+                        continue;
+                    }
+
+                    // pending requests are never handled, so next changes are ignored
+                    child.onError(e);
+                    return;
+                }
+
+                queryInFlight = null;
+
+                if (queryCancellation != null && !queryCancellation.complete()) {
+                    previousQueryCanceled = true;
+                    close(result);
+                    continue;
+                }
+
+                previousQueryCanceled = false;
+                child.onNext(result);
+
+                if (pendingRequests.addAndGet(-handledRequests) == 0) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            child.onError(e);
+        }
+
+        @Override
+        public void onCompleted() {
+            child.onCompleted();
+        }
+
+        void cancelQueryInFlight() {
+            final QueryCancellation queryCancellation = queryInFlight;
+
+            if (queryCancellation != null) {
+                queryCancellation.cancel();
+            }
+        }
+
+        private void close(@Nullable T droppedResult) {
+            // nobody else will close cursor of dropped result
+            if (droppedResult instanceof Cursor) {
+                ((Cursor) droppedResult).close();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+
+import java.util.Collections;
+import java.util.List;
+
+import rx.Observable;
+import rx.Subscriber;
+
+/**
+ * Converts stream of lists into stream of {@link ListDiff}, each diff is calculated
+ * against previous list received by the same subscriber, first diff inserts all items
+ * <p>
+ * Hiding RxJava from ClassLoader via separate class
+ *
+ * @param <T> type of items
+ */
+class OperatorListDiff<T> implements Observable.Operator<ListDiff<T>, List<T>> {
+
+    @NonNull
+    private final MapFunc<T, ?> idFunc;
+
+    private OperatorListDiff(@NonNull MapFunc<T, ?> idFunc) {
+        this.idFunc = idFunc;
+    }
+
+    /**
+     * Creates new instance of {@link OperatorListDiff}
+     *
+     * @param idFunc function which returns id of item
+     * @param <T>    type of items
+     * @return new instance of {@link OperatorListDiff}
+     */
+    @NonNull
+    static <T> Observable.Operator<ListDiff<T>, List<T>> newInstance(@NonNull MapFunc<T, ?> idFunc) {
+        return new OperatorListDiff<T>(idFunc);
+    }
+
+    @Override
+    public Subscriber<? super List<T>> call(final Subscriber<? super ListDiff<T>> child) {
+        return new Subscriber<List<T>>(child) {
+
+            @NonNull
+            private List<T> previousList = Collections.emptyList();
+
+            @Override
+            public void onNext(List<T> list) {
+                final ListDiff<T> listDiff;
+
+                try {
+                    listDiff = ListDiff.calculate(previousList, list, idFunc);
+                } catch (RuntimeException e) {
+                    onError(e);
+                    return;
+                }
+
+                previousList = list;
+                child.onNext(listDiff);
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                child.onError(e);
+            }
+
+            @Override
+            public void onCompleted() {
+                child.onCompleted();
+            }
+        };
+    }
+}
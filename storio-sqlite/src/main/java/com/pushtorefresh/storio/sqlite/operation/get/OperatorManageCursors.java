@@ -0,0 +1,267 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.pushtorefresh.storio.Loggi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.SerialSubscription;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Manages lifecycle of cursors emitted by stream: previous cursor is closed after next one was delivered
+ * to subscriber and last cursor is closed on unsubscribe.
+ * <p>
+ * If scheduler is specified, cursors are delivered on its worker and previous cursor is closed there,
+ * so subscriber on that scheduler (for example, main thread) never sees closed cursor.
+ * Cursors received after unsubscribe and cursors which were not delivered before unsubscribe are closed too.
+ * If warning threshold is specified, cursor which stays open longer is reported via {@link Loggi},
+ * usually it means that subscription to the stream leaked.
+ * <p>
+ * Hiding RxJava from ClassLoader via separate class
+ */
+class OperatorManageCursors implements Observable.Operator<Cursor, Cursor> {
+
+    @NonNull
+    private final Loggi loggi;
+
+    @NonNull
+    private final Object query;
+
+    @Nullable
+    private final Scheduler scheduler;
+
+    private final long openCursorWarningMillis;
+
+    private OperatorManageCursors(@NonNull Loggi loggi,
+                                  @NonNull Object query,
+                                  @Nullable Scheduler scheduler,
+                                  long openCursorWarningMillis) {
+        this.loggi = loggi;
+        this.query = query;
+        this.scheduler = scheduler;
+        this.openCursorWarningMillis = openCursorWarningMillis;
+    }
+
+    /**
+     * Creates new instance of {@link OperatorManageCursors}
+     *
+     * @param loggi                   log for warnings about cursors which are open too long
+     * @param query                   query of cursors, used in warnings
+     * @param scheduler               scheduler for delivery of cursors or {@code null} if they should be delivered
+     *                                on the emitting thread
+     * @param openCursorWarningMillis cursor which is open longer is reported, <code>0</code> disables warnings
+     * @return new instance of {@link OperatorManageCursors}
+     */
+    @NonNull
+    static Observable.Operator<Cursor, Cursor> newInstance(@NonNull Loggi loggi,
+                                                           @NonNull Object query,
+                                                           @Nullable Scheduler scheduler,
+                                                           long openCursorWarningMillis) {
+        return new OperatorManageCursors(loggi, query, scheduler, openCursorWarningMillis);
+    }
+
+    @Override
+    public Subscriber<? super Cursor> call(final Subscriber<? super Cursor> child) {
+        final Scheduler.Worker worker;
+
+        if (scheduler != null) {
+            worker = scheduler.createWorker();
+        } else if (openCursorWarningMillis > 0) {
+            worker = Schedulers.computation().createWorker();
+        } else {
+            worker = null;
+        }
+
+        final CursorHolder cursorHolder = new CursorHolder(child, worker);
+
+        if (worker != null) {
+            child.add(worker);
+        }
+
+        child.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                cursorHolder.closeCurrent();
+            }
+        }));
+
+        return new Subscriber<Cursor>(child) {
+            @Override
+            public void onNext(final Cursor cursor) {
+                if (!cursorHolder.offer(cursor)) {
+                    return;
+                }
+
+                if (scheduler == null) {
+                    cursorHolder.deliver(cursor);
+                    return;
+                }
+
+                // if worker does not execute action because of unsubscribe, holder closes the cursor
+                worker.schedule(new Action0() {
+                    @Override
+                    public void call() {
+                        cursorHolder.deliver(cursor);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(final Throwable e) {
+                if (scheduler == null) {
+                    child.onError(e);
+                    return;
+                }
+
+                worker.schedule(new Action0() {
+                    @Override
+                    public void call() {
+                        child.onError(e);
+                    }
+                });
+            }
+
+            @Override
+            public void onCompleted() {
+                if (scheduler == null) {
+                    child.onCompleted();
+                    return;
+                }
+
+                worker.schedule(new Action0() {
+                    @Override
+                    public void call() {
+                        child.onCompleted();
+                    }
+                });
+            }
+        };
+    }
+
+    private class CursorHolder {
+
+        @NonNull
+        private final Subscriber<? super Cursor> child;
+
+        @Nullable
+        private final Scheduler.Worker worker;
+
+        @NonNull
+        private final Object lock = new Object();
+
+        /**
+         * Cursors which were received from the stream but were not delivered yet
+         */
+        @NonNull
+        private final List<Cursor> pending = new ArrayList<Cursor>(2);
+
+        @Nullable
+        private Cursor current;
+
+        private boolean unsubscribed;
+
+        @NonNull
+        private final SerialSubscription warning = new SerialSubscription();
+
+        CursorHolder(@NonNull Subscriber<? super Cursor> child, @Nullable Scheduler.Worker worker) {
+            this.child = child;
+            this.worker = worker;
+        }
+
+        /**
+         * @return {@code true} if cursor should be delivered, {@code false} if it was closed because of unsubscribe
+         */
+        boolean offer(@NonNull Cursor cursor) {
+            synchronized (lock) {
+                if (!unsubscribed) {
+                    pending.add(cursor);
+                    return true;
+                }
+            }
+
+            cursor.close();
+            return false;
+        }
+
+        // called serially
+        void deliver(@NonNull Cursor cursor) {
+            final Cursor previous;
+
+            synchronized (lock) {
+                // cursor was closed by unsubscribe
+                if (!pending.remove(cursor)) {
+                    return;
+                }
+
+                previous = current;
+                current = cursor;
+            }
+
+            child.onNext(cursor);
+
+            if (previous != null) {
+                previous.close();
+            }
+
+            if (openCursorWarningMillis > 0 && worker != null && !child.isUnsubscribed()) {
+                warning.set(worker.schedule(new WarningAction(cursor), openCursorWarningMillis, TimeUnit.MILLISECONDS));
+            }
+        }
+
+        void closeCurrent() {
+            final List<Cursor> cursors;
+
+            synchronized (lock) {
+                unsubscribed = true;
+                cursors = new ArrayList<Cursor>(pending.size() + 1);
+
+                if (current != null) {
+                    cursors.add(current);
+                    current = null;
+                }
+
+                cursors.addAll(pending);
+                pending.clear();
+            }
+
+            for (Cursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+
+        private class WarningAction implements Action0 {
+
+            @NonNull
+            private final Cursor cursor;
+
+            WarningAction(@NonNull Cursor cursor) {
+                this.cursor = cursor;
+            }
+
+            @Override
+            public void call() {
+                final boolean isCurrent;
+
+                synchronized (lock) {
+                    isCurrent = current == cursor;
+                }
+
+                if (isCurrent && !cursor.isClosed()) {
+                    loggi.w("Cursor of " + query + " is open for more than " + openCursorWarningMillis
+                            + " ms, please unsubscribe from the stream when you don't need the cursor");
+                }
+            }
+        }
+    }
+}
@@ -54,6 +54,11 @@ public abstract class PreparedGet<T> implements PreparedOperationWithReactiveStr
         public <T> PreparedGetListOfObjects.Builder<T> listOfObjects(@NonNull Class<T> type) {
             return new PreparedGetListOfObjects.Builder<T>(storIOSQLite, type);
         }
+
+        @NonNull
+        public <T> KeysetPager.Builder<T> pagesOfObjects(@NonNull Class<T> type) {
+            return new KeysetPager.Builder<T>(storIOSQLite, type);
+        }
     }
 
 }
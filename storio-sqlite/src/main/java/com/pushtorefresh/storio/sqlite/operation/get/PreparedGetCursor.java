@@ -2,28 +2,62 @@ package com.pushtorefresh.storio.sqlite.operation.get;
 
 import android.database.Cursor;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.pushtorefresh.storio.operation.PreparedOperationWithReactiveStream;
-import com.pushtorefresh.storio.operation.internal.MapSomethingToExecuteAsBlocking;
 import com.pushtorefresh.storio.operation.internal.OnSubscribeExecuteAsBlocking;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.sqlite.query.Query;
 import com.pushtorefresh.storio.sqlite.query.RawQuery;
+import com.pushtorefresh.storio.sqlite.query.SqlTables;
 import com.pushtorefresh.storio.util.EnvironmentUtil;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import rx.Observable;
+import rx.Scheduler;
 
 public class PreparedGetCursor extends PreparedGet<Cursor> {
 
+    private final boolean manageCursors;
+
+    @Nullable
+    private final Scheduler cursorsScheduler;
+
+    private final long openCursorWarningMillis;
+
     PreparedGetCursor(@NonNull StorIOSQLite storIOSQLite, @NonNull Query query, @NonNull GetResolver getResolver) {
-        super(storIOSQLite, query, getResolver);
+        this(storIOSQLite, query, getResolver, false, null, 0);
     }
 
     PreparedGetCursor(@NonNull StorIOSQLite storIOSQLite, @NonNull RawQuery rawQuery, @NonNull GetResolver getResolver) {
+        this(storIOSQLite, rawQuery, getResolver, false, null, 0);
+    }
+
+    PreparedGetCursor(@NonNull StorIOSQLite storIOSQLite,
+                      @NonNull Query query,
+                      @NonNull GetResolver getResolver,
+                      boolean manageCursors,
+                      @Nullable Scheduler cursorsScheduler,
+                      long openCursorWarningMillis) {
+        super(storIOSQLite, query, getResolver);
+        this.manageCursors = manageCursors;
+        this.cursorsScheduler = cursorsScheduler;
+        this.openCursorWarningMillis = openCursorWarningMillis;
+    }
+
+    PreparedGetCursor(@NonNull StorIOSQLite storIOSQLite,
+                      @NonNull RawQuery rawQuery,
+                      @NonNull GetResolver getResolver,
+                      boolean manageCursors,
+                      @Nullable Scheduler cursorsScheduler,
+                      long openCursorWarningMillis) {
         super(storIOSQLite, rawQuery, getResolver);
+        this.manageCursors = manageCursors;
+        this.cursorsScheduler = cursorsScheduler;
+        this.openCursorWarningMillis = openCursorWarningMillis;
     }
 
     /**
@@ -58,8 +92,15 @@ public class PreparedGetCursor extends PreparedGet<Cursor> {
      * Creates an {@link Observable} which will be subscribed to changes of query tables
      * and will emit result each time change occurs
      * <p/>
-     * First result will be emitted immediately after subscription,
+     * First result will be emitted on subscription, query is executed on
+     * {@link StorIOSQLite.Internal#defaultScheduler()} if it's specified,
      * other emissions will occur only if changes of query tables will occur
+     * <p/>
+     * Changes which occur during re-query are collapsed into one re-query and the query in flight is canceled
+     * (via {@link android.os.CancellationSignal} on API 16+), so stream emits only latest result
+     * <p/>
+     * Emitted cursors should be closed by subscriber unless the operation was prepared
+     * with {@link CompleteBuilder#manageCursors(Scheduler)}
      *
      * @return non-null {@link Observable} which will emit {@link Cursor} and will be subscribed to changes of query tables
      */
@@ -74,19 +115,41 @@ public class PreparedGetCursor extends PreparedGet<Cursor> {
             tables = new HashSet<String>(1);
             tables.add(query.table);
         } else if (rawQuery != null) {
-            tables = rawQuery.affectedTables;
+            tables = rawQuery.affectedTables != null
+                    ? rawQuery.affectedTables
+                    : SqlTables.readTablesOf(rawQuery.query);
         } else {
             throw new IllegalStateException("Please specify query");
         }
 
+        Observable<Cursor> queryStream;
+
         if (tables != null && !tables.isEmpty()) {
-            return storIOSQLite
-                    .observeChangesInTables(tables) // each change triggers executeAsBlocking
-                    .map(MapSomethingToExecuteAsBlocking.newInstance(this))
-                    .startWith(executeAsBlocking()); // start stream with first query result
+            // first query is executed on subscription, changes trigger executeAsBlocking, stale queries are canceled
+            queryStream = Observable.create(OnSubscribeLatestQuery.newInstance(
+                    storIOSQLite.observeChangesInTables(tables),
+                    this
+            ));
         } else {
-            return createObservable();
+            queryStream = createObservable();
+        }
+
+        final Scheduler defaultScheduler = storIOSQLite.internal().defaultScheduler();
+
+        if (defaultScheduler != null) {
+            queryStream = queryStream.subscribeOn(defaultScheduler);
+        }
+
+        if (manageCursors) {
+            queryStream = queryStream.lift(OperatorManageCursors.newInstance(
+                    storIOSQLite.internal().getLoggi(),
+                    query != null ? query : rawQuery,
+                    cursorsScheduler,
+                    openCursorWarningMillis
+            ));
         }
+
+        return queryStream;
     }
 
     interface CommonBuilder<T> {
@@ -102,6 +165,44 @@ public class PreparedGetCursor extends PreparedGet<Cursor> {
          */
         @NonNull
         T withGetResolver(@NonNull GetResolver getResolver);
+
+        /**
+         * Optional: Makes {@link PreparedOperationWithReactiveStream#createObservableStream()} manage
+         * lifecycle of emitted cursors: previous cursor is closed after next one was delivered to subscriber
+         * and last cursor is closed on unsubscribe, so subscriber should not close cursors
+         * and should not use previous cursor after receiving next one.
+         * <p>
+         * Please use scheduler parameter instead of {@code observeOn()}, otherwise previous cursor
+         * can be closed before next one reaches subscriber.
+         * <p>
+         * By default subscriber of stream should close emitted cursors
+         *
+         * @param scheduler scheduler for delivery of cursors (for example, main thread)
+         *                  or {@code null} if they should be delivered on the thread of query
+         * @return builder
+         */
+        @NonNull
+        T manageCursors(@Nullable Scheduler scheduler);
+
+        /**
+         * Optional: Makes {@link PreparedOperationWithReactiveStream#createObservableStream()} manage
+         * lifecycle of emitted cursors
+         * <p>
+         * Same as {@link #manageCursors(Scheduler)} but cursor which is open longer than passed threshold
+         * is reported via {@link com.pushtorefresh.storio.Loggi}, it helps to find leaked subscriptions.
+         * Current cursor of active subscription is reported too, so threshold should be longer
+         * than expected lifetime of subscription (for example, of the screen).
+         * <p>
+         * By default warnings are disabled
+         *
+         * @param scheduler         scheduler for delivery of cursors or {@code null} if they should be delivered
+         *                          on the thread of query
+         * @param openCursorWarning cursor which is open longer is reported, should be >= 0, <code>0</code> disables warnings
+         * @param unit              time unit of threshold
+         * @return builder
+         */
+        @NonNull
+        T manageCursors(@Nullable Scheduler scheduler, long openCursorWarning, @NonNull TimeUnit unit);
     }
 
     /**
@@ -118,6 +219,9 @@ public class PreparedGetCursor extends PreparedGet<Cursor> {
         private Query query;
         private RawQuery rawQuery;
         private GetResolver getResolver;
+        private boolean manageCursors;
+        private Scheduler cursorsScheduler;
+        private long openCursorWarningMillis;
 
         Builder(@NonNull StorIOSQLite storIOSQLite) {
             this.storIOSQLite = storIOSQLite;
@@ -155,6 +259,25 @@ public class PreparedGetCursor extends PreparedGet<Cursor> {
             return this;
         }
 
+        @Override
+        @NonNull
+        public Builder manageCursors(@Nullable Scheduler scheduler) {
+            return manageCursors(scheduler, 0, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        @NonNull
+        public Builder manageCursors(@Nullable Scheduler scheduler, long openCursorWarning, @NonNull TimeUnit unit) {
+            if (openCursorWarning < 0) {
+                throw new IllegalArgumentException("Open cursor warning threshold should be >= 0, but was " + openCursorWarning);
+            }
+
+            manageCursors = true;
+            cursorsScheduler = scheduler;
+            openCursorWarningMillis = unit.toMillis(openCursorWarning);
+            return this;
+        }
+
         /**
          * Hidden method for prepares Get Operation
          *
@@ -167,9 +290,9 @@ public class PreparedGetCursor extends PreparedGet<Cursor> {
             }
 
             if (query != null) {
-                return new PreparedGetCursor(storIOSQLite, query, getResolver);
+                return new PreparedGetCursor(storIOSQLite, query, getResolver, manageCursors, cursorsScheduler, openCursorWarningMillis);
             } else if (rawQuery != null) {
-                return new PreparedGetCursor(storIOSQLite, rawQuery, getResolver);
+                return new PreparedGetCursor(storIOSQLite, rawQuery, getResolver, manageCursors, cursorsScheduler, openCursorWarningMillis);
             } else {
                 throw new IllegalStateException("Please specify query");
             }
@@ -194,6 +317,20 @@ public class PreparedGetCursor extends PreparedGet<Cursor> {
             return this;
         }
 
+        @Override
+        @NonNull
+        public CompleteBuilder manageCursors(@Nullable Scheduler scheduler) {
+            incompleteBuilder.manageCursors(scheduler);
+            return this;
+        }
+
+        @Override
+        @NonNull
+        public CompleteBuilder manageCursors(@Nullable Scheduler scheduler, long openCursorWarning, @NonNull TimeUnit unit) {
+            incompleteBuilder.manageCursors(scheduler, openCursorWarning, unit);
+            return this;
+        }
+
         /**
          * Prepares Get Operation
          *
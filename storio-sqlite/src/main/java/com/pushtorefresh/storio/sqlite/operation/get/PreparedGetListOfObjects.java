@@ -2,22 +2,28 @@ package com.pushtorefresh.storio.sqlite.operation.get;
 
 import android.database.Cursor;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.pushtorefresh.storio.operation.MapFunc;
 import com.pushtorefresh.storio.operation.PreparedOperationWithReactiveStream;
-import com.pushtorefresh.storio.operation.internal.MapSomethingToExecuteAsBlocking;
 import com.pushtorefresh.storio.operation.internal.OnSubscribeExecuteAsBlocking;
+import com.pushtorefresh.storio.sqlite.Changes;
+import com.pushtorefresh.storio.sqlite.QueryCache;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.sqlite.query.Query;
 import com.pushtorefresh.storio.sqlite.query.RawQuery;
+import com.pushtorefresh.storio.sqlite.query.SqlTables;
 import com.pushtorefresh.storio.util.EnvironmentUtil;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import rx.Observable;
+import rx.Scheduler;
 
 import static com.pushtorefresh.storio.util.Checks.checkNotNull;
 
@@ -30,36 +36,65 @@ import static com.pushtorefresh.storio.util.Checks.checkNotNull;
 public class PreparedGetListOfObjects<T> extends PreparedGet<List<T>> {
 
     @NonNull
-    private final MapFunc<Cursor, T> mapFunc;
+    final MapFunc<Cursor, T> mapFunc;
 
-    PreparedGetListOfObjects(@NonNull StorIOSQLite storIOSQLite, @NonNull Query query, @NonNull GetResolver getResolver, @NonNull MapFunc<Cursor, T> mapFunc) {
+    private final boolean shareStream;
+
+    PreparedGetListOfObjects(@NonNull StorIOSQLite storIOSQLite, @NonNull Query query, @NonNull GetResolver getResolver, @NonNull MapFunc<Cursor, T> mapFunc, boolean shareStream) {
         super(storIOSQLite, query, getResolver);
         this.mapFunc = mapFunc;
+        this.shareStream = shareStream;
     }
 
-    PreparedGetListOfObjects(@NonNull StorIOSQLite storIOSQLite, @NonNull RawQuery rawQuery, @NonNull GetResolver getResolver, @NonNull MapFunc<Cursor, T> mapFunc) {
+    PreparedGetListOfObjects(@NonNull StorIOSQLite storIOSQLite, @NonNull RawQuery rawQuery, @NonNull GetResolver getResolver, @NonNull MapFunc<Cursor, T> mapFunc, boolean shareStream) {
         super(storIOSQLite, rawQuery, getResolver);
         this.mapFunc = mapFunc;
+        this.shareStream = shareStream;
     }
 
     /**
      * Executes Prepared Operation immediately in current thread
+     * <p>
+     * If {@link StorIOSQLite} has {@link QueryCache}, cached result will be returned
+     * until one of query tables is changed, objects of cached result are shared between callers.
+     * Results of queries with subqueries in columns, where or having clause are not cached,
+     * because changes of tables read by subquery would not invalidate them. Results of raw queries
+     * are cached only if their tables are specified via {@link RawQuery.CompleteBuilder#affectedTables(String...)}.
      *
      * @return non-null list with mapped results, can be empty
      */
-    @SuppressWarnings("TryFinallyCanBeTryWithResources") // Min SDK :(
     @NonNull
     public List<T> executeAsBlocking() {
-        final Cursor cursor;
+        final QueryCache queryCache = storIOSQLite.internal().queryCache();
 
-        if (query != null) {
-            cursor = getResolver.performGet(storIOSQLite, query);
-        } else if (rawQuery != null) {
-            cursor = getResolver.performGet(storIOSQLite, rawQuery);
-        } else {
-            throw new IllegalStateException("Please specify query");
+        if (queryCache == null) {
+            return executeQuery(null, null);
         }
 
+        final Set<String> tables = cacheTables();
+
+        // without tables we can not invalidate the result
+        if (tables == null || tables.isEmpty()) {
+            return executeQuery(null, null);
+        }
+
+        final Object resultKey = resultKey();
+        final List<T> cachedList = queryCache.get(resultKey);
+
+        if (cachedList != null) {
+            // caller can modify returned list
+            return new ArrayList<T>(cachedList);
+        }
+
+        final long cacheVersion = queryCache.version();
+        return executeQuery(queryCache, new CacheTarget(resultKey, tables, cacheVersion));
+    }
+
+    @SuppressWarnings("TryFinallyCanBeTryWithResources") // Min SDK :(
+    @NonNull
+    private List<T> executeQuery(@Nullable QueryCache queryCache, @Nullable CacheTarget cacheTarget) {
+        final Cursor cursor = performGet();
+
         try {
             final List<T> list = new ArrayList<T>(cursor.getCount());
 
@@ -67,12 +102,151 @@ public class PreparedGetListOfObjects<T> extends PreparedGet<List<T>> {
                 list.add(mapFunc.map(cursor));
             }
 
+            if (queryCache != null && cacheTarget != null) {
+                final long estimatedSizeInBytes = (long) list.size()
+                        * cursor.getColumnCount()
+                        * QueryCache.ESTIMATED_VALUE_SIZE_IN_BYTES;
+
+                queryCache.put(
+                        cacheTarget.resultKey,
+                        cacheTarget.tables,
+                        new ArrayList<T>(list),
+                        estimatedSizeInBytes,
+                        cacheTarget.cacheVersion
+                );
+            }
+
             return list;
         } finally {
             cursor.close();
         }
     }
 
+    private static class CacheTarget {
+
+        @NonNull
+        final Object resultKey;
+
+        @NonNull
+        final Set<String> tables;
+
+        final long cacheVersion;
+
+        CacheTarget(@NonNull Object resultKey, @NonNull Set<String> tables, long cacheVersion) {
+            this.resultKey = resultKey;
+            this.tables = tables;
+            this.cacheVersion = cacheVersion;
+        }
+    }
+
+    /**
+     * @return tables of the query, if they are not specified for raw query they are parsed from it,
+     * can be {@code null} or empty if raw query can not be parsed or does not read tables
+     */
+    @Nullable
+    Set<String> queryTables() {
+        if (query != null) {
+            return Collections.singleton(query.table);
+        } else if (rawQuery != null) {
+            return rawQuery.affectedTables != null
+                    ? rawQuery.affectedTables
+                    : SqlTables.readTablesOf(rawQuery.query);
+        } else {
+            throw new IllegalStateException("Please specify query");
+        }
+    }
+
+    /**
+     * @return tables which changes invalidate cached result, {@code null} if result should not be cached
+     */
+    @Nullable
+    Set<String> cacheTables() {
+        if (rawQuery != null && rawQuery.affectedTables == null) {
+            // parsed tables can miss tables of views and triggers, so cached result could become stale
+            return null;
+        }
+
+        if (query != null) {
+            // subquery can read other tables, changes of them would not invalidate cached result
+            if (containsSelect(query.where) || containsSelect(query.having)) {
+                return null;
+            }
+
+            if (query.columns != null) {
+                for (String column : query.columns) {
+                    if (containsSelect(column)) {
+                        return null;
+                    }
+                }
+            }
+        }
+
+        return queryTables();
+    }
+
+    private static boolean containsSelect(@Nullable String sql) {
+        return sql != null && sql.toUpperCase(Locale.US).contains("SELECT");
+    }
+
+    /**
+     * @return key of results of this operation, equal queries with same map function and resolver produce equal results
+     */
+    @NonNull
+    Object resultKey() {
+        return Arrays.asList(
+                query != null ? query : rawQuery,
+                mapFunc,
+                getResolver
+        );
+    }
+
+    /**
+     * Executes Prepared Operation immediately in current thread
+     * and returns list which maps rows lazily with {@link LazyList#DEFAULT_OBJECT_CACHE_SIZE}
+     * <p>
+     * Unlike {@link #executeAsBlocking()} it does not map all rows up front,
+     * which is useful for big results that are shown partially, for example in RecyclerView.
+     * Please call {@link LazyList#close()} when you don't need the list anymore, it will close the cursor.
+     *
+     * @return non-null lazy list with results, can be empty
+     */
+    @NonNull
+    public LazyList<T> executeAsLazyList() {
+        return executeAsLazyList(LazyList.DEFAULT_OBJECT_CACHE_SIZE);
+    }
+
+    /**
+     * Executes Prepared Operation immediately in current thread
+     * and returns list which maps rows lazily
+     * <p>
+     * Please call {@link LazyList#close()} when you don't need the list anymore, it will close the cursor.
+     *
+     * @param objectCacheSize max number of mapped objects kept in memory by the list, should be > 0
+     * @return non-null lazy list with results, can be empty
+     */
+    @NonNull
+    public LazyList<T> executeAsLazyList(int objectCacheSize) {
+        final Cursor cursor = performGet();
+
+        try {
+            return new LazyList<T>(cursor, mapFunc, objectCacheSize);
+        } catch (RuntimeException e) {
+            cursor.close();
+            throw e;
+        }
+    }
+
+    @NonNull
+    Cursor performGet() {
+        if (query != null) {
+            return getResolver.performGet(storIOSQLite, query);
+        } else if (rawQuery != null) {
+            return getResolver.performGet(storIOSQLite, rawQuery);
+        } else {
+            throw new IllegalStateException("Please specify query");
+        }
+    }
+
     /**
      * Creates an {@link Observable} which will emit result of operation
      *
@@ -84,40 +258,108 @@ public class PreparedGetListOfObjects<T> extends PreparedGet<List<T>> {
         return Observable.create(OnSubscribeExecuteAsBlocking.newInstance(this));
     }
 
+    /**
+     * Creates an {@link Observable} which will emit mapped objects one by one while iterating the cursor
+     * <p>
+     * Query is executed on subscribe, rows are read and mapped only when subscriber requests them
+     * (RxJava backpressure), so you can process millions of rows in constant memory.
+     * Cursor is closed after last row, on error or on unsubscribe.
+     *
+     * @return non-null {@link Observable} which will emit mapped objects and complete after last row
+     */
+    @NonNull
+    public Observable<T> createObservableOfRows() {
+        EnvironmentUtil.throwExceptionIfRxJavaIsNotAvailable("createObservableOfRows()");
+        return Observable.create(OnSubscribeEmitRows.newInstance(this));
+    }
+
     /**
      * Creates an {@link Observable} which will be subscribed to changes of query tables
      * and will emit result each time change occurs
      * <p/>
-     * First result will be emitted immediately,
+     * First result will be emitted on subscription, query is executed on
+     * {@link StorIOSQLite.Internal#defaultScheduler()} if it's specified,
      * other emissions will occur only if changes of query tables will occur
+     * <p/>
+     * Changes which occur during re-query are collapsed into one re-query and the query in flight is canceled
+     * (via {@link android.os.CancellationSignal} on API 16+), so stream emits only latest result
+     * <p/>
+     * If operation was prepared with {@link CompleteBuilder#shareStream()}, streams of equal queries
+     * with same map function and {@link GetResolver} can be shared by {@link StorIOSQLite}
+     * (see {@link StorIOSQLite.Internal#shareQueryStream(Object, Observable)}), see the builder for details.
+     * <p/>
+     * If map function is {@link IdentityMapFunc}, stream passes changes of query tables to
+     * {@link IdentityMapFunc#onChanges(Changes)} before each re-query.
      *
-     * @return non-null {@link Observable} which will emit non-null list with mapped results and will be subscribed to changes of query tables
+     * @return non-null {@link Observable} which will emit non-null list with mapped results
+     * and will be subscribed to changes of query tables
      */
     @NonNull
     @Override
     public Observable<List<T>> createObservableStream() {
         EnvironmentUtil.throwExceptionIfRxJavaIsNotAvailable("createObservableStream()");
 
-        final Set<String> tables;
+        final Set<String> tables = queryTables();
 
-        if (query != null) {
-            tables = Collections.singleton(query.table);
-        } else if (rawQuery != null) {
-            tables = rawQuery.affectedTables;
-        } else {
-            throw new IllegalStateException("Please specify query");
-        }
+        final Scheduler defaultScheduler = storIOSQLite.internal().defaultScheduler();
 
         if (tables != null && !tables.isEmpty()) {
-            return storIOSQLite
-                    .observeChangesInTables(tables) // each change triggers executeAsBlocking
-                    .map(MapSomethingToExecuteAsBlocking.newInstance(this))
-                    .startWith(executeAsBlocking()); // start stream with first query result
+            // first query is executed on subscription, changes trigger executeAsBlocking, stale queries are canceled
+            Observable<Changes> changes = storIOSQLite.observeChangesInTables(tables);
+
+            if (mapFunc instanceof IdentityMapFunc) {
+                // entries of changed rows should be removed before re-query
+                changes = changes.doOnNext(IdentityMapFuncChangesAction.newInstance((IdentityMapFunc<?>) mapFunc));
+            }
+
+            Observable<List<T>> queryStream = Observable
+                    .create(OnSubscribeLatestQuery.newInstance(changes, this));
+
+            if (shareStream) {
+                // one result can be delivered to several subscribers
+                queryStream = queryStream.map(UnmodifiableListFunc.<T>instance());
+            }
+
+            if (defaultScheduler != null) {
+                queryStream = queryStream.subscribeOn(defaultScheduler);
+            }
+
+            return shareStream
+                    ? storIOSQLite.internal().shareQueryStream(resultKey(), queryStream)
+                    : queryStream;
         } else {
-            return createObservable();
+            final Observable<List<T>> observable = createObservable();
+
+            return defaultScheduler != null
+                    ? observable.subscribeOn(defaultScheduler)
+                    : observable;
         }
     }
 
+    /**
+     * Creates an {@link Observable} which will be subscribed to changes of query tables
+     * and will emit new result together with updates which transform previous result into it
+     * <p/>
+     * Diff is calculated on the thread which executes the query (thread of the change or
+     * scheduler of {@code subscribeOn()}), so subscriber on main thread only applies updates,
+     * for example via {@code notifyItemRangeInserted()} and other methods of RecyclerView.Adapter.
+     * First emission contains insertion of all items.
+     * <p/>
+     * Items are matched by ids, item with same id is changed if it's not equal to the previous one,
+     * {@link IdentityMapFunc} makes comparison of unchanged items cheap.
+     *
+     * @param idFunc function which returns id of item, ids should implement equals() and hashCode()
+     * @return non-null {@link Observable} which will emit {@link ListDiff} for each result
+     */
+    @NonNull
+    public Observable<ListDiff<T>> createObservableStreamOfDiffs(@NonNull MapFunc<T, ?> idFunc) {
+        EnvironmentUtil.throwExceptionIfRxJavaIsNotAvailable("createObservableStreamOfDiffs()");
+        checkNotNull(idFunc, "Please specify id function");
+
+        return createObservableStream()
+                .lift(OperatorListDiff.newInstance(idFunc));
+    }
+
     /**
      * Builder for {@link PreparedOperationWithReactiveStream}
      * <p>
@@ -134,6 +376,7 @@ public class PreparedGetListOfObjects<T> extends PreparedGet<List<T>> {
         private Query query;
         private RawQuery rawQuery;
         private GetResolver getResolver;
+        private boolean shareStream;
 
         Builder(@NonNull StorIOSQLite storIOSQLite, @NonNull Class<T> type) {
             this.storIOSQLite = storIOSQLite;
@@ -173,7 +416,7 @@ public class PreparedGetListOfObjects<T> extends PreparedGet<List<T>> {
          * @return {@link PreparedGetListOfObjects} instance
          */
         @NonNull
-        private PreparedOperationWithReactiveStream<List<T>> prepare() {
+        private PreparedGetListOfObjects<T> prepare() {
             if (getResolver == null) {
                 getResolver = DefaultGetResolver.INSTANCE;
             }
@@ -181,9 +424,9 @@ public class PreparedGetListOfObjects<T> extends PreparedGet<List<T>> {
             checkNotNull(mapFunc, "Please specify map function");
 
             if (query != null) {
-                return new PreparedGetListOfObjects<T>(storIOSQLite, query, getResolver, mapFunc);
+                return new PreparedGetListOfObjects<T>(storIOSQLite, query, getResolver, mapFunc, shareStream);
             } else if (rawQuery != null) {
-                return new PreparedGetListOfObjects<T>(storIOSQLite, rawQuery, getResolver, mapFunc);
+                return new PreparedGetListOfObjects<T>(storIOSQLite, rawQuery, getResolver, mapFunc, shareStream);
             } else {
                 throw new IllegalStateException("Please specify query");
             }
@@ -252,7 +495,7 @@ public class PreparedGetListOfObjects<T> extends PreparedGet<List<T>> {
          * @return {@link PreparedGetListOfObjects} instance
          */
         @NonNull
-        private PreparedOperationWithReactiveStream<List<T>> prepare() {
+        private PreparedGetListOfObjects<T> prepare() {
             return incompleteBuilder.prepare();
         }
     }
@@ -285,13 +528,33 @@ public class PreparedGetListOfObjects<T> extends PreparedGet<List<T>> {
             return this;
         }
 
+        /**
+         * Optional: Specifies that {@link PreparedGetListOfObjects#createObservableStream()} can be shared
+         * with streams of equal queries with same map function and {@link GetResolver}
+         * (see {@link StorIOSQLite.Internal#shareQueryStream(Object, Observable)})
+         * <p>
+         * Query is executed once per change for all subscribers and new subscriber receives latest result
+         * without executing the query. Please reuse map function instance (for example, keep it in static field).
+         * Because one result can be delivered to several subscribers, shared stream emits unmodifiable lists,
+         * please copy the list if you need to modify it.
+         * <p>
+         * By default each stream executes its own queries and emits lists which can be modified
+         *
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder<T> shareStream() {
+            queryBuilder.incompleteBuilder.shareStream = true;
+            return this;
+        }
+
         /**
          * Prepares Get Operation
          *
          * @return {@link PreparedGetListOfObjects} instance
          */
         @NonNull
-        public PreparedOperationWithReactiveStream<List<T>> prepare() {
+        public PreparedGetListOfObjects<T> prepare() {
             return queryBuilder.prepare();
         }
     }
@@ -0,0 +1,141 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.pushtorefresh.storio.operation.PreparedOperation;
+
+/**
+ * Cancellation of query executed by stream of Get Operation,
+ * stream cancels query when newer changes of query tables make its result stale
+ * <p>
+ * Implementations of {@link com.pushtorefresh.storio.sqlite.StorIOSQLite.Internal} can get cancellation
+ * of query executed by current thread via {@link #current()} and pass {@link #cancellationSignal()}
+ * to {@link android.database.sqlite.SQLiteDatabase}, {@link com.pushtorefresh.storio.sqlite.impl.DefaultStorIOSQLite}
+ * does it on API 16+. Otherwise canceled query runs to the end and its result is dropped.
+ * <p>
+ * Thread safe
+ */
+public final class QueryCancellation {
+
+    @NonNull
+    private static final ThreadLocal<QueryCancellation> CURRENT = new ThreadLocal<QueryCancellation>();
+
+    /**
+     * {@link CancellationSignal}, {@code null} before API 16 where it does not exist
+     */
+    @Nullable
+    private final Object cancellationSignal;
+
+    private boolean canceled;
+
+    private boolean completed;
+
+    private QueryCancellation(@Nullable Object cancellationSignal) {
+        this.cancellationSignal = cancellationSignal;
+    }
+
+    @NonNull
+    static QueryCancellation newInstance() {
+        return new QueryCancellation(
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                        ? newCancellationSignal()
+                        : null
+        );
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @NonNull
+    private static Object newCancellationSignal() {
+        return new CancellationSignal();
+    }
+
+    /**
+     * Gets cancellation of query executed by current thread
+     *
+     * @return cancellation of query or {@code null} if query of current thread can not be canceled
+     */
+    @Nullable
+    public static QueryCancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Gets signal which aborts execution of the query and reading of its {@link android.database.Cursor}
+     *
+     * @return signal or {@code null} before API 16
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Nullable
+    public CancellationSignal cancellationSignal() {
+        return (CancellationSignal) cancellationSignal;
+    }
+
+    /**
+     * Checks whether the query was canceled
+     *
+     * @return {@code true} if query was canceled, {@code false} otherwise
+     */
+    public synchronized boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * Executes operation in current thread, queries of the operation are bound to this cancellation
+     *
+     * @param preparedOperation operation to execute
+     * @param <T>               type of result
+     * @return result of operation
+     */
+    @NonNull
+    <T> T execute(@NonNull PreparedOperation<T> preparedOperation) {
+        final QueryCancellation previous = CURRENT.get();
+        CURRENT.set(this);
+
+        try {
+            return preparedOperation.executeAsBlocking();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Cancels the query if its result was not taken yet
+     */
+    void cancel() {
+        synchronized (this) {
+            if (completed || canceled) {
+                return;
+            }
+
+            canceled = true;
+        }
+
+        if (cancellationSignal != null) {
+            cancelSignal();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void cancelSignal() {
+        ((CancellationSignal) cancellationSignal).cancel();
+    }
+
+    /**
+     * Takes result of the query, after that the query can not be canceled,
+     * so cursor of the result can be read after cancellation of the stream
+     *
+     * @return {@code true} if result can be used, {@code false} if query was canceled
+     */
+    synchronized boolean complete() {
+        if (canceled) {
+            return false;
+        }
+
+        completed = true;
+        return true;
+    }
+}
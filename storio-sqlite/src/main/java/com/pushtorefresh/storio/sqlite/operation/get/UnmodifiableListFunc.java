@@ -0,0 +1,34 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.support.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+import rx.functions.Func1;
+
+/**
+ * Wraps results of query stream into unmodifiable lists,
+ * so subscribers which share one result can not modify it under each other
+ * <p>
+ * Hiding RxJava from ClassLoader via separate class
+ */
+class UnmodifiableListFunc<T> implements Func1<List<T>, List<T>> {
+
+    @NonNull
+    private static final UnmodifiableListFunc<Object> INSTANCE = new UnmodifiableListFunc<Object>();
+
+    private UnmodifiableListFunc() {
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    static <T> Func1<List<T>, List<T>> instance() {
+        return (Func1<List<T>, List<T>>) (Func1<?, ?>) INSTANCE;
+    }
+
+    @Override
+    public List<T> call(List<T> list) {
+        return Collections.unmodifiableList(list);
+    }
+}
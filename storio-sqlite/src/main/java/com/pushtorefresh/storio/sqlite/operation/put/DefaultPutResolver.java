@@ -8,6 +8,9 @@ import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.sqlite.query.InsertQuery;
 import com.pushtorefresh.storio.sqlite.query.UpdateQuery;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Default, thread-safe implementation of {@link PutResolver}
  *
@@ -36,6 +39,37 @@ public abstract class DefaultPutResolver<T> implements PutResolver<T> {
         return BaseColumns._ID;
     }
 
+    /**
+     * Defines whether id column is {@code INTEGER PRIMARY KEY} column, which is alias of {@code ROWID}.
+     * You can override this to report ids of updated rows in {@link com.pushtorefresh.storio.sqlite.Changes},
+     * so observers of rows get only changes of their rows.
+     * <p/>
+     * Default value is <code>false</code>: updates are reported as changes of whole table,
+     * because values of other id columns are not row ids.
+     *
+     * @return {@code true} if id column is alias of {@code ROWID}, {@code false} otherwise
+     */
+    protected boolean idColumnIsRowId() {
+        return false;
+    }
+
+    /**
+     * Defines whether {@link PreparedPutObjects} can insert new objects (without id) of this resolver in batches
+     * via multi-row {@code INSERT INTO t (..) VALUES (..),(..)} statements, which is much faster for large imports.
+     * <p/>
+     * Batch inserts bypass {@link #performPut(StorIOSQLite, ContentValues)} and calculate ids of inserted rows
+     * from id of last inserted row, so override this only if table has {@code ROWID} (it's not {@code WITHOUT ROWID}),
+     * content values without id don't contain explicit {@code ROWID} and inserts should not be customized.
+     * {@link #afterPut(Object, PutResult)} is called for each object with its own result after its batch was put.
+     * <p/>
+     * Default value is <code>false</code>: objects are put one by one
+     *
+     * @return {@code true} if new objects can be inserted in batches, {@code false} otherwise
+     */
+    protected boolean useBatchInsert() {
+        return false;
+    }
+
     /**
      * Performs insert or update of {@link ContentValues} into {@link StorIOSQLite}
      * <p/>
@@ -65,6 +99,58 @@ public abstract class DefaultPutResolver<T> implements PutResolver<T> {
                 : updateOrInsert(storIOSQLite, contentValues, table, idColumnName, idAsString);
     }
 
+    /**
+     * Performs insert or update of list of {@link ContentValues} into {@link StorIOSQLite},
+     * used by {@link PreparedPutObjects} if {@link #useBatchInsert()} returns {@code true}
+     * <p>
+     * Consecutive content values without id are inserted together via
+     * {@link StorIOSQLite.Internal#insertBatch(InsertQuery, List)}, all others are put one by one
+     * via {@link #performPut(StorIOSQLite, ContentValues)}, so writes are applied in same order as content values.
+     *
+     * @param storIOSQLite      instance of {@link StorIOSQLite}
+     * @param contentValuesList list of content values to put
+     * @return non-null list of results of put operation in same order as content values
+     */
+    @NonNull
+    List<PutResult> performBatchPut(@NonNull StorIOSQLite storIOSQLite, @NonNull List<ContentValues> contentValuesList) {
+        final List<PutResult> putResults = new ArrayList<PutResult>(contentValuesList.size());
+
+        final String idColumnName = getIdColumnName();
+        final String table = getTable();
+
+        int start = 0;
+
+        while (start < contentValuesList.size()) {
+            int end = start;
+
+            while (end < contentValuesList.size() && contentValuesList.get(end).get(idColumnName) == null) {
+                end++;
+            }
+
+            if (end == start) {
+                putResults.add(performPut(storIOSQLite, contentValuesList.get(start)));
+                start++;
+                continue;
+            }
+
+            final long[] insertedIds = storIOSQLite.internal().insertBatch(
+                    new InsertQuery.Builder()
+                            .table(table)
+                            .nullColumnHack(null)
+                            .build(),
+                    contentValuesList.subList(start, end)
+            );
+
+            for (long insertedId : insertedIds) {
+                putResults.add(PutResult.newInsertResult(insertedId, table));
+            }
+
+            start = end;
+        }
+
+        return putResults;
+    }
+
     @NonNull
     private PutResult insert(@NonNull StorIOSQLite storIOSQLite, @NonNull ContentValues contentValues, @NonNull String table) {
         final long insertedId = storIOSQLite.internal().insert(
@@ -95,10 +181,35 @@ public abstract class DefaultPutResolver<T> implements PutResolver<T> {
         );
 
         return numberOfRowsUpdated > 0
-                ? PutResult.newUpdateResult(numberOfRowsUpdated, table)
+                ? newUpdateResult(numberOfRowsUpdated, table, id, idColumnIsRowId())
                 : insert(storIOSQLite, contentValues, table);
     }
 
+    /**
+     * Creates {@link PutResult} for update by id, with id of updated row if it's known
+     *
+     * @param numberOfRowsUpdated number of updated rows
+     * @param table               affected table
+     * @param id                  value of id column used in where clause of update
+     * @param idColumnIsRowId     whether id column is alias of {@code ROWID}, see {@link #idColumnIsRowId()}
+     * @return new {@link PutResult} instance
+     */
+    @NonNull
+    static PutResult newUpdateResult(int numberOfRowsUpdated,
+                                     @NonNull String table,
+                                     @NonNull String id,
+                                     boolean idColumnIsRowId) {
+        if (idColumnIsRowId && numberOfRowsUpdated == 1) {
+            try {
+                return PutResult.newUpdateResult(numberOfRowsUpdated, table, Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                // not an integer id, so it's not a row id
+            }
+        }
+
+        return PutResult.newUpdateResult(numberOfRowsUpdated, table);
+    }
+
     /**
      * Useful callback which will be called in same thread that performed Put Operation right after
      * execution of {@link #performPut(StorIOSQLite, ContentValues)}
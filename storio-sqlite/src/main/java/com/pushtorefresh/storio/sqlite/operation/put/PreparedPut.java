@@ -3,6 +3,7 @@ package com.pushtorefresh.storio.sqlite.operation.put;
 import android.content.ContentValues;
 import android.support.annotation.NonNull;
 
+import com.pushtorefresh.storio.sqlite.Changes;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.operation.PreparedOperation;
 
@@ -27,6 +28,35 @@ public abstract class PreparedPut<T, Result> implements PreparedOperation<Result
         this.putResolver = putResolver;
     }
 
+    /**
+     * Adds table and, if it's known, row affected by Put Operation to changes
+     *
+     * @param changes   changes
+     * @param putResult result of Put Operation
+     */
+    static void addChanges(@NonNull Changes.Builder changes, @NonNull PutResult putResult) {
+        final Long affectedRowId = putResult.affectedRowId();
+
+        if (affectedRowId != null) {
+            changes.addRow(putResult.affectedTable(), affectedRowId);
+        } else {
+            changes.addTable(putResult.affectedTable());
+        }
+    }
+
+    /**
+     * Creates changes made by Put Operation
+     *
+     * @param putResult result of Put Operation
+     * @return changes with affected table and, if it's known, affected row
+     */
+    @NonNull
+    static Changes changesOf(@NonNull PutResult putResult) {
+        final Changes.Builder changes = new Changes.Builder();
+        addChanges(changes, putResult);
+        return changes.build();
+    }
+
     /**
      * Builder for {@link PreparedPut}
      */
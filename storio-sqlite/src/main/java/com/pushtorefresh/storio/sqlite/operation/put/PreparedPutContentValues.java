@@ -3,8 +3,6 @@ package com.pushtorefresh.storio.sqlite.operation.put;
 import android.content.ContentValues;
 import android.support.annotation.NonNull;
 
-import com.pushtorefresh.storio.operation.internal.OnSubscribeExecuteAsBlocking;
-import com.pushtorefresh.storio.sqlite.Changes;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.util.EnvironmentUtil;
 
@@ -32,7 +30,7 @@ public class PreparedPutContentValues extends PreparedPut<ContentValues, PutResu
     public PutResult executeAsBlocking() {
         final PutResult putResult = putResolver.performPut(storIOSQLite, contentValues);
         putResolver.afterPut(contentValues, putResult);
-        storIOSQLite.internal().notifyAboutChanges(Changes.newInstance(putResult.affectedTable()));
+        storIOSQLite.internal().notifyAboutChanges(changesOf(putResult));
         return putResult;
     }
 
@@ -45,7 +43,7 @@ public class PreparedPutContentValues extends PreparedPut<ContentValues, PutResu
     @Override
     public Observable<PutResult> createObservable() {
         EnvironmentUtil.throwExceptionIfRxJavaIsNotAvailable("createObservable()");
-        return Observable.create(OnSubscribeExecuteAsBlocking.newInstance(this));
+        return storIOSQLite.internal().createWriteObservable(this);
     }
 
     /**
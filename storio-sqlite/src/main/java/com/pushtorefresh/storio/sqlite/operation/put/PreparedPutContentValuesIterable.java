@@ -3,15 +3,12 @@ package com.pushtorefresh.storio.sqlite.operation.put;
 import android.content.ContentValues;
 import android.support.annotation.NonNull;
 
-import com.pushtorefresh.storio.operation.internal.OnSubscribeExecuteAsBlocking;
 import com.pushtorefresh.storio.sqlite.Changes;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.util.EnvironmentUtil;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 import rx.Observable;
 
@@ -62,7 +59,7 @@ public class PreparedPutContentValuesIterable extends PreparedPut<ContentValues,
                 putResolver.afterPut(contentValues, putResult);
 
                 if (!withTransaction) {
-                    internal.notifyAboutChanges(Changes.newInstance(putResult.affectedTable()));
+                    internal.notifyAboutChanges(changesOf(putResult));
                 }
             }
 
@@ -75,13 +72,13 @@ public class PreparedPutContentValuesIterable extends PreparedPut<ContentValues,
                 storIOSQLite.internal().endTransaction();
 
                 if (transactionSuccessful) {
-                    final Set<String> affectedTables = new HashSet<String>(1); // in most cases it will be 1 table
+                    final Changes.Builder changes = new Changes.Builder();
 
-                    for (final ContentValues contentValues : putResults.keySet()) {
-                        affectedTables.add(putResults.get(contentValues).affectedTable());
+                    for (PutResult putResult : putResults.values()) {
+                        addChanges(changes, putResult);
                     }
 
-                    storIOSQLite.internal().notifyAboutChanges(Changes.newInstance(affectedTables));
+                    storIOSQLite.internal().notifyAboutChanges(changes.build());
                 }
             }
         }
@@ -98,7 +95,7 @@ public class PreparedPutContentValuesIterable extends PreparedPut<ContentValues,
     @Override
     public Observable<PutResults<ContentValues>> createObservable() {
         EnvironmentUtil.throwExceptionIfRxJavaIsNotAvailable("createObservable()");
-        return Observable.create(OnSubscribeExecuteAsBlocking.newInstance(this));
+        return storIOSQLite.internal().createWriteObservable(this);
     }
 
     /**
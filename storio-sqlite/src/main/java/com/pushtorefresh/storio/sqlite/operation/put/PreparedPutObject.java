@@ -4,8 +4,6 @@ import android.content.ContentValues;
 import android.support.annotation.NonNull;
 
 import com.pushtorefresh.storio.operation.MapFunc;
-import com.pushtorefresh.storio.operation.internal.OnSubscribeExecuteAsBlocking;
-import com.pushtorefresh.storio.sqlite.Changes;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.util.EnvironmentUtil;
 
@@ -37,7 +35,7 @@ public class PreparedPutObject<T> extends PreparedPut<T, PutResult> {
         final PutResult putResult = putResolver.performPut(storIOSQLite, mapFunc.map(object));
 
         putResolver.afterPut(object, putResult);
-        storIOSQLite.internal().notifyAboutChanges(Changes.newInstance(putResult.affectedTable()));
+        storIOSQLite.internal().notifyAboutChanges(changesOf(putResult));
 
         return putResult;
     }
@@ -50,7 +48,7 @@ public class PreparedPutObject<T> extends PreparedPut<T, PutResult> {
     @NonNull
     public Observable<PutResult> createObservable() {
         EnvironmentUtil.throwExceptionIfRxJavaIsNotAvailable("createObservable()");
-        return Observable.create(OnSubscribeExecuteAsBlocking.newInstance(this));
+        return storIOSQLite.internal().createWriteObservable(this);
     }
 
     /**
@@ -4,15 +4,14 @@ import android.content.ContentValues;
 import android.support.annotation.NonNull;
 
 import com.pushtorefresh.storio.operation.MapFunc;
-import com.pushtorefresh.storio.operation.internal.OnSubscribeExecuteAsBlocking;
 import com.pushtorefresh.storio.sqlite.Changes;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.util.EnvironmentUtil;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import rx.Observable;
 
@@ -26,6 +25,12 @@ public class PreparedPutObjects<T> extends PreparedPut<T, PutResults<T>> {
     private final MapFunc<T, ContentValues> mapFunc;
     private final boolean useTransactionIfPossible;
 
+    /**
+     * Max number of objects inserted by {@link DefaultPutResolver} in batches at once,
+     * so we don't keep {@link ContentValues} for all objects in memory
+     */
+    private static final int BATCH_SIZE = 500;
+
     PreparedPutObjects(@NonNull StorIOSQLite storIOSQLite,
                        @NonNull PutResolver<T> putResolver,
                        @NonNull Iterable<T> objects, @NonNull MapFunc<T, ContentValues> mapFunc,
@@ -57,17 +62,21 @@ public class PreparedPutObjects<T> extends PreparedPut<T, PutResults<T>> {
         boolean transactionSuccessful = false;
 
         try {
-            for (T object : objects) {
-                final PutResult putResult = putResolver.performPut(
-                        storIOSQLite,
-                        mapFunc.map(object)
-                );
-
-                putResolver.afterPut(object, putResult);
-                putResults.put(object, putResult);
-
-                if (!withTransaction) {
-                    internal.notifyAboutChanges(Changes.newInstance(putResult.affectedTable()));
+            if (putResolver instanceof DefaultPutResolver && ((DefaultPutResolver<T>) putResolver).useBatchInsert()) {
+                putInBatches((DefaultPutResolver<T>) putResolver, putResults, withTransaction);
+            } else {
+                for (T object : objects) {
+                    final PutResult putResult = putResolver.performPut(
+                            storIOSQLite,
+                            mapFunc.map(object)
+                    );
+
+                    putResolver.afterPut(object, putResult);
+                    putResults.put(object, putResult);
+
+                    if (!withTransaction) {
+                        internal.notifyAboutChanges(changesOf(putResult));
+                    }
                 }
             }
 
@@ -80,13 +89,13 @@ public class PreparedPutObjects<T> extends PreparedPut<T, PutResults<T>> {
                 storIOSQLite.internal().endTransaction();
 
                 if (transactionSuccessful) {
-                    final Set<String> affectedTables = new HashSet<String>(1); // in most cases it will be 1 table
+                    final Changes.Builder changes = new Changes.Builder();
 
-                    for (final T object : putResults.keySet()) {
-                        affectedTables.add(putResults.get(object).affectedTable());
+                    for (PutResult putResult : putResults.values()) {
+                        addChanges(changes, putResult);
                     }
 
-                    storIOSQLite.internal().notifyAboutChanges(Changes.newInstance(affectedTables));
+                    storIOSQLite.internal().notifyAboutChanges(changes.build());
                 }
             }
         }
@@ -94,6 +103,54 @@ public class PreparedPutObjects<T> extends PreparedPut<T, PutResults<T>> {
         return PutResults.newInstance(putResults);
     }
 
+    private void putInBatches(@NonNull DefaultPutResolver<T> batchPutResolver,
+                              @NonNull Map<T, PutResult> putResults,
+                              boolean withTransaction) {
+
+        final List<T> batch = new ArrayList<T>(BATCH_SIZE);
+        final List<ContentValues> batchContentValues = new ArrayList<ContentValues>(BATCH_SIZE);
+
+        for (T object : objects) {
+            batch.add(object);
+            batchContentValues.add(mapFunc.map(object));
+
+            if (batch.size() == BATCH_SIZE) {
+                putBatch(batchPutResolver, batch, batchContentValues, putResults, withTransaction);
+                batch.clear();
+                batchContentValues.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            putBatch(batchPutResolver, batch, batchContentValues, putResults, withTransaction);
+        }
+    }
+
+    private void putBatch(@NonNull DefaultPutResolver<T> batchPutResolver,
+                          @NonNull List<T> batch,
+                          @NonNull List<ContentValues> batchContentValues,
+                          @NonNull Map<T, PutResult> putResults,
+                          boolean withTransaction) {
+
+        final List<PutResult> batchPutResults = batchPutResolver.performBatchPut(storIOSQLite, batchContentValues);
+
+        final Changes.Builder changes = new Changes.Builder();
+
+        for (int i = 0; i < batch.size(); i++) {
+            final T object = batch.get(i);
+            final PutResult putResult = batchPutResults.get(i);
+
+            batchPutResolver.afterPut(object, putResult);
+            putResults.put(object, putResult);
+            addChanges(changes, putResult);
+        }
+
+        if (!withTransaction) {
+            // without transaction each batch is visible to observers right after it was put
+            storIOSQLite.internal().notifyAboutChanges(changes.build());
+        }
+    }
+
     /**
      * Creates {@link Observable} which will perform Put Operation and send results to observer
      *
@@ -103,7 +160,7 @@ public class PreparedPutObjects<T> extends PreparedPut<T, PutResults<T>> {
     @Override
     public Observable<PutResults<T>> createObservable() {
         EnvironmentUtil.throwExceptionIfRxJavaIsNotAvailable("createObservable()");
-        return Observable.create(OnSubscribeExecuteAsBlocking.newInstance(this));
+        return storIOSQLite.internal().createWriteObservable(this);
     }
 
     /**
@@ -14,12 +14,19 @@ public class PutResult {
     @Nullable
     private final Integer numberOfRowsUpdated;
 
+    @Nullable
+    private final Long updatedId;
+
     @NonNull
     private final String affectedTable;
 
-    private PutResult(@Nullable Long insertedId, @Nullable Integer numberOfRowsUpdated, @NonNull String affectedTable) {
+    private PutResult(@Nullable Long insertedId,
+                      @Nullable Integer numberOfRowsUpdated,
+                      @Nullable Long updatedId,
+                      @NonNull String affectedTable) {
         this.insertedId = insertedId;
         this.numberOfRowsUpdated = numberOfRowsUpdated;
+        this.updatedId = updatedId;
         this.affectedTable = affectedTable;
     }
 
@@ -32,7 +39,7 @@ public class PutResult {
      */
     @NonNull
     public static PutResult newInsertResult(long insertedId, @NonNull String affectedTable) {
-        return new PutResult(insertedId, null, affectedTable);
+        return new PutResult(insertedId, null, null, affectedTable);
     }
 
     /**
@@ -44,7 +51,21 @@ public class PutResult {
      */
     @NonNull
     public static PutResult newUpdateResult(int numberOfRowsUpdated, @NonNull String affectedTable) {
-        return new PutResult(null, numberOfRowsUpdated, affectedTable);
+        return new PutResult(null, numberOfRowsUpdated, null, affectedTable);
+    }
+
+    /**
+     * Creates {@link PutResult} for update of one row with known id,
+     * so observers of other rows of the table won't be notified about this change
+     *
+     * @param numberOfRowsUpdated number of rows that were updated
+     * @param affectedTable       affected table
+     * @param updatedId           {@code ROWID} of updated row
+     * @return new {@link PutResult} instance
+     */
+    @NonNull
+    public static PutResult newUpdateResult(int numberOfRowsUpdated, @NonNull String affectedTable, long updatedId) {
+        return new PutResult(null, numberOfRowsUpdated, updatedId, affectedTable);
     }
 
     /**
@@ -103,6 +124,16 @@ public class PutResult {
         return numberOfRowsUpdated;
     }
 
+    /**
+     * Gets id of affected row: id of inserted row or id of updated row if it's known
+     *
+     * @return null if id of affected row is unknown, otherwise id of affected row
+     */
+    @Nullable
+    public Long affectedRowId() {
+        return insertedId != null ? insertedId : updatedId;
+    }
+
     /**
      * Gets name of affected table
      *
@@ -124,6 +155,8 @@ public class PutResult {
             return false;
         if (numberOfRowsUpdated != null ? !numberOfRowsUpdated.equals(putResult.numberOfRowsUpdated) : putResult.numberOfRowsUpdated != null)
             return false;
+        if (updatedId != null ? !updatedId.equals(putResult.updatedId) : putResult.updatedId != null)
+            return false;
         return affectedTable.equals(putResult.affectedTable);
     }
 
@@ -131,6 +164,7 @@ public class PutResult {
     public int hashCode() {
         int result = insertedId != null ? insertedId.hashCode() : 0;
         result = 31 * result + (numberOfRowsUpdated != null ? numberOfRowsUpdated.hashCode() : 0);
+        result = 31 * result + (updatedId != null ? updatedId.hashCode() : 0);
         result = 31 * result + affectedTable.hashCode();
         return result;
     }
@@ -140,6 +174,7 @@ public class PutResult {
         return "PutResult{" +
                 "insertedId=" + insertedId +
                 ", numberOfRowsUpdated=" + numberOfRowsUpdated +
+                ", updatedId=" + updatedId +
                 ", affectedTable='" + affectedTable + '\'' +
                 '}';
     }
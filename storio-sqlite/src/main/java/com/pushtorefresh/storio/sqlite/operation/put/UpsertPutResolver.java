@@ -0,0 +1,96 @@
+package com.pushtorefresh.storio.sqlite.operation.put;
+
+import android.content.ContentValues;
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+import com.pushtorefresh.storio.sqlite.query.ConflictStrategy;
+import com.pushtorefresh.storio.sqlite.query.InsertQuery;
+import com.pushtorefresh.storio.sqlite.query.UpdateQuery;
+
+/**
+ * Thread-safe implementation of {@link PutResolver} which tries "insert" first and
+ * performs "update" only if row with same id already exists
+ * <p>
+ * {@link DefaultPutResolver} performs "update" and then "insert" if nothing was updated,
+ * so each new object with id costs two statements. This resolver inserts new objects
+ * with one {@code INSERT OR IGNORE} statement, which is better when most of objects are new,
+ * for example during first sync with the server.
+ * <p>
+ * We don't use {@link ConflictStrategy#REPLACE} here: it deletes existing row and inserts new one,
+ * so we would not be able to tell "insert" from "update" and columns that are not in {@link ContentValues} would be lost.
+ *
+ * @param <T> type of objects to put
+ */
+public abstract class UpsertPutResolver<T> extends DefaultPutResolver<T> {
+
+    /**
+     * Performs insert or update of {@link ContentValues} into {@link StorIOSQLite}
+     * <p>
+     * If content values does not contain {@link #getIdColumnName()} field with non-null value, it will perform insert.
+     * <p>
+     * Otherwise it will perform {@code INSERT OR IGNORE} and if row was ignored because it already exists — update.
+     * {@link PutResult} reports what was actually done, so {@link #afterPut(Object, PutResult)} works as usual.
+     *
+     * @param storIOSQLite  instance of {@link StorIOSQLite}
+     * @param contentValues content values to put
+     * @return non-null result of put operation
+     */
+    @NonNull
+    @Override
+    public PutResult performPut(@NonNull StorIOSQLite storIOSQLite, @NonNull ContentValues contentValues) {
+        final String idColumnName = getIdColumnName();
+        final Object idAsObject = contentValues.get(idColumnName);
+        final String table = getTable();
+
+        if (idAsObject == null) {
+            return insert(storIOSQLite, contentValues, table);
+        }
+
+        final long insertedId = storIOSQLite.internal().insert(
+                newInsertQuery(table, ConflictStrategy.IGNORE),
+                contentValues
+        );
+
+        if (insertedId != -1) {
+            return PutResult.newInsertResult(insertedId, table);
+        }
+
+        final int numberOfRowsUpdated = storIOSQLite.internal().update(
+                new UpdateQuery.Builder()
+                        .table(table)
+                        .where(idColumnName + "=?")
+                        .whereArgs(idAsObject.toString())
+                        .build(),
+                contentValues
+        );
+
+        // insert was ignored not because of primary key (other UNIQUE or NOT NULL constraint),
+        // regular insert will throw exception with real reason
+        return numberOfRowsUpdated > 0
+                ? newUpdateResult(numberOfRowsUpdated, table, idAsObject.toString(), idColumnIsRowId())
+                : insert(storIOSQLite, contentValues, table);
+    }
+
+    @NonNull
+    private static PutResult insert(@NonNull StorIOSQLite storIOSQLite,
+                                    @NonNull ContentValues contentValues,
+                                    @NonNull String table) {
+
+        final long insertedId = storIOSQLite.internal().insert(
+                newInsertQuery(table, ConflictStrategy.ABORT),
+                contentValues
+        );
+
+        return PutResult.newInsertResult(insertedId, table);
+    }
+
+    @NonNull
+    private static InsertQuery newInsertQuery(@NonNull String table, @NonNull ConflictStrategy conflictStrategy) {
+        return new InsertQuery.Builder()
+                .table(table)
+                .nullColumnHack(null)
+                .conflictStrategy(conflictStrategy)
+                .build();
+    }
+}
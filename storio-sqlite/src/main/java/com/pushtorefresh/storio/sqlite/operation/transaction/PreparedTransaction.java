@@ -0,0 +1,126 @@
+package com.pushtorefresh.storio.sqlite.operation.transaction;
+
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.PreparedOperation;
+import com.pushtorefresh.storio.operation.internal.OnSubscribeExecuteAsBlocking;
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+import com.pushtorefresh.storio.util.EnvironmentUtil;
+
+import rx.Observable;
+
+import static com.pushtorefresh.storio.util.Checks.checkNotNull;
+
+/**
+ * Prepared Operation which executes {@link TransactionWork} in one transaction
+ * <p>
+ * All operations of the work are committed together (one journal sync instead of one per operation),
+ * observers receive one notification with all affected tables after commit.
+ * If work throws exception, transaction is rolled back and observers are not notified.
+ *
+ * @param <Result> type of result
+ */
+public class PreparedTransaction<Result> implements PreparedOperation<Result> {
+
+    @NonNull
+    private final StorIOSQLite storIOSQLite;
+
+    @NonNull
+    private final TransactionWork<Result> work;
+
+    PreparedTransaction(@NonNull StorIOSQLite storIOSQLite, @NonNull TransactionWork<Result> work) {
+        this.storIOSQLite = storIOSQLite;
+        this.work = work;
+    }
+
+    /**
+     * Executes work in transaction immediately in current thread
+     *
+     * @return result of the work
+     */
+    @NonNull
+    @Override
+    public Result executeAsBlocking() {
+        final StorIOSQLite.Internal internal = storIOSQLite.internal();
+
+        if (!internal.transactionsSupported()) {
+            throw new IllegalStateException("Transactions are not supported by " + storIOSQLite);
+        }
+
+        internal.beginTransaction();
+
+        try {
+            final Result result = work.perform(storIOSQLite);
+            internal.setTransactionSuccessful();
+            return result;
+        } finally {
+            internal.endTransaction();
+        }
+    }
+
+    /**
+     * Creates {@link Observable} which will execute work in transaction and emit its result
+     *
+     * @return non-null {@link Observable} which will emit result of the work
+     */
+    @NonNull
+    @Override
+    public Observable<Result> createObservable() {
+        EnvironmentUtil.throwExceptionIfRxJavaIsNotAvailable("createObservable()");
+        return Observable.create(OnSubscribeExecuteAsBlocking.newInstance(this));
+    }
+
+    /**
+     * Builder for {@link PreparedTransaction}
+     */
+    public static class Builder {
+
+        @NonNull
+        private final StorIOSQLite storIOSQLite;
+
+        public Builder(@NonNull StorIOSQLite storIOSQLite) {
+            this.storIOSQLite = storIOSQLite;
+        }
+
+        /**
+         * Required: Specifies work which should be executed in transaction
+         *
+         * @param work     work, operations inside of it should use passed {@link StorIOSQLite}
+         * @param <Result> type of result of the work
+         * @return builder
+         */
+        @NonNull
+        public <Result> CompleteBuilder<Result> withWork(@NonNull TransactionWork<Result> work) {
+            return new CompleteBuilder<Result>(storIOSQLite, work);
+        }
+    }
+
+    /**
+     * Compile-time safe part of builder for {@link PreparedTransaction}
+     *
+     * @param <Result> type of result of the work
+     */
+    public static class CompleteBuilder<Result> {
+
+        @NonNull
+        private final StorIOSQLite storIOSQLite;
+
+        private final TransactionWork<Result> work;
+
+        CompleteBuilder(@NonNull StorIOSQLite storIOSQLite, @NonNull TransactionWork<Result> work) {
+            this.storIOSQLite = storIOSQLite;
+            this.work = work;
+        }
+
+        /**
+         * Prepares Transaction Operation
+         *
+         * @return {@link PreparedTransaction} instance
+         */
+        @NonNull
+        public PreparedTransaction<Result> prepare() {
+            checkNotNull(work, "Please specify work");
+            return new PreparedTransaction<Result>(storIOSQLite, work);
+        }
+    }
+}
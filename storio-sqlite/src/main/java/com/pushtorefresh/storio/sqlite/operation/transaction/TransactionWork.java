@@ -0,0 +1,22 @@
+package com.pushtorefresh.storio.sqlite.operation.transaction;
+
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+
+/**
+ * Unit of work which will be executed by {@link PreparedTransaction} in one transaction
+ *
+ * @param <Result> type of result
+ */
+public interface TransactionWork<Result> {
+
+    /**
+     * Executes operations which should be applied atomically,
+     * any exception thrown from this method rolls back the transaction
+     *
+     * @param storIOSQLite instance of {@link StorIOSQLite} which operations should be executed with
+     * @return result of the work
+     */
+    Result perform(@NonNull StorIOSQLite storIOSQLite);
+}
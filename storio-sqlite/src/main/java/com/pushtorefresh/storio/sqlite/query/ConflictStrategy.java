@@ -0,0 +1,30 @@
+package com.pushtorefresh.storio.sqlite.query;
+
+/**
+ * Defines what SQLite should do if insert or update violates constraint (for example, UNIQUE or PRIMARY KEY)
+ * <p>
+ * See <a href="https://www.sqlite.org/lang_conflict.html">ON CONFLICT clause</a>
+ */
+public enum ConflictStrategy {
+
+    /**
+     * Aborts current statement and throws exception, changes made by previous statements are kept.
+     * <p>
+     * Default behavior of SQLite
+     */
+    ABORT,
+
+    /**
+     * Skips the row that violates constraint and continues without exception.
+     * <p>
+     * Insert of ignored row returns <code>-1</code> instead of id of inserted row
+     */
+    IGNORE,
+
+    /**
+     * Deletes pre-existing rows that cause constraint violation and inserts or updates current row.
+     * <p>
+     * Please note: that's "delete + insert", not "update", so columns that were not specified will get default values
+     */
+    REPLACE
+}
@@ -4,6 +4,7 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import static com.pushtorefresh.storio.util.Checks.checkNotEmpty;
+import static com.pushtorefresh.storio.util.Checks.checkNotNull;
 
 /**
  * Insert query for {@link com.pushtorefresh.storio.sqlite.StorIOSQLite}
@@ -29,12 +30,26 @@ public class InsertQuery {
     @Nullable
     public final String nullColumnHack;
 
+    /**
+     * What should be done if inserted row violates constraint
+     */
+    @NonNull
+    public final ConflictStrategy conflictStrategy;
+
     /**
      * Please use {@link com.pushtorefresh.storio.sqlite.query.InsertQuery.Builder} instead of constructor
      */
     protected InsertQuery(@NonNull String table, @Nullable String nullColumnHack) {
+        this(table, nullColumnHack, ConflictStrategy.ABORT);
+    }
+
+    /**
+     * Please use {@link com.pushtorefresh.storio.sqlite.query.InsertQuery.Builder} instead of constructor
+     */
+    protected InsertQuery(@NonNull String table, @Nullable String nullColumnHack, @NonNull ConflictStrategy conflictStrategy) {
         this.table = table;
         this.nullColumnHack = nullColumnHack;
+        this.conflictStrategy = conflictStrategy;
     }
 
     @Override
@@ -48,13 +63,14 @@ public class InsertQuery {
             return false;
         if (!table.equals(that.table)) return false;
 
-        return true;
+        return conflictStrategy == that.conflictStrategy;
     }
 
     @Override
     public int hashCode() {
         int result = table.hashCode();
         result = 31 * result + (nullColumnHack != null ? nullColumnHack.hashCode() : 0);
+        result = 31 * result + conflictStrategy.hashCode();
         return result;
     }
 
@@ -63,6 +79,7 @@ public class InsertQuery {
         return "InsertQuery{" +
                 "table='" + table + '\'' +
                 ", nullColumnHack='" + nullColumnHack + '\'' +
+                ", conflictStrategy=" + conflictStrategy +
                 '}';
     }
 
@@ -92,6 +109,7 @@ public class InsertQuery {
     public static class CompleteBuilder extends Builder {
 
         private String nullColumnHack;
+        private ConflictStrategy conflictStrategy = ConflictStrategy.ABORT;
 
         CompleteBuilder(@NonNull Builder builder) {
             table = builder.table;
@@ -125,6 +143,21 @@ public class InsertQuery {
             return this;
         }
 
+        /**
+         * Optional: Specifies what should be done if inserted row violates constraint,
+         * for example, {@link ConflictStrategy#REPLACE} will replace existing row with same primary key
+         * <p>
+         * Default value is {@link ConflictStrategy#ABORT}
+         *
+         * @param conflictStrategy non-null conflict strategy
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder conflictStrategy(@NonNull ConflictStrategy conflictStrategy) {
+            this.conflictStrategy = conflictStrategy;
+            return this;
+        }
+
         /**
          * Builds immutable instance of {@link InsertQuery}
          *
@@ -133,10 +166,12 @@ public class InsertQuery {
         @NonNull
         public InsertQuery build() {
             checkNotEmpty(table, "Please specify table name");
+            checkNotNull(conflictStrategy, "Please specify conflict strategy");
 
             return new InsertQuery(
                     table,
-                    nullColumnHack
+                    nullColumnHack,
+                    conflictStrategy
             );
         }
     }
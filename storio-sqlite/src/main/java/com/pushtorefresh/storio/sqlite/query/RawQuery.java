@@ -34,6 +34,8 @@ public class RawQuery {
     /**
      * Optional set of tables which will be affected by this query
      * They will be used to notify observers of that tables
+     * <p>
+     * If it's {@code null}, tables are parsed from the query via {@link SqlTables}
      */
     @Nullable
     public final Set<String> affectedTables;
@@ -140,6 +142,10 @@ public class RawQuery {
          * Optional: Specifies set of tables which will be affected by this query.
          * They will be used to notify observers of that tables
          * <p/>
+         * If tables are not specified, they are parsed from the query: tables after {@code FROM} and {@code JOIN}
+         * for Get Operation and target table for ExecSql Operation, see {@link SqlTables}.
+         * Please specify them for queries of views and statements which fire triggers.
+         * <p/>
          * Default value is <code>null</code>
          *
          * @param tables set of tables which will be affected by this query
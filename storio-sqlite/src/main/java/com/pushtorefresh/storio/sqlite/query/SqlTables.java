@@ -0,0 +1,549 @@
+package com.pushtorefresh.storio.sqlite.query;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static com.pushtorefresh.storio.util.Checks.checkNotNull;
+
+/**
+ * Lightweight parser of table references of SQL statements
+ * <p>
+ * Finds tables referenced after {@code FROM} and {@code JOIN} (including subqueries and
+ * table lists), excludes names of common table expressions ({@code WITH}) and finds target tables
+ * of {@code INSERT}, {@code REPLACE}, {@code UPDATE}, {@code DELETE}, {@code DROP TABLE} and {@code ALTER TABLE}.
+ * <p>
+ * Parser does not know schema of database: for queries of views it returns name of the view,
+ * not names of its tables, and tables changed by triggers are not reported. Please specify tables
+ * explicitly via {@link RawQuery.CompleteBuilder#affectedTables(String...)} in such cases.
+ * Names of tables are returned as they are written in the statement, without quotes and schema name,
+ * use {@link #normalize(String)} to compare them with other names.
+ * <p>
+ * Results are cached by SQL string. Thread safe.
+ */
+public final class SqlTables {
+
+    /**
+     * Max number of SQL strings with cached results
+     */
+    private static final int CACHE_SIZE = 128;
+
+    @NonNull
+    private static final Map<String, Result> CACHE = new LinkedHashMap<String, Result>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Words that can not be aliases or names of tables in table list
+     */
+    @NonNull
+    private static final Set<String> RESERVED_WORDS = new HashSet<String>(Arrays.asList(
+            "SELECT", "VALUES", "WHERE", "ON", "USING", "JOIN", "LEFT", "RIGHT", "FULL", "INNER", "OUTER",
+            "CROSS", "NATURAL", "GROUP", "ORDER", "LIMIT", "OFFSET", "HAVING", "WINDOW", "UNION", "EXCEPT",
+            "INTERSECT", "INDEXED", "NOT", "AS", "SET", "RETURNING", "WITH", "FROM", "DEFAULT", "WHEN", "THEN",
+            "ELSE", "END"
+    ));
+
+    private SqlTables() {
+        throw new IllegalStateException("No instances please");
+    }
+
+    /**
+     * Parses tables which are read by SQL statement
+     *
+     * @param sql SQL statement
+     * @return immutable set of tables read by statement or {@code null} if statement can not be parsed
+     */
+    @Nullable
+    public static Set<String> readTablesOf(@NonNull String sql) {
+        return parse(sql).readTables;
+    }
+
+    /**
+     * Parses tables which are changed by SQL statement, only first statement of the string is parsed
+     *
+     * @param sql SQL statement
+     * @return immutable set of tables changed by statement, empty if statement does not change tables,
+     * or {@code null} if statement can not be parsed
+     */
+    @Nullable
+    public static Set<String> writtenTablesOf(@NonNull String sql) {
+        return parse(sql).writtenTables;
+    }
+
+    /**
+     * Normalizes name of table for comparison with other names, SQLite names are case insensitive
+     *
+     * @param table name of table
+     * @return name of table in lower case
+     */
+    @NonNull
+    public static String normalize(@NonNull String table) {
+        return table.toLowerCase(Locale.US);
+    }
+
+    /**
+     * Normalizes names of tables via {@link #normalize(String)}
+     *
+     * @param tables names of tables
+     * @return new set with names of tables in lower case
+     */
+    @NonNull
+    public static Set<String> normalize(@NonNull Collection<String> tables) {
+        final Set<String> normalizedTables = new HashSet<String>(tables.size() * 2);
+
+        for (String table : tables) {
+            normalizedTables.add(normalize(table));
+        }
+
+        return normalizedTables;
+    }
+
+    private static class Result {
+
+        @Nullable
+        final Set<String> readTables;
+
+        @Nullable
+        final Set<String> writtenTables;
+
+        Result(@Nullable Set<String> readTables, @Nullable Set<String> writtenTables) {
+            this.readTables = readTables;
+            this.writtenTables = writtenTables;
+        }
+    }
+
+    @NonNull
+    private static Result parse(@NonNull String sql) {
+        checkNotNull(sql, "Please specify SQL statement");
+
+        synchronized (CACHE) {
+            final Result result = CACHE.get(sql);
+
+            if (result != null) {
+                return result;
+            }
+        }
+
+        Result result;
+
+        try {
+            final List<Token> tokens = tokenize(sql);
+
+            result = new Result(
+                    Collections.unmodifiableSet(new Parser(tokens).readTables()),
+                    Collections.unmodifiableSet(writtenTables(tokens))
+            );
+        } catch (IllegalArgumentException e) {
+            result = new Result(null, null);
+        }
+
+        synchronized (CACHE) {
+            CACHE.put(sql, result);
+        }
+
+        return result;
+    }
+
+    private static class Token {
+
+        @NonNull
+        final String text;
+
+        final boolean identifier;
+
+        final boolean quoted;
+
+        Token(@NonNull String text, boolean identifier, boolean quoted) {
+            this.text = text;
+            this.identifier = identifier;
+            this.quoted = quoted;
+        }
+
+        boolean isKeyword(@NonNull String keyword) {
+            return identifier && !quoted && text.equalsIgnoreCase(keyword);
+        }
+
+        boolean isReserved() {
+            return identifier && !quoted && RESERVED_WORDS.contains(text.toUpperCase(Locale.US));
+        }
+
+        boolean isPunctuation(char c) {
+            return !identifier && text.length() == 1 && text.charAt(0) == c;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if string literal or quoted identifier is not terminated
+     */
+    @NonNull
+    private static List<Token> tokenize(@NonNull String sql) {
+        final List<Token> tokens = new ArrayList<Token>();
+        final int length = sql.length();
+        int i = 0;
+
+        while (i < length) {
+            final char c = sql.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                final int end = sql.indexOf('\n', i);
+                i = end == -1 ? length : end + 1;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                final int end = sql.indexOf("*/", i + 2);
+                i = end == -1 ? length : end + 2;
+            } else if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+                tokens.add(new Token("'", false, false));
+            } else if (c == '"' || c == '`') {
+                final int end = skipQuoted(sql, i, c);
+                final String quote = String.valueOf(c);
+                tokens.add(new Token(sql.substring(i + 1, end - 1).replace(quote + quote, quote), true, true));
+                i = end;
+            } else if (c == '[') {
+                final int end = sql.indexOf(']', i + 1);
+
+                if (end == -1) {
+                    throw new IllegalArgumentException("Not terminated identifier");
+                }
+
+                tokens.add(new Token(sql.substring(i + 1, end), true, true));
+                i = end + 1;
+            } else if (isWordPart(c)) {
+                final int start = i;
+
+                while (i < length && isWordPart(sql.charAt(i))) {
+                    i++;
+                }
+
+                // words that start with digit are numbers
+                tokens.add(new Token(sql.substring(start, i), !Character.isDigit(c), false));
+            } else {
+                tokens.add(new Token(String.valueOf(c), false, false));
+                i++;
+            }
+        }
+
+        return tokens;
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c > 0x7F;
+    }
+
+    /**
+     * @return index after closing quote
+     */
+    private static int skipQuoted(@NonNull String sql, int start, char quote) {
+        int i = start + 1;
+
+        while (true) {
+            final int end = sql.indexOf(quote, i);
+
+            if (end == -1) {
+                throw new IllegalArgumentException("Not terminated literal");
+            }
+
+            // doubled quote is escaped quote
+            if (end + 1 < sql.length() && sql.charAt(end + 1) == quote) {
+                i = end + 2;
+            } else {
+                return end + 1;
+            }
+        }
+    }
+
+    private static class Parser {
+
+        @NonNull
+        private final List<Token> tokens;
+
+        @NonNull
+        private final Set<String> tables = new HashSet<String>();
+
+        /**
+         * Upper-cased names of common table expressions
+         */
+        @NonNull
+        private final Set<String> cteNames = new HashSet<String>();
+
+        Parser(@NonNull List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        @NonNull
+        Set<String> readTables() {
+            collectCteNames();
+            scan(0, tokens.size());
+
+            final Set<String> result = new HashSet<String>(tables.size());
+
+            for (String table : tables) {
+                if (!cteNames.contains(table.toUpperCase(Locale.US))) {
+                    result.add(table);
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Finds {@code name [(columns)] AS [NOT] [MATERIALIZED] (}
+         */
+        private void collectCteNames() {
+            for (int i = 0; i < tokens.size(); i++) {
+                final Token token = tokens.get(i);
+
+                if (!token.identifier || token.isReserved()) {
+                    continue;
+                }
+
+                int j = i + 1;
+
+                if (j < tokens.size() && tokens.get(j).isPunctuation('(')) {
+                    j = matchingParenthesis(j, tokens.size()) + 1;
+                }
+
+                if (j >= tokens.size() || !tokens.get(j).isKeyword("AS")) {
+                    continue;
+                }
+
+                j++;
+
+                if (j < tokens.size() && tokens.get(j).isKeyword("NOT")) {
+                    j++;
+                }
+
+                if (j < tokens.size() && tokens.get(j).isKeyword("MATERIALIZED")) {
+                    j++;
+                }
+
+                if (j < tokens.size() && tokens.get(j).isPunctuation('(')) {
+                    cteNames.add(token.text.toUpperCase(Locale.US));
+                }
+            }
+        }
+
+        private void scan(int from, int to) {
+            int i = from;
+
+            while (i < to) {
+                final Token token = tokens.get(i);
+
+                if ((token.isKeyword("FROM") && !isDistinctFrom(i)) || token.isKeyword("JOIN")) {
+                    i = parseTableList(i + 1, to);
+                } else {
+                    i++;
+                }
+            }
+        }
+
+        /**
+         * @return {@code true} if {@code FROM} at index is part of {@code IS [NOT] DISTINCT FROM}
+         */
+        private boolean isDistinctFrom(int index) {
+            return index >= 2
+                    && tokens.get(index - 1).isKeyword("DISTINCT")
+                    && (tokens.get(index - 2).isKeyword("IS") || tokens.get(index - 2).isKeyword("NOT"));
+        }
+
+        /**
+         * Parses comma-separated list of tables, subqueries and table-valued functions
+         *
+         * @return index of first token after the list
+         */
+        private int parseTableList(int from, int to) {
+            int i = from;
+
+            while (i < to) {
+                final Token token = tokens.get(i);
+
+                if (token.isPunctuation('(')) {
+                    // subquery or parenthesized join
+                    final int end = matchingParenthesis(i, to);
+                    scan(i + 1, end);
+                    i = end + 1;
+                } else if (token.identifier && !token.isReserved()) {
+                    String name = token.text;
+                    i++;
+
+                    if (i + 1 < to && tokens.get(i).isPunctuation('.') && tokens.get(i + 1).identifier) {
+                        // schema.table
+                        name = tokens.get(i + 1).text;
+                        i += 2;
+                    }
+
+                    if (i < to && tokens.get(i).isPunctuation('(')) {
+                        // table-valued function, its arguments can contain subqueries
+                        final int end = matchingParenthesis(i, to);
+                        scan(i + 1, end);
+                        i = end + 1;
+                    } else {
+                        tables.add(name);
+                    }
+                } else {
+                    return i;
+                }
+
+                i = skipAliasAndIndex(i, to);
+
+                if (i < to && tokens.get(i).isPunctuation(',')) {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+
+            return i;
+        }
+
+        private int skipAliasAndIndex(int from, int to) {
+            int i = from;
+
+            if (i < to && tokens.get(i).isKeyword("AS")) {
+                i += 2;
+            } else if (i < to && tokens.get(i).identifier && !tokens.get(i).isReserved()) {
+                i++;
+            }
+
+            if (i < to && tokens.get(i).isKeyword("INDEXED")) {
+                // INDEXED BY index
+                i += 3;
+            } else if (i + 1 < to && tokens.get(i).isKeyword("NOT") && tokens.get(i + 1).isKeyword("INDEXED")) {
+                i += 2;
+            }
+
+            return i;
+        }
+
+        /**
+         * @return index of closing parenthesis or {@code to - 1} if it's not found
+         */
+        private int matchingParenthesis(int openIndex, int to) {
+            int depth = 0;
+
+            for (int i = openIndex; i < to; i++) {
+                final Token token = tokens.get(i);
+
+                if (token.isPunctuation('(')) {
+                    depth++;
+                } else if (token.isPunctuation(')')) {
+                    depth--;
+
+                    if (depth == 0) {
+                        return i;
+                    }
+                }
+            }
+
+            return to - 1;
+        }
+    }
+
+    @NonNull
+    private static Set<String> writtenTables(@NonNull List<Token> tokens) {
+        int end = 0;
+
+        // only first statement is executed by SQLiteDatabase.execSQL()
+        while (end < tokens.size() && !tokens.get(end).isPunctuation(';')) {
+            end++;
+        }
+
+        int i = indexOfStatementKeyword(tokens, end);
+
+        if (i == -1) {
+            return Collections.emptySet();
+        }
+
+        final Token keyword = tokens.get(i);
+        i++;
+
+        if (keyword.isKeyword("INSERT") || keyword.isKeyword("REPLACE")) {
+            // INSERT [OR conflict] INTO table
+            while (i < end && !tokens.get(i).isKeyword("INTO")) {
+                i++;
+            }
+
+            i++;
+        } else if (keyword.isKeyword("UPDATE")) {
+            // UPDATE [OR conflict] table
+            if (i < end && tokens.get(i).isKeyword("OR")) {
+                i += 2;
+            }
+        } else if (keyword.isKeyword("DELETE")) {
+            // DELETE FROM table
+            i++;
+        } else if (keyword.isKeyword("DROP") || keyword.isKeyword("ALTER")) {
+            // DROP TABLE [IF EXISTS] table, ALTER TABLE table
+            if (i >= end || !tokens.get(i).isKeyword("TABLE")) {
+                return Collections.emptySet();
+            }
+
+            i++;
+
+            if (i + 1 < end && tokens.get(i).isKeyword("IF") && tokens.get(i + 1).isKeyword("EXISTS")) {
+                i += 2;
+            }
+        } else {
+            return Collections.emptySet();
+        }
+
+        if (i >= end || !tokens.get(i).identifier) {
+            return Collections.emptySet();
+        }
+
+        String table = tokens.get(i).text;
+
+        if (i + 2 < end && tokens.get(i + 1).isPunctuation('.') && tokens.get(i + 2).identifier) {
+            // schema.table
+            table = tokens.get(i + 2).text;
+        }
+
+        return Collections.singleton(table);
+    }
+
+    /**
+     * @return index of keyword of the statement, skipping leading {@code WITH} clause, or {@code -1}
+     */
+    private static int indexOfStatementKeyword(@NonNull List<Token> tokens, int end) {
+        if (end == 0) {
+            return -1;
+        }
+
+        if (!tokens.get(0).isKeyword("WITH")) {
+            return 0;
+        }
+
+        int depth = 0;
+
+        for (int i = 1; i < end; i++) {
+            final Token token = tokens.get(i);
+
+            if (token.isPunctuation('(')) {
+                depth++;
+            } else if (token.isPunctuation(')')) {
+                depth--;
+            } else if (depth == 0
+                    && (token.isKeyword("INSERT") || token.isKeyword("REPLACE")
+                    || token.isKeyword("UPDATE") || token.isKeyword("DELETE") || token.isKeyword("SELECT"))) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -8,6 +8,7 @@ import com.pushtorefresh.storio.util.QueryUtil;
 import java.util.List;
 
 import static com.pushtorefresh.storio.util.Checks.checkNotEmpty;
+import static com.pushtorefresh.storio.util.Checks.checkNotNull;
 
 /**
  * Update query for {@link com.pushtorefresh.storio.sqlite.StorIOSQLite}
@@ -38,13 +39,28 @@ public class UpdateQuery {
     @Nullable
     public final List<String> whereArgs;
 
+    /**
+     * What should be done if updated row violates constraint
+     */
+    @NonNull
+    public final ConflictStrategy conflictStrategy;
+
     /**
      * Please use {@link com.pushtorefresh.storio.sqlite.query.UpdateQuery.Builder} instead of constructor
      */
     protected UpdateQuery(@NonNull String table, @Nullable String where, @Nullable List<String> whereArgs) {
+        this(table, where, whereArgs, ConflictStrategy.ABORT);
+    }
+
+    /**
+     * Please use {@link com.pushtorefresh.storio.sqlite.query.UpdateQuery.Builder} instead of constructor
+     */
+    protected UpdateQuery(@NonNull String table, @Nullable String where, @Nullable List<String> whereArgs,
+                          @NonNull ConflictStrategy conflictStrategy) {
         this.table = table;
         this.where = where;
         this.whereArgs = QueryUtil.listToUnmodifiable(whereArgs);
+        this.conflictStrategy = conflictStrategy;
     }
 
     @Override
@@ -56,7 +72,9 @@ public class UpdateQuery {
 
         if (!table.equals(that.table)) return false;
         if (where != null ? !where.equals(that.where) : that.where != null) return false;
-        return !(whereArgs != null ? !whereArgs.equals(that.whereArgs) : that.whereArgs != null);
+        if (whereArgs != null ? !whereArgs.equals(that.whereArgs) : that.whereArgs != null)
+            return false;
+        return conflictStrategy == that.conflictStrategy;
     }
 
     @Override
@@ -64,6 +82,7 @@ public class UpdateQuery {
         int result = table.hashCode();
         result = 31 * result + (where != null ? where.hashCode() : 0);
         result = 31 * result + (whereArgs != null ? whereArgs.hashCode() : 0);
+        result = 31 * result + conflictStrategy.hashCode();
         return result;
     }
 
@@ -73,6 +92,7 @@ public class UpdateQuery {
                 "table='" + table + '\'' +
                 ", where='" + where + '\'' +
                 ", whereArgs=" + whereArgs +
+                ", conflictStrategy=" + conflictStrategy +
                 '}';
     }
 
@@ -103,6 +123,7 @@ public class UpdateQuery {
 
         private String where;
         private List<String> whereArgs;
+        private ConflictStrategy conflictStrategy = ConflictStrategy.ABORT;
 
         CompleteBuilder(@NonNull Builder builder) {
             table = builder.table;
@@ -154,6 +175,20 @@ public class UpdateQuery {
             return this;
         }
 
+        /**
+         * Optional: Specifies what should be done if updated row violates constraint
+         * <p>
+         * Default value is {@link ConflictStrategy#ABORT}
+         *
+         * @param conflictStrategy non-null conflict strategy
+         * @return builder
+         */
+        @NonNull
+        public CompleteBuilder conflictStrategy(@NonNull ConflictStrategy conflictStrategy) {
+            this.conflictStrategy = conflictStrategy;
+            return this;
+        }
+
         /**
          * Builds immutable instance of {@link UpdateQuery}
          *
@@ -162,11 +197,13 @@ public class UpdateQuery {
         @NonNull
         public UpdateQuery build() {
             checkNotEmpty(table, "Please specify table name");
+            checkNotNull(conflictStrategy, "Please specify conflict strategy");
 
             return new UpdateQuery(
                     table,
                     where,
-                    whereArgs
+                    whereArgs,
+                    conflictStrategy
             );
         }
     }
@@ -2,10 +2,14 @@ package com.pushtorefresh.storio.sqlite;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class ChangesTest {
@@ -44,4 +48,55 @@ public class ChangesTest {
         final Changes changes = Changes.newInstance(affectedTables);
         assertEquals(affectedTables, changes.affectedTables());
     }
+
+    @Test
+    public void affectsRowOfTableWithKnownRows() {
+        final Changes changes = Changes.newInstance("users", Arrays.asList(1L, 2L));
+
+        assertEquals(Collections.singleton("users"), changes.affectedTables());
+        assertEquals(new HashSet<Long>(Arrays.asList(1L, 2L)), changes.affectedRowIds("users"));
+        assertTrue(changes.affectsRow("users", 2L));
+        assertFalse(changes.affectsRow("users", 3L));
+        assertFalse(changes.affectsRow("tweets", 1L));
+    }
+
+    @Test
+    public void affectsAnyRowOfTableWithUnknownRows() {
+        final Changes changes = Changes.newInstance("users");
+
+        assertNull(changes.affectedRowIds("users"));
+        assertTrue(changes.affectsRow("users", 42L));
+    }
+
+    @Test
+    public void builderMergesRowsOfSameTable() {
+        final Changes changes = new Changes.Builder()
+                .addChanges(Changes.newInstance("users", Collections.singleton(1L)))
+                .addRow("users", 2L)
+                .addRows("tweets", Arrays.asList(3L, 4L))
+                .build();
+
+        assertEquals(new HashSet<String>(Arrays.asList("users", "tweets")), changes.affectedTables());
+        assertEquals(new HashSet<Long>(Arrays.asList(1L, 2L)), changes.affectedRowIds("users"));
+        assertEquals(new HashSet<Long>(Arrays.asList(3L, 4L)), changes.affectedRowIds("tweets"));
+    }
+
+    @Test
+    public void unknownRowsOfTableWinDuringMerge() {
+        final Changes changes = new Changes.Builder()
+                .addRow("users", 1L)
+                .addChanges(Changes.newInstance("users"))
+                .addRow("users", 2L)
+                .build();
+
+        assertEquals(Changes.newInstance("users"), changes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rowsOfNotAffectedTable() {
+        Changes.newInstance(
+                Collections.singleton("users"),
+                Collections.singletonMap("tweets", Collections.singleton(1L))
+        );
+    }
 }
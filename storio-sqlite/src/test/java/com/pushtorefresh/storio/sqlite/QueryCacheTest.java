@@ -0,0 +1,133 @@
+package com.pushtorefresh.storio.sqlite;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class QueryCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroMaxEntries() {
+        new QueryCache(0, 1024);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroMaxSize() {
+        new QueryCache(10, 0);
+    }
+
+    @Test
+    public void getCountsHitsAndMisses() {
+        final QueryCache queryCache = new QueryCache(10, 1024);
+
+        assertNull(queryCache.get("key"));
+
+        queryCache.put("key", Collections.singleton("table"), Arrays.asList("a", "b"), 10, queryCache.version());
+
+        final List<String> result = queryCache.get("key");
+        assertEquals(Arrays.asList("a", "b"), result);
+
+        assertEquals(1, queryCache.hitCount());
+        assertEquals(1, queryCache.missCount());
+    }
+
+    @Test
+    public void invalidateRemovesOnlyResultsOfChangedTables() {
+        final QueryCache queryCache = new QueryCache(10, 1024);
+
+        queryCache.put("users", Collections.singleton("users"), Collections.singletonList("user"), 10, queryCache.version());
+        queryCache.put("tweets", Collections.singleton("tweets"), Collections.singletonList("tweet"), 20, queryCache.version());
+
+        queryCache.invalidate(Collections.singleton("tweets"));
+
+        assertNull(queryCache.get("tweets"));
+        assertEquals(Collections.singletonList("user"), queryCache.get("users"));
+        assertEquals(1, queryCache.entryCount());
+        assertEquals(10, queryCache.sizeInBytes());
+    }
+
+    @Test
+    public void invalidateComparesTablesCaseInsensitively() {
+        final QueryCache queryCache = new QueryCache(10, 1024);
+
+        queryCache.put("users", Collections.singleton("Users"), Collections.singletonList("user"), 10, queryCache.version());
+
+        queryCache.invalidate(Collections.singleton("USERS"));
+
+        assertNull(queryCache.get("users"));
+    }
+
+    @Test
+    public void resultOfQueryRacedWithInvalidationIsNotCached() {
+        final QueryCache queryCache = new QueryCache(10, 1024);
+
+        final long versionBeforeQuery = queryCache.version();
+
+        // write to the table happened while query was executing
+        queryCache.invalidate(Collections.singleton("users"));
+
+        queryCache.put("users", Collections.singleton("users"), Collections.singletonList("user"), 10, versionBeforeQuery);
+        assertNull(queryCache.get("users"));
+
+        // changes of other tables don't affect the result
+        final long versionBeforeSecondQuery = queryCache.version();
+        queryCache.invalidate(Collections.singleton("tweets"));
+
+        queryCache.put("users", Collections.singleton("users"), Collections.singletonList("user"), 10, versionBeforeSecondQuery);
+        assertEquals(Collections.singletonList("user"), queryCache.get("users"));
+    }
+
+    @Test
+    public void leastRecentlyUsedResultIsEvictedWhenMaxEntriesExceeded() {
+        final QueryCache queryCache = new QueryCache(2, 1024);
+
+        queryCache.put("key1", Collections.singleton("table"), Collections.singletonList(1), 10, queryCache.version());
+        queryCache.put("key2", Collections.singleton("table"), Collections.singletonList(2), 10, queryCache.version());
+
+        // key1 becomes most recently used
+        queryCache.get("key1");
+
+        queryCache.put("key3", Collections.singleton("table"), Collections.singletonList(3), 10, queryCache.version());
+
+        assertNull(queryCache.get("key2"));
+        assertEquals(Collections.singletonList(1), queryCache.get("key1"));
+        assertEquals(Collections.singletonList(3), queryCache.get("key3"));
+        assertEquals(1, queryCache.evictionCount());
+    }
+
+    @Test
+    public void resultsAreEvictedWhenMaxSizeExceeded() {
+        final QueryCache queryCache = new QueryCache(10, 100);
+
+        queryCache.put("key1", Collections.singleton("table"), Collections.singletonList(1), 60, queryCache.version());
+        queryCache.put("key2", Collections.singleton("table"), Collections.singletonList(2), 60, queryCache.version());
+
+        assertNull(queryCache.get("key1"));
+        assertEquals(60, queryCache.sizeInBytes());
+
+        // result bigger than cache is not cached at all
+        queryCache.put("key3", Collections.singleton("table"), Collections.singletonList(3), 101, queryCache.version());
+        assertNull(queryCache.get("key3"));
+        assertEquals(Collections.singletonList(2), queryCache.get("key2"));
+    }
+
+    @Test
+    public void resultOfQueryStartedBeforeClearIsNotCached() {
+        final QueryCache queryCache = new QueryCache(10, 100);
+
+        final long versionBeforeQuery = queryCache.version();
+
+        queryCache.clear();
+
+        queryCache.put("key", Collections.singleton("table"), Collections.singletonList(1), 10, versionBeforeQuery);
+        assertNull(queryCache.get("key"));
+
+        queryCache.put("key", Collections.singleton("table"), Collections.singletonList(1), 10, queryCache.version());
+        assertEquals(Collections.singletonList(1), queryCache.get("key"));
+    }
+}
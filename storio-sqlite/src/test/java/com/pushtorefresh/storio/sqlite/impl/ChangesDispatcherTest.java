@@ -0,0 +1,145 @@
+package com.pushtorefresh.storio.sqlite.impl;
+
+import com.pushtorefresh.storio.sqlite.Changes;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+public class ChangesDispatcherTest {
+
+    @Test
+    public void changesAreDeliveredOnlyToSubscribersOfAffectedTables() {
+        final ChangesDispatcher changesDispatcher = ChangesDispatcher.newInstance();
+
+        final TestSubscriber<Changes> usersSubscriber = new TestSubscriber<Changes>();
+        final TestSubscriber<Changes> tweetsSubscriber = new TestSubscriber<Changes>();
+
+        changesDispatcher.observeChangesInTables(Collections.singleton("users")).subscribe(usersSubscriber);
+        changesDispatcher.observeChangesInTables(Collections.singleton("tweets")).subscribe(tweetsSubscriber);
+
+        final Changes changes = Changes.newInstance("users");
+        changesDispatcher.dispatch(changes);
+
+        usersSubscriber.assertReceivedOnNext(Collections.singletonList(changes));
+        tweetsSubscriber.assertReceivedOnNext(Collections.<Changes>emptyList());
+    }
+
+    @Test
+    public void subscriberOfSeveralAffectedTablesReceivesChangesOnce() {
+        final ChangesDispatcher changesDispatcher = ChangesDispatcher.newInstance();
+
+        final TestSubscriber<Changes> testSubscriber = new TestSubscriber<Changes>();
+
+        changesDispatcher
+                .observeChangesInTables(new HashSet<String>(Arrays.asList("users", "tweets")))
+                .subscribe(testSubscriber);
+
+        final Changes changes = Changes.newInstance(new HashSet<String>(Arrays.asList("users", "tweets", "likes")));
+        changesDispatcher.dispatch(changes);
+
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(changes));
+    }
+
+    @Test
+    public void unsubscribedSubscriberDoesNotReceiveChanges() {
+        final ChangesDispatcher changesDispatcher = ChangesDispatcher.newInstance();
+
+        final TestSubscriber<Changes> testSubscriber1 = new TestSubscriber<Changes>();
+        final TestSubscriber<Changes> testSubscriber2 = new TestSubscriber<Changes>();
+
+        final Subscription subscription1 = changesDispatcher
+                .observeChangesInTables(Collections.singleton("users"))
+                .subscribe(testSubscriber1);
+
+        changesDispatcher
+                .observeChangesInTables(Collections.singleton("users"))
+                .subscribe(testSubscriber2);
+
+        subscription1.unsubscribe();
+
+        final Changes changes = Changes.newInstance("users");
+        changesDispatcher.dispatch(changes);
+
+        testSubscriber1.assertReceivedOnNext(Collections.<Changes>emptyList());
+        testSubscriber2.assertReceivedOnNext(Collections.singletonList(changes));
+    }
+
+    @Test
+    public void asyncDispatcherDeliversChangesInOrderOnScheduler() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final ChangesDispatcher changesDispatcher = ChangesDispatcher.newAsyncInstance(testScheduler);
+
+        final TestSubscriber<Changes> testSubscriber = new TestSubscriber<Changes>();
+
+        changesDispatcher.observeChangesInTables(Collections.singleton("users")).subscribe(testSubscriber);
+
+        final Changes changes1 = Changes.newInstance("users", Collections.singleton(1L));
+        final Changes changes2 = Changes.newInstance("users", Collections.singleton(2L));
+        final Changes changes3 = Changes.newInstance("users");
+
+        changesDispatcher.dispatch(changes1);
+
+        testSubscriber.assertReceivedOnNext(Collections.<Changes>emptyList());
+
+        testScheduler.triggerActions();
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(changes1));
+
+        changesDispatcher.dispatch(changes2);
+        testScheduler.triggerActions();
+
+        changesDispatcher.dispatch(changes3);
+        testScheduler.triggerActions();
+
+        testSubscriber.assertReceivedOnNext(Arrays.asList(changes1, changes2, changes3));
+    }
+
+    @Test
+    public void asyncDispatcherMergesChangesQueuedWhileSubscriberIsBusy() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final ChangesDispatcher changesDispatcher = ChangesDispatcher.newAsyncInstance(testScheduler);
+
+        final TestSubscriber<Changes> testSubscriber = new TestSubscriber<Changes>();
+
+        changesDispatcher
+                .observeChangesInTables(new HashSet<String>(Arrays.asList("users", "tweets")))
+                .subscribe(testSubscriber);
+
+        changesDispatcher.dispatch(Changes.newInstance("users", Collections.singleton(1L)));
+        changesDispatcher.dispatch(Changes.newInstance("users", Collections.singleton(2L)));
+        changesDispatcher.dispatch(Changes.newInstance("tweets"));
+
+        testScheduler.triggerActions();
+
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(
+                new Changes.Builder()
+                        .addRows("users", Arrays.asList(1L, 2L))
+                        .addTable("tweets")
+                        .build()
+        ));
+    }
+
+    @Test
+    public void asyncDispatcherDoesNotDeliverQueuedChangesAfterUnsubscribe() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final ChangesDispatcher changesDispatcher = ChangesDispatcher.newAsyncInstance(testScheduler);
+
+        final TestSubscriber<Changes> testSubscriber = new TestSubscriber<Changes>();
+
+        final Subscription subscription = changesDispatcher
+                .observeChangesInTables(Collections.singleton("users"))
+                .subscribe(testSubscriber);
+
+        changesDispatcher.dispatch(Changes.newInstance("users"));
+        subscription.unsubscribe();
+
+        testScheduler.triggerActions();
+        testSubscriber.assertReceivedOnNext(Collections.<Changes>emptyList());
+    }
+}
@@ -1,11 +1,46 @@
 package com.pushtorefresh.storio.sqlite.impl;
 
+import android.content.ContentValues;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+import com.pushtorefresh.storio.operation.PreparedOperation;
+import com.pushtorefresh.storio.sqlite.Changes;
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+import com.pushtorefresh.storio.sqlite.query.InsertQuery;
+import com.pushtorefresh.storio.sqlite.query.Query;
+import com.pushtorefresh.storio.sqlite.query.RawQuery;
 
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import rx.Observable;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.fail;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -41,4 +76,662 @@ public class DefaultStorIOSQLiteTest {
 
         verify(sqLiteOpenHelper, times(1)).getWritableDatabase();
     }
+
+    @Test
+    public void writeAheadLoggingIsEnabledOnHoneycombAndNewer() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+
+        DefaultStorIOSQLite.enableWriteAheadLoggingIfSupported(db, Build.VERSION_CODES.HONEYCOMB);
+        DefaultStorIOSQLite.enableWriteAheadLoggingIfSupported(db, Build.VERSION_CODES.JELLY_BEAN);
+
+        verify(db, times(2)).enableWriteAheadLogging();
+    }
+
+    @Test
+    public void writeAheadLoggingIsNotEnabledBeforeHoneycomb() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+
+        DefaultStorIOSQLite.enableWriteAheadLoggingIfSupported(db, Build.VERSION_CODES.GINGERBREAD_MR1);
+
+        verify(db, never()).enableWriteAheadLogging();
+    }
+
+    @Test
+    public void writeAheadLoggingIsEnabledOnlyIfRequested() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+
+        new DefaultStorIOSQLite.Builder()
+                .db(db)
+                .build();
+
+        verify(db, never()).enableWriteAheadLogging();
+
+        new DefaultStorIOSQLite.Builder()
+                .db(db)
+                .enableWriteAheadLogging()
+                .build();
+
+        verify(db, Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB ? times(1) : never())
+                .enableWriteAheadLogging();
+    }
+
+    @Test
+    public void schemaChangeClearsStatementCache() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final SQLiteStatement statement = mock(SQLiteStatement.class);
+
+        when(db.compileStatement("INSERT INTO users(name) VALUES (?)"))
+                .thenReturn(statement);
+
+        final ContentValues contentValues = mock(ContentValues.class);
+
+        when(contentValues.size())
+                .thenReturn(1);
+
+        when(contentValues.valueSet())
+                .thenReturn(Collections.<String, Object>singletonMap("name", "artem").entrySet());
+
+        final StorIOSQLite.Internal internal = new DefaultStorIOSQLite.Builder()
+                .db(db)
+                .build()
+                .internal();
+
+        final InsertQuery insertQuery = new InsertQuery.Builder()
+                .table("users")
+                .build();
+
+        internal.insert(insertQuery, contentValues);
+        internal.execSql(new RawQuery.Builder().query("UPDATE users SET name = 'a'").build());
+        internal.insert(insertQuery, contentValues);
+        verify(db, times(1)).compileStatement("INSERT INTO users(name) VALUES (?)");
+
+        internal.execSql(new RawQuery.Builder().query(" alter TABLE users ADD COLUMN email TEXT").build());
+        verify(statement, times(1)).close();
+
+        internal.insert(insertQuery, contentValues);
+        verify(db, times(2)).compileStatement("INSERT INTO users(name) VALUES (?)");
+    }
+
+    @Test
+    public void closeClosesDb() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+
+        new DefaultStorIOSQLite.Builder()
+                .db(db)
+                .build()
+                .close();
+
+        verify(db, times(1)).close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeNotificationsWindow() {
+        new DefaultStorIOSQLite.Builder()
+                .db(mock(SQLiteDatabase.class))
+                .coalesceNotifications(-1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void changesDuringWindowAreMergedIntoOneNotification() {
+        final TestScheduler testScheduler = new TestScheduler();
+
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(mock(SQLiteDatabase.class))
+                .coalesceNotifications(100, TimeUnit.MILLISECONDS, testScheduler)
+                .build();
+
+        final TestSubscriber<Changes> testSubscriber = new TestSubscriber<Changes>();
+
+        storIOSQLite
+                .observeChangesInTables(new HashSet<String>(Arrays.asList("table1", "table2")))
+                .subscribe(testSubscriber);
+
+        for (int i = 0; i < 1000; i++) {
+            storIOSQLite.internal().notifyAboutChanges(Changes.newInstance("table1"));
+        }
+
+        storIOSQLite.internal().notifyAboutChanges(Changes.newInstance("table2"));
+
+        testScheduler.advanceTimeBy(99, TimeUnit.MILLISECONDS);
+        testSubscriber.assertReceivedOnNext(Collections.<Changes>emptyList());
+
+        testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(
+                Changes.newInstance(new HashSet<String>(Arrays.asList("table1", "table2")))
+        ));
+
+        // next change opens new window
+        storIOSQLite.internal().notifyAboutChanges(Changes.newInstance("table1"));
+        testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        assertEquals(2, testSubscriber.getOnNextEvents().size());
+        assertEquals(Changes.newInstance("table1"), testSubscriber.getOnNextEvents().get(1));
+    }
+
+    @Test
+    public void asyncObserversReceiveChangesOnScheduler() {
+        final TestScheduler testScheduler = new TestScheduler();
+
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(mock(SQLiteDatabase.class))
+                .notifyObserversAsync(testScheduler)
+                .build();
+
+        final TestSubscriber<Changes> testSubscriber = new TestSubscriber<Changes>();
+
+        storIOSQLite
+                .observeChangesInTable("users")
+                .subscribe(testSubscriber);
+
+        final Changes changes1 = Changes.newInstance("users", Collections.singleton(1L));
+        final Changes changes2 = Changes.newInstance("users", Collections.singleton(2L));
+
+        storIOSQLite.internal().notifyAboutChanges(changes1);
+        testSubscriber.assertReceivedOnNext(Collections.<Changes>emptyList());
+
+        testScheduler.triggerActions();
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(changes1));
+
+        storIOSQLite.internal().notifyAboutChanges(changes2);
+        testScheduler.triggerActions();
+        testSubscriber.assertReceivedOnNext(Arrays.asList(changes1, changes2));
+    }
+
+    @Test
+    public void firstQueryOfStreamIsExecutedOnDefaultScheduler() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final Cursor cursor = mock(Cursor.class);
+
+        when(db.query(false, "users", null, null, null, null, null, null, null))
+                .thenReturn(cursor);
+
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(db)
+                .defaultScheduler(testScheduler)
+                .build();
+
+        final TestSubscriber<Cursor> testSubscriber = new TestSubscriber<Cursor>();
+
+        final Observable<Cursor> queryStream = storIOSQLite
+                .get()
+                .cursor()
+                .withQuery(new Query.Builder()
+                        .table("users")
+                        .build())
+                .prepare()
+                .createObservableStream();
+
+        queryStream.subscribe(testSubscriber);
+
+        verify(db, never()).query(false, "users", null, null, null, null, null, null, null);
+        testSubscriber.assertReceivedOnNext(Collections.<Cursor>emptyList());
+
+        testScheduler.triggerActions();
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(cursor));
+
+        // next queries are executed on the thread which delivers changes
+        storIOSQLite.internal().notifyAboutChanges(Changes.newInstance("users"));
+        testSubscriber.assertReceivedOnNext(Arrays.asList(cursor, cursor));
+    }
+
+    @Test
+    public void changesOfRowsDuringWindowAreMerged() {
+        final TestScheduler testScheduler = new TestScheduler();
+
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(mock(SQLiteDatabase.class))
+                .coalesceNotifications(100, TimeUnit.MILLISECONDS, testScheduler)
+                .build();
+
+        final TestSubscriber<Changes> testSubscriber = new TestSubscriber<Changes>();
+
+        storIOSQLite
+                .observeChangesInTable("users")
+                .subscribe(testSubscriber);
+
+        storIOSQLite.internal().notifyAboutChanges(Changes.newInstance("users", Collections.singleton(1L)));
+        storIOSQLite.internal().notifyAboutChanges(Changes.newInstance("users", Collections.singleton(2L)));
+
+        testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(
+                Changes.newInstance("users", Arrays.asList(1L, 2L))
+        ));
+    }
+
+    @Test
+    public void observeChangesOfRowsSkipsChangesOfOtherRows() {
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(mock(SQLiteDatabase.class))
+                .build();
+
+        final TestSubscriber<Changes> testSubscriber = new TestSubscriber<Changes>();
+
+        storIOSQLite
+                .observeChangesOfRows("users", Arrays.asList(1L, 2L))
+                .subscribe(testSubscriber);
+
+        final Changes changesOfOtherRow = Changes.newInstance("users", Collections.singleton(3L));
+        final Changes changesOfObservedRow = Changes.newInstance("users", Arrays.asList(2L, 3L));
+        final Changes changesOfUnknownRows = Changes.newInstance("users");
+        final Changes changesOfOtherTable = Changes.newInstance("tweets", Collections.singleton(1L));
+
+        storIOSQLite.internal().notifyAboutChanges(changesOfOtherRow);
+        storIOSQLite.internal().notifyAboutChanges(changesOfObservedRow);
+        storIOSQLite.internal().notifyAboutChanges(changesOfUnknownRows);
+        storIOSQLite.internal().notifyAboutChanges(changesOfOtherTable);
+
+        testSubscriber.assertReceivedOnNext(Arrays.asList(changesOfObservedRow, changesOfUnknownRows));
+    }
+
+    @Test
+    public void namesOfTablesAreMatchedCaseInsensitively() {
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(mock(SQLiteDatabase.class))
+                .build();
+
+        final TestSubscriber<Changes> testSubscriber = new TestSubscriber<Changes>();
+
+        storIOSQLite
+                .observeChangesOfRows("Users", Collections.singleton(1L))
+                .subscribe(testSubscriber);
+
+        storIOSQLite.internal().notifyAboutChanges(Changes.newInstance("USERS", Collections.singleton(2L)));
+        storIOSQLite.internal().notifyAboutChanges(Changes.newInstance("USERS", Collections.singleton(1L)));
+
+        // changes are delivered as they were sent
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(
+                Changes.newInstance("USERS", Collections.singleton(1L))
+        ));
+    }
+
+    @Test
+    public void changesInTransactionAreSentOnceAfterCommitOfOutermostTransaction() {
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(mock(SQLiteDatabase.class))
+                .build();
+
+        final TestSubscriber<Changes> testSubscriber = new TestSubscriber<Changes>();
+
+        storIOSQLite
+                .observeChangesInTables(new HashSet<String>(Arrays.asList("table1", "table2")))
+                .subscribe(testSubscriber);
+
+        final StorIOSQLite.Internal internal = storIOSQLite.internal();
+
+        internal.beginTransaction();
+        internal.notifyAboutChanges(Changes.newInstance("table1"));
+
+        internal.beginTransaction();
+        internal.notifyAboutChanges(Changes.newInstance("table2"));
+        internal.setTransactionSuccessful();
+        internal.endTransaction();
+
+        // nested transaction was committed, but outer is still in progress
+        testSubscriber.assertReceivedOnNext(Collections.<Changes>emptyList());
+
+        internal.setTransactionSuccessful();
+        internal.endTransaction();
+
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(
+                Changes.newInstance(new HashSet<String>(Arrays.asList("table1", "table2")))
+        ));
+
+        // no transaction -> immediate notification
+        internal.notifyAboutChanges(Changes.newInstance("table1"));
+        assertEquals(2, testSubscriber.getOnNextEvents().size());
+    }
+
+    @Test
+    public void changesInRolledBackTransactionAreDropped() {
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(mock(SQLiteDatabase.class))
+                .build();
+
+        final TestSubscriber<Changes> testSubscriber = new TestSubscriber<Changes>();
+
+        storIOSQLite
+                .observeChangesInTables(Collections.singleton("table1"))
+                .subscribe(testSubscriber);
+
+        final StorIOSQLite.Internal internal = storIOSQLite.internal();
+
+        internal.beginTransaction();
+        internal.notifyAboutChanges(Changes.newInstance("table1"));
+        internal.endTransaction();
+
+        // nested transaction was not successful -> whole transaction is rolled back
+        internal.beginTransaction();
+        internal.beginTransaction();
+        internal.notifyAboutChanges(Changes.newInstance("table1"));
+        internal.endTransaction();
+        internal.setTransactionSuccessful();
+        internal.endTransaction();
+
+        testSubscriber.assertReceivedOnNext(Collections.<Changes>emptyList());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroMaxWriteBatchSize() {
+        new DefaultStorIOSQLite.Builder()
+                .db(mock(SQLiteDatabase.class))
+                .batchWrites(10, TimeUnit.MILLISECONDS, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void writesDuringWindowShareOneTransaction() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(db)
+                .batchWrites(10, TimeUnit.MILLISECONDS, 100, testScheduler)
+                .build();
+
+        final PreparedOperation<String> write1 = mock(PreparedOperation.class);
+        final PreparedOperation<String> write2 = mock(PreparedOperation.class);
+
+        when(write1.executeAsBlocking()).thenReturn("result1");
+        when(write2.executeAsBlocking()).thenReturn("result2");
+
+        final TestSubscriber<String> testSubscriber1 = new TestSubscriber<String>();
+        final TestSubscriber<String> testSubscriber2 = new TestSubscriber<String>();
+
+        storIOSQLite.internal().createWriteObservable(write1).subscribe(testSubscriber1);
+        storIOSQLite.internal().createWriteObservable(write2).subscribe(testSubscriber2);
+
+        testScheduler.advanceTimeBy(9, TimeUnit.MILLISECONDS);
+        verify(write1, never()).executeAsBlocking();
+        testSubscriber1.assertReceivedOnNext(Collections.<String>emptyList());
+
+        testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+        verify(db, times(1)).beginTransaction();
+        verify(db, times(1)).setTransactionSuccessful();
+        verify(db, times(1)).endTransaction();
+
+        testSubscriber1.assertReceivedOnNext(Collections.singletonList("result1"));
+        testSubscriber1.assertTerminalEvent();
+        testSubscriber2.assertReceivedOnNext(Collections.singletonList("result2"));
+        testSubscriber2.assertTerminalEvent();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void fullWriteBatchIsExecutedWithoutWaitingForWindow() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(db)
+                .batchWrites(1, TimeUnit.SECONDS, 2, testScheduler)
+                .build();
+
+        final PreparedOperation<String> write = mock(PreparedOperation.class);
+        when(write.executeAsBlocking()).thenReturn("result");
+
+        final List<TestSubscriber<String>> testSubscribers = new ArrayList<TestSubscriber<String>>();
+
+        for (int i = 0; i < 3; i++) {
+            final TestSubscriber<String> testSubscriber = new TestSubscriber<String>();
+            storIOSQLite.internal().createWriteObservable(write).subscribe(testSubscriber);
+            testSubscribers.add(testSubscriber);
+        }
+
+        testScheduler.triggerActions();
+
+        // two full batches: first one with 2 writes and second one with the rest
+        verify(write, times(3)).executeAsBlocking();
+        verify(db, times(2)).beginTransaction();
+        verify(db, times(2)).setTransactionSuccessful();
+
+        for (TestSubscriber<String> testSubscriber : testSubscribers) {
+            testSubscriber.assertReceivedOnNext(Collections.singletonList("result"));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void failedWriteRollsBackWholeBatch() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(db)
+                .batchWrites(10, TimeUnit.MILLISECONDS, 100, testScheduler)
+                .build();
+
+        final StorIOSQLite.Internal internal = storIOSQLite.internal();
+        final RuntimeException exception = new RuntimeException("test");
+
+        final PreparedOperation<String> write = mock(PreparedOperation.class);
+        final PreparedOperation<String> failingWrite = mock(PreparedOperation.class);
+
+        when(write.executeAsBlocking()).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                internal.beginTransaction();
+                internal.notifyAboutChanges(Changes.newInstance("table"));
+                internal.setTransactionSuccessful();
+                internal.endTransaction();
+                return "result";
+            }
+        });
+
+        when(failingWrite.executeAsBlocking()).thenThrow(exception);
+
+        final TestSubscriber<Changes> changesTestSubscriber = new TestSubscriber<Changes>();
+        storIOSQLite.observeChangesInTable("table").subscribe(changesTestSubscriber);
+
+        final TestSubscriber<String> testSubscriber = new TestSubscriber<String>();
+        final TestSubscriber<String> failingTestSubscriber = new TestSubscriber<String>();
+
+        internal.createWriteObservable(write).subscribe(testSubscriber);
+        internal.createWriteObservable(failingWrite).subscribe(failingTestSubscriber);
+
+        testScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        // nested transaction of the write and transaction of the batch
+        verify(db, times(2)).beginTransaction();
+        verify(db, times(1)).setTransactionSuccessful();
+        verify(db, times(2)).endTransaction();
+        verify(write, times(1)).executeAsBlocking();
+        verify(db, never()).execSQL(anyString());
+
+        assertSame(exception, testSubscriber.getOnErrorEvents().get(0));
+        assertSame(exception, failingTestSubscriber.getOnErrorEvents().get(0));
+        changesTestSubscriber.assertReceivedOnNext(Collections.<Changes>emptyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void writeSubscribedInsideOfTransactionIsExecutedInPlace() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+
+        when(db.inTransaction()).thenReturn(true);
+
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(db)
+                .batchWrites(10, TimeUnit.MILLISECONDS, 100, testScheduler)
+                .build();
+
+        final PreparedOperation<String> write = mock(PreparedOperation.class);
+        when(write.executeAsBlocking()).thenReturn("result");
+
+        final TestSubscriber<String> testSubscriber = new TestSubscriber<String>();
+
+        storIOSQLite.internal().createWriteObservable(write).subscribe(testSubscriber);
+
+        testSubscriber.assertReceivedOnNext(Collections.singletonList("result"));
+        verify(db, never()).beginTransaction();
+    }
+
+    @Test
+    public void queryStreamsWithEqualKeysShareOneSubscription() {
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(mock(SQLiteDatabase.class))
+                .build();
+
+        final AtomicInteger subscriptionsCount = new AtomicInteger();
+        final PublishSubject<String> results = PublishSubject.create();
+
+        final Observable<String> queryStream = results.doOnSubscribe(new Action0() {
+            @Override
+            public void call() {
+                subscriptionsCount.incrementAndGet();
+            }
+        });
+
+        final TestSubscriber<String> testSubscriber1 = new TestSubscriber<String>();
+        final TestSubscriber<String> testSubscriber2 = new TestSubscriber<String>();
+
+        final Subscription subscription1 = storIOSQLite.internal()
+                .shareQueryStream(Arrays.asList("query", "mapFunc"), queryStream)
+                .subscribe(testSubscriber1);
+
+        results.onNext("result1");
+
+        final Subscription subscription2 = storIOSQLite.internal()
+                .shareQueryStream(Arrays.asList("query", "mapFunc"), queryStream)
+                .subscribe(testSubscriber2);
+
+        assertEquals(1, subscriptionsCount.get());
+
+        // latest result is replayed to new subscriber
+        testSubscriber2.assertReceivedOnNext(Collections.singletonList("result1"));
+
+        results.onNext("result2");
+
+        testSubscriber1.assertReceivedOnNext(Arrays.asList("result1", "result2"));
+        testSubscriber2.assertReceivedOnNext(Arrays.asList("result1", "result2"));
+
+        subscription1.unsubscribe();
+        subscription2.unsubscribe();
+
+        assertEquals(false, results.hasObservers());
+
+        // stream was released by last subscriber -> new subscription to query stream
+        final TestSubscriber<String> testSubscriber3 = new TestSubscriber<String>();
+
+        storIOSQLite.internal()
+                .shareQueryStream(Arrays.asList("query", "mapFunc"), queryStream)
+                .subscribe(testSubscriber3);
+
+        assertEquals(2, subscriptionsCount.get());
+        testSubscriber3.assertReceivedOnNext(Collections.<String>emptyList());
+    }
+
+    @Test
+    public void sharedListStreamEmitsUnmodifiableLists() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final Cursor cursor = mock(Cursor.class);
+
+        when(db.query(false, "users", null, null, null, null, null, null, null))
+                .thenReturn(cursor);
+
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(db)
+                .build();
+
+        final MapFunc<Cursor, String> mapFunc = new MapFunc<Cursor, String>() {
+            @NonNull
+            @Override
+            public String map(@NonNull Cursor cursor) {
+                return "user";
+            }
+        };
+
+        final TestSubscriber<List<String>> testSubscriber = new TestSubscriber<List<String>>();
+
+        storIOSQLite
+                .get()
+                .listOfObjects(String.class)
+                .withMapFunc(mapFunc)
+                .withQuery(new Query.Builder()
+                        .table("users")
+                        .build())
+                .shareStream()
+                .prepare()
+                .createObservableStream()
+                .subscribe(testSubscriber);
+
+        testSubscriber.assertNoErrors();
+        assertEquals(1, testSubscriber.getOnNextEvents().size());
+
+        try {
+            testSubscriber.getOnNextEvents().get(0).add("other user");
+            fail("List shared between subscribers should be unmodifiable");
+        } catch (UnsupportedOperationException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void listStreamsAreNotSharedByDefault() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+
+        when(db.query(false, "users", null, null, null, null, null, null, null))
+                .thenReturn(mock(Cursor.class), mock(Cursor.class));
+
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(db)
+                .build();
+
+        final MapFunc<Cursor, String> mapFunc = new MapFunc<Cursor, String>() {
+            @NonNull
+            @Override
+            public String map(@NonNull Cursor cursor) {
+                return "user";
+            }
+        };
+
+        final TestSubscriber<List<String>> testSubscriber1 = new TestSubscriber<List<String>>();
+        final TestSubscriber<List<String>> testSubscriber2 = new TestSubscriber<List<String>>();
+
+        for (TestSubscriber<List<String>> testSubscriber : Arrays.asList(testSubscriber1, testSubscriber2)) {
+            storIOSQLite
+                    .get()
+                    .listOfObjects(String.class)
+                    .withMapFunc(mapFunc)
+                    .withQuery(new Query.Builder()
+                            .table("users")
+                            .build())
+                    .prepare()
+                    .createObservableStream()
+                    .subscribe(testSubscriber);
+        }
+
+        verify(db, times(2)).query(false, "users", null, null, null, null, null, null, null);
+
+        // each subscriber receives its own list
+        testSubscriber1.getOnNextEvents().get(0).add("other user");
+        testSubscriber2.assertReceivedOnNext(Collections.singletonList(Collections.<String>emptyList()));
+    }
+
+    @Test
+    public void queryStreamsWithDifferentKeysAreNotShared() {
+        final DefaultStorIOSQLite storIOSQLite = new DefaultStorIOSQLite.Builder()
+                .db(mock(SQLiteDatabase.class))
+                .build();
+
+        final AtomicInteger subscriptionsCount = new AtomicInteger();
+
+        final Observable<String> queryStream = Observable.just("result").doOnSubscribe(new Action0() {
+            @Override
+            public void call() {
+                subscriptionsCount.incrementAndGet();
+            }
+        });
+
+        storIOSQLite.internal()
+                .shareQueryStream("query1", queryStream)
+                .subscribe(new TestSubscriber<String>());
+
+        storIOSQLite.internal()
+                .shareQueryStream("query2", queryStream)
+                .subscribe(new TestSubscriber<String>());
+
+        assertEquals(2, subscriptionsCount.get());
+    }
 }
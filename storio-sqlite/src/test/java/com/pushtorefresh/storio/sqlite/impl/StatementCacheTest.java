@@ -0,0 +1,319 @@
+package com.pushtorefresh.storio.sqlite.impl;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.sqlite.query.ConflictStrategy;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StatementCacheTest {
+
+    @NonNull
+    private static ContentValues contentValues(@NonNull Map<String, Object> values) {
+        final ContentValues contentValues = mock(ContentValues.class);
+
+        when(contentValues.size())
+                .thenReturn(values.size());
+
+        when(contentValues.valueSet())
+                .thenReturn(values.entrySet());
+
+        return contentValues;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroMaxSize() {
+        new StatementCache(mock(SQLiteDatabase.class), 0);
+    }
+
+    @Test
+    public void insertCompilesStatementOnlyOnce() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final SQLiteStatement statement = mock(SQLiteStatement.class);
+
+        when(db.compileStatement("INSERT INTO users(email,name) VALUES (?,?)"))
+                .thenReturn(statement);
+
+        when(statement.executeInsert())
+                .thenReturn(1L, 2L);
+
+        final Map<String, Object> values = new HashMap<String, Object>();
+        values.put("name", "artem");
+        values.put("email", "artem@example.com");
+
+        final StatementCache statementCache = new StatementCache(db, 5);
+
+        assertEquals(1L, statementCache.insert("users", ConflictStrategy.ABORT, contentValues(values)));
+        assertEquals(2L, statementCache.insert("users", ConflictStrategy.ABORT, contentValues(values)));
+
+        verify(db, times(1)).compileStatement(anyString());
+        verify(statement, times(2)).bindString(1, "artem@example.com");
+        verify(statement, times(2)).bindString(2, "artem");
+        verify(statement, times(2)).clearBindings();
+    }
+
+    @Test
+    public void insertBindsValuesAccordingToType() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final SQLiteStatement statement = mock(SQLiteStatement.class);
+
+        when(db.compileStatement("INSERT INTO t(a,b,c,d,e) VALUES (?,?,?,?,?)"))
+                .thenReturn(statement);
+
+        final byte[] blob = {1, 2, 3};
+
+        final Map<String, Object> values = new HashMap<String, Object>();
+        values.put("a", 42);
+        values.put("b", 1.5d);
+        values.put("c", true);
+        values.put("d", blob);
+        values.put("e", null);
+
+        new StatementCache(db, 5).insert("t", ConflictStrategy.ABORT, contentValues(values));
+
+        verify(statement).bindLong(1, 42);
+        verify(statement).bindDouble(2, 1.5d);
+        verify(statement).bindLong(3, 1);
+        verify(statement).bindBlob(4, blob);
+        verify(statement).bindNull(5);
+    }
+
+    @Test
+    public void updateBindsWhereArgsAfterValues() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final SQLiteStatement statement = mock(SQLiteStatement.class);
+
+        when(db.compileStatement("UPDATE users SET name=? WHERE _id = ?"))
+                .thenReturn(statement);
+
+        when(statement.executeUpdateDelete())
+                .thenReturn(1);
+
+        final Map<String, Object> values = new HashMap<String, Object>();
+        values.put("name", "artem");
+
+        final int numberOfRowsUpdated = new StatementCache(db, 5)
+                .update("users", ConflictStrategy.ABORT, contentValues(values), "_id = ?", Arrays.asList("24"));
+
+        assertEquals(1, numberOfRowsUpdated);
+        verify(statement).bindString(1, "artem");
+        verify(statement).bindString(2, "24");
+    }
+
+    @Test
+    public void updateBindsNullWhereArgAsNull() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final SQLiteStatement statement = mock(SQLiteStatement.class);
+
+        when(db.compileStatement("UPDATE users SET name=? WHERE email IS ?"))
+                .thenReturn(statement);
+
+        final Map<String, Object> values = new HashMap<String, Object>();
+        values.put("name", "artem");
+
+        new StatementCache(db, 5)
+                .update("users", ConflictStrategy.ABORT, contentValues(values), "email IS ?", Arrays.asList((String) null));
+
+        verify(statement).bindNull(2);
+    }
+
+    @Test
+    public void conflictStrategyIsPartOfSql() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+
+        when(db.compileStatement(anyString()))
+                .thenReturn(mock(SQLiteStatement.class));
+
+        final Map<String, Object> values = new HashMap<String, Object>();
+        values.put("x", 1);
+
+        final StatementCache statementCache = new StatementCache(db, 5);
+
+        statementCache.insert("t", ConflictStrategy.REPLACE, contentValues(values));
+        statementCache.insert("t", ConflictStrategy.IGNORE, contentValues(values));
+        statementCache.update("t", ConflictStrategy.REPLACE, contentValues(values), null, null);
+
+        verify(db).compileStatement("INSERT OR REPLACE INTO t(x) VALUES (?)");
+        verify(db).compileStatement("INSERT OR IGNORE INTO t(x) VALUES (?)");
+        verify(db).compileStatement("UPDATE OR REPLACE t SET x=?");
+    }
+
+    @Test
+    public void insertBatchPacksRowsWithSameColumnsIntoOneStatement() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final SQLiteStatement xStatement = mock(SQLiteStatement.class);
+        final SQLiteStatement xyStatement = mock(SQLiteStatement.class);
+
+        when(db.compileStatement("INSERT INTO t(x) VALUES (?),(?)"))
+                .thenReturn(xStatement);
+
+        when(db.compileStatement("INSERT INTO t(x,y) VALUES (?,?)"))
+                .thenReturn(xyStatement);
+
+        // id of last inserted row
+        when(xStatement.executeInsert())
+                .thenReturn(11L);
+
+        when(xyStatement.executeInsert())
+                .thenReturn(12L);
+
+        final Map<String, Object> row1 = new HashMap<String, Object>();
+        row1.put("x", 1);
+
+        final Map<String, Object> row2 = new HashMap<String, Object>();
+        row2.put("x", 2);
+
+        final Map<String, Object> row3 = new HashMap<String, Object>();
+        row3.put("x", 3);
+        row3.put("y", "3");
+
+        final long[] ids = new StatementCache(db, 5).insertBatch(
+                "t",
+                Arrays.asList(contentValues(row1), contentValues(row2), contentValues(row3))
+        );
+
+        assertEquals(3, ids.length);
+        assertEquals(10L, ids[0]);
+        assertEquals(11L, ids[1]);
+        assertEquals(12L, ids[2]);
+
+        verify(db, times(2)).compileStatement(anyString());
+        verify(xStatement, times(1)).executeInsert();
+        verify(xStatement).bindLong(1, 1);
+        verify(xStatement).bindLong(2, 2);
+        verify(xyStatement).bindLong(1, 3);
+        verify(xyStatement).bindString(2, "3");
+    }
+
+    @Test
+    public void insertBatchSplitsRowsUnderLimitOfBindArgs() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final SQLiteStatement statement = mock(SQLiteStatement.class);
+
+        when(db.compileStatement(anyString()))
+                .thenReturn(statement);
+
+        when(statement.executeInsert())
+                .thenReturn(499L, 998L, 1000L);
+
+        final List<ContentValues> rows = new ArrayList<ContentValues>();
+
+        for (int i = 0; i < 1000; i++) {
+            final Map<String, Object> row = new HashMap<String, Object>();
+            row.put("x", i);
+            row.put("y", i);
+            rows.add(contentValues(row));
+        }
+
+        final long[] ids = new StatementCache(db, 5).insertBatch("t", rows);
+
+        // 2 columns per row, so 499 rows per statement: 499 + 499 + 2
+        verify(statement, times(3)).executeInsert();
+        verify(db, times(2)).compileStatement(anyString());
+
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i + 1, ids[i]);
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementIsClosed() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final SQLiteStatement statementA = mock(SQLiteStatement.class);
+        final SQLiteStatement statementB = mock(SQLiteStatement.class);
+
+        when(db.compileStatement("INSERT INTO a(x) VALUES (?)"))
+                .thenReturn(statementA);
+
+        when(db.compileStatement("INSERT INTO b(x) VALUES (?)"))
+                .thenReturn(statementB);
+
+        final Map<String, Object> values = new HashMap<String, Object>();
+        values.put("x", 1);
+
+        final StatementCache statementCache = new StatementCache(db, 1);
+
+        statementCache.insert("a", ConflictStrategy.ABORT, contentValues(values));
+        verify(statementA, never()).close();
+
+        statementCache.insert("b", ConflictStrategy.ABORT, contentValues(values));
+        verify(statementA, times(1)).close();
+        verify(statementB, never()).close();
+
+        statementCache.clear();
+        verify(statementB, times(1)).close();
+    }
+
+    @Test
+    public void statementInUseDuringClearIsClosedAfterExecution() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final SQLiteStatement statement = mock(SQLiteStatement.class);
+        final SQLiteStatement recompiledStatement = mock(SQLiteStatement.class);
+
+        when(db.compileStatement("INSERT INTO a(x) VALUES (?)"))
+                .thenReturn(statement, recompiledStatement);
+
+        final Map<String, Object> values = new HashMap<String, Object>();
+        values.put("x", 1);
+
+        final StatementCache statementCache = new StatementCache(db, 5);
+
+        when(statement.executeInsert())
+                .thenAnswer(new Answer<Long>() {
+                    @Override
+                    public Long answer(InvocationOnMock invocation) {
+                        // schema change by other thread
+                        statementCache.clear();
+                        return 1L;
+                    }
+                });
+
+        statementCache.insert("a", ConflictStrategy.ABORT, contentValues(values));
+        verify(statement, times(1)).close();
+
+        statementCache.insert("a", ConflictStrategy.ABORT, contentValues(values));
+        verify(db, times(2)).compileStatement("INSERT INTO a(x) VALUES (?)");
+        verify(recompiledStatement, never()).close();
+    }
+
+    @Test
+    public void closeClosesStatementsAndStopsCaching() {
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final SQLiteStatement statementA = mock(SQLiteStatement.class);
+        final SQLiteStatement statementB = mock(SQLiteStatement.class);
+
+        when(db.compileStatement("INSERT INTO a(x) VALUES (?)"))
+                .thenReturn(statementA, statementB);
+
+        final Map<String, Object> values = new HashMap<String, Object>();
+        values.put("x", 1);
+
+        final StatementCache statementCache = new StatementCache(db, 5);
+
+        statementCache.insert("a", ConflictStrategy.ABORT, contentValues(values));
+        statementCache.close();
+        verify(statementA, times(1)).close();
+
+        statementCache.insert("a", ConflictStrategy.ABORT, contentValues(values));
+        verify(statementB, times(1)).close();
+    }
+}
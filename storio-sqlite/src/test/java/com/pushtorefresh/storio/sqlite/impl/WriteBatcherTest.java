@@ -0,0 +1,113 @@
+package com.pushtorefresh.storio.sqlite.impl;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.pushtorefresh.storio.operation.PreparedOperation;
+import com.pushtorefresh.storio.sqlite.Changes;
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WriteBatcherTest {
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void failedWriteFailsWholeBatchWithoutRetries() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final StorIOSQLite.Internal internal = mock(StorIOSQLite.Internal.class);
+
+        final WriteBatcher writeBatcher = WriteBatcher.newInstance(db, internal, new TransactionChangesBuffer(), 10, 100, testScheduler);
+
+        final RuntimeException exception = new RuntimeException("test");
+
+        final PreparedOperation<String> write = mock(PreparedOperation.class);
+        final PreparedOperation<String> failingWrite = mock(PreparedOperation.class);
+        final PreparedOperation<String> notExecutedWrite = mock(PreparedOperation.class);
+
+        when(write.executeAsBlocking()).thenReturn("result");
+        when(failingWrite.executeAsBlocking()).thenThrow(exception);
+
+        final TestSubscriber<String> testSubscriber = new TestSubscriber<String>();
+        final TestSubscriber<String> failingTestSubscriber = new TestSubscriber<String>();
+        final TestSubscriber<String> notExecutedTestSubscriber = new TestSubscriber<String>();
+
+        writeBatcher.createObservable(write).subscribe(testSubscriber);
+        writeBatcher.createObservable(failingWrite).subscribe(failingTestSubscriber);
+        writeBatcher.createObservable(notExecutedWrite).subscribe(notExecutedTestSubscriber);
+
+        testScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        verify(db, times(1)).beginTransaction();
+        verify(db, never()).setTransactionSuccessful();
+        verify(db, times(1)).endTransaction();
+        verify(write, times(1)).executeAsBlocking();
+        verify(notExecutedWrite, never()).executeAsBlocking();
+        verify(internal, never()).notifyAboutChanges(any(Changes.class));
+
+        for (TestSubscriber<String> subscriber : Arrays.asList(testSubscriber, failingTestSubscriber, notExecutedTestSubscriber)) {
+            subscriber.assertReceivedOnNext(Collections.<String>emptyList());
+            assertEquals(1, subscriber.getOnErrorEvents().size());
+            assertSame(exception, subscriber.getOnErrorEvents().get(0));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void changesAndResultsAreDeliveredAfterCommit() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final SQLiteDatabase db = mock(SQLiteDatabase.class);
+        final StorIOSQLite.Internal internal = mock(StorIOSQLite.Internal.class);
+        final TransactionChangesBuffer transactionChangesBuffer = new TransactionChangesBuffer();
+
+        final WriteBatcher writeBatcher = WriteBatcher.newInstance(db, internal, transactionChangesBuffer, 10, 100, testScheduler);
+
+        final PreparedOperation<String> write = mock(PreparedOperation.class);
+
+        when(write.executeAsBlocking()).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                // same as DefaultStorIOSQLite.InternalImpl#notifyAboutChanges() on the writer
+                transactionChangesBuffer.bufferIfInTransaction(Changes.newInstance("table"));
+                return "result";
+            }
+        });
+
+        final TestSubscriber<String> testSubscriber = new TestSubscriber<String>();
+
+        writeBatcher.createObservable(write).subscribe(testSubscriber);
+        testScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        final InOrder inOrder = inOrder(db, internal);
+        inOrder.verify(db).beginTransaction();
+        inOrder.verify(db).setTransactionSuccessful();
+        inOrder.verify(db).endTransaction();
+        inOrder.verify(internal).notifyAboutChanges(Changes.newInstance("table"));
+
+        // internal transactions would send changes on the writer
+        verify(internal, never()).beginTransaction();
+
+        testSubscriber.assertNoErrors();
+        testSubscriber.assertReceivedOnNext(Collections.singletonList("result"));
+    }
+}
@@ -1,21 +1,31 @@
 package com.pushtorefresh.storio.sqlite.operation.delete;
 
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
 import com.pushtorefresh.storio.Loggi;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.sqlite.Changes;
 import com.pushtorefresh.storio.operation.MapFunc;
 import com.pushtorefresh.storio.sqlite.query.DeleteQuery;
+import com.pushtorefresh.storio.sqlite.query.RawQuery;
 import com.pushtorefresh.storio.sqlite.design.User;
 
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -41,6 +51,9 @@ public class PreparedDeleteTest {
             when(storIOSQLite.internal())
                     .thenReturn(internal);
 
+            when(internal.createWriteObservable(any(PreparedDelete.class)))
+                    .thenCallRealMethod();
+
             when(storIOSQLite.delete())
                     .thenReturn(new PreparedDelete.Builder(storIOSQLite));
 
@@ -142,6 +155,9 @@ public class PreparedDeleteTest {
             when(storIOSQLite.internal())
                     .thenReturn(internal);
 
+            when(internal.createWriteObservable(any(PreparedDelete.class)))
+                    .thenCallRealMethod();
+
             when(storIOSQLite.delete())
                     .thenReturn(new PreparedDelete.Builder(storIOSQLite));
 
@@ -276,4 +292,272 @@ public class PreparedDeleteTest {
 
         deleteMultipleStub.verifyBehavior();
     }
+
+    @Test public void changesOfDeleteByRowIdsContainRows() {
+        final DeleteQuery deleteQuery = new DeleteQuery.Builder()
+                .table(User.TABLE)
+                .where("rowid IN (?, ?)")
+                .whereArgs(1L, 2L)
+                .build();
+
+        assertEquals(
+                Changes.newInstance(User.TABLE, Arrays.asList(1L, 2L)),
+                PreparedDelete.changesOf(deleteQuery)
+        );
+    }
+
+    @Test public void changesOfDeleteByOtherColumnContainOnlyTable() {
+        final DeleteQuery deleteQuery = new DeleteQuery.Builder()
+                .table(User.TABLE)
+                .where("email = ?")
+                .whereArgs("1")
+                .build();
+
+        assertEquals(Changes.newInstance(User.TABLE), PreparedDelete.changesOf(deleteQuery));
+    }
+
+    @Test public void changesOfDeleteByIdColumnContainOnlyTable() {
+        // _id is row id only if it's declared as INTEGER PRIMARY KEY
+        final DeleteQuery deleteQuery = new DeleteQuery.Builder()
+                .table(User.TABLE)
+                .where("_id = ?")
+                .whereArgs(1L)
+                .build();
+
+        assertEquals(Changes.newInstance(User.TABLE), PreparedDelete.changesOf(deleteQuery));
+    }
+
+    @Test public void changesOfDeleteByNotIntegerIdContainOnlyTable() {
+        final DeleteQuery deleteQuery = new DeleteQuery.Builder()
+                .table(User.TABLE)
+                .where("rowid = ?")
+                .whereArgs("not a number")
+                .build();
+
+        assertEquals(Changes.newInstance(User.TABLE), PreparedDelete.changesOf(deleteQuery));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test public void deleteInBulkUsesChunkedSetBasedDeletes() {
+        final StorIOSQLite storIOSQLite = mock(StorIOSQLite.class);
+        final StorIOSQLite.Internal internal = mock(StorIOSQLite.Internal.class);
+        final DeleteResolver deleteResolver = mock(DeleteResolver.class);
+
+        when(storIOSQLite.internal()).thenReturn(internal);
+        when(storIOSQLite.delete()).thenReturn(new PreparedDelete.Builder(storIOSQLite));
+        when(internal.transactionsSupported()).thenReturn(true);
+
+        final List<User> users = new ArrayList<User>();
+        final List<Long> ids = new ArrayList<Long>();
+
+        for (long id = 0; id < PreparedDeleteObjects.MAX_KEYS_PER_BULK_DELETE + 2; id++) {
+            users.add(new User(id, "user" + id + "@example.com"));
+            ids.add(id);
+        }
+
+        // object which is not deleted by key
+        final User userWithoutId = new User(null, "test@example.com");
+        final DeleteQuery deleteQueryByEmail = new DeleteQuery.Builder()
+                .table(User.TABLE)
+                .where("email = ? OR email IS NULL")
+                .whereArgs(userWithoutId.getEmail())
+                .build();
+
+        users.add(userWithoutId);
+
+        final MapFunc<User, DeleteQuery> mapFunc = new MapFunc<User, DeleteQuery>() {
+            @Override
+            public DeleteQuery map(User user) {
+                return user == userWithoutId
+                        ? deleteQueryByEmail
+                        : User.MAP_TO_DELETE_QUERY.map(user);
+            }
+        };
+
+        // first chunk contains rows of users 0 and 1 only, second chunk does not match rows
+        final Cursor firstChunkCursor = mock(Cursor.class);
+        when(firstChunkCursor.moveToNext()).thenReturn(true, true, false);
+        when(firstChunkCursor.getString(0)).thenReturn("0", "1");
+        when(firstChunkCursor.getInt(1)).thenReturn(1, 1);
+
+        final Cursor secondChunkCursor = mock(Cursor.class);
+
+        when(internal.rawQuery(any(RawQuery.class))).thenReturn(firstChunkCursor, secondChunkCursor);
+
+        when(deleteResolver.performDelete(eq(storIOSQLite), any(DeleteQuery.class)))
+                .thenReturn(DeleteResult.newInstance(2, User.TABLE));
+
+        final DeleteResults<User> deleteResults = storIOSQLite
+                .delete()
+                .objects(users)
+                .withMapFunc(mapFunc)
+                .withDeleteResolver(deleteResolver)
+                .inBulk()
+                .prepare()
+                .executeAsBlocking();
+
+        final ArgumentCaptor<DeleteQuery> deleteQueries = ArgumentCaptor.forClass(DeleteQuery.class);
+        verify(deleteResolver, times(3)).performDelete(eq(storIOSQLite), deleteQueries.capture());
+
+        assertEquals(deleteQueryByEmail, deleteQueries.getAllValues().get(0));
+        assertEquals(PreparedDeleteObjects.MAX_KEYS_PER_BULK_DELETE, deleteQueries.getAllValues().get(1).whereArgs.size());
+        assertEquals(
+                Arrays.asList(
+                        String.valueOf(PreparedDeleteObjects.MAX_KEYS_PER_BULK_DELETE),
+                        String.valueOf(PreparedDeleteObjects.MAX_KEYS_PER_BULK_DELETE + 1)
+                ),
+                deleteQueries.getAllValues().get(2).whereArgs
+        );
+        assertEquals("_id IN (?, ?)", deleteQueries.getAllValues().get(2).where);
+
+        verify(firstChunkCursor).close();
+        verify(secondChunkCursor).close();
+
+        assertEquals(1, deleteResults.results().get(users.get(0)).numberOfRowsDeleted());
+        assertEquals(1, deleteResults.results().get(users.get(1)).numberOfRowsDeleted());
+        assertEquals(0, deleteResults.results().get(users.get(2)).numberOfRowsDeleted());
+        assertEquals(0, deleteResults.results().get(users.get(PreparedDeleteObjects.MAX_KEYS_PER_BULK_DELETE + 1)).numberOfRowsDeleted());
+        assertEquals(2, deleteResults.results().get(userWithoutId).numberOfRowsDeleted());
+
+        // one notification for all deletes, rows of email query are unknown
+        verify(internal, times(1)).notifyAboutChanges(any(Changes.class));
+        verify(internal).notifyAboutChanges(Changes.newInstance(User.TABLE));
+
+        verify(internal, times(1)).beginTransaction();
+        verify(internal, times(1)).setTransactionSuccessful();
+        verify(internal, times(1)).endTransaction();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test public void deleteInBulkWithoutTransactionSupportSendsOneNotificationWithRows() {
+        final StorIOSQLite storIOSQLite = mock(StorIOSQLite.class);
+        final StorIOSQLite.Internal internal = mock(StorIOSQLite.Internal.class);
+        final DeleteResolver deleteResolver = mock(DeleteResolver.class);
+
+        when(storIOSQLite.internal()).thenReturn(internal);
+        when(storIOSQLite.delete()).thenReturn(new PreparedDelete.Builder(storIOSQLite));
+        when(internal.rawQuery(any(RawQuery.class))).thenReturn(mock(Cursor.class));
+
+        when(deleteResolver.performDelete(eq(storIOSQLite), any(DeleteQuery.class)))
+                .thenReturn(DeleteResult.newInstance(0, User.TABLE));
+
+        final List<User> users = Arrays.asList(
+                new User(1L, "user1@example.com"),
+                new User(2L, "user2@example.com")
+        );
+
+        // rows are selected by rowid, so changes contain ids of deleted rows
+        final MapFunc<User, DeleteQuery> mapToDeleteQueryByRowId = new MapFunc<User, DeleteQuery>() {
+            @NonNull
+            @Override
+            public DeleteQuery map(@NonNull User user) {
+                final DeleteQuery deleteQueryById = User.MAP_TO_DELETE_QUERY.map(user);
+
+                //noinspection ConstantConditions
+                return new DeleteQuery.Builder()
+                        .table(deleteQueryById.table)
+                        .where("rowid = ?")
+                        .whereArgs(deleteQueryById.whereArgs.toArray())
+                        .build();
+            }
+        };
+
+        storIOSQLite
+                .delete()
+                .objects(users)
+                .withMapFunc(mapToDeleteQueryByRowId)
+                .withDeleteResolver(deleteResolver)
+                .inBulk()
+                .prepare()
+                .executeAsBlocking();
+
+        verify(deleteResolver, times(1)).performDelete(eq(storIOSQLite), any(DeleteQuery.class));
+        verify(internal, times(1)).notifyAboutChanges(any(Changes.class));
+        verify(internal).notifyAboutChanges(Changes.newInstance(User.TABLE, Arrays.asList(1L, 2L)));
+        verify(internal, never()).beginTransaction();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test public void deleteInBulkCountsRowsBySelectingBoundKeysInTransaction() {
+        final StorIOSQLite storIOSQLite = mock(StorIOSQLite.class);
+        final StorIOSQLite.Internal internal = mock(StorIOSQLite.Internal.class);
+        final DeleteResolver deleteResolver = mock(DeleteResolver.class);
+
+        when(storIOSQLite.internal()).thenReturn(internal);
+        when(storIOSQLite.delete()).thenReturn(new PreparedDelete.Builder(storIOSQLite));
+        when(internal.transactionsSupported()).thenReturn(true);
+
+        // SQLite returns bound keys as they were passed, although stored value of the column is 1
+        final Cursor cursor = mock(Cursor.class);
+        when(cursor.moveToNext()).thenReturn(true, true, false);
+        when(cursor.getString(0)).thenReturn("1.0", "2");
+        when(cursor.getInt(1)).thenReturn(1, 0);
+
+        when(internal.rawQuery(any(RawQuery.class))).thenReturn(cursor);
+
+        when(deleteResolver.performDelete(eq(storIOSQLite), any(DeleteQuery.class)))
+                .thenReturn(DeleteResult.newInstance(1, User.TABLE));
+
+        final User user1 = new User(1L, "user1@example.com");
+        final User user2 = new User(2L, "user2@example.com");
+
+        final MapFunc<User, DeleteQuery> mapFunc = new MapFunc<User, DeleteQuery>() {
+            @NonNull
+            @Override
+            public DeleteQuery map(@NonNull User user) {
+                return new DeleteQuery.Builder()
+                        .table(User.TABLE)
+                        .where("_id = ?")
+                        .whereArgs(user == user1 ? "1.0" : "2")
+                        .build();
+            }
+        };
+
+        final DeleteResults<User> deleteResults = storIOSQLite
+                .delete()
+                .objects(Arrays.asList(user1, user2))
+                .withMapFunc(mapFunc)
+                .withDeleteResolver(deleteResolver)
+                .inBulk()
+                .prepare()
+                .executeAsBlocking();
+
+        final ArgumentCaptor<RawQuery> countQuery = ArgumentCaptor.forClass(RawQuery.class);
+
+        // rows can not be changed between count and delete
+        final InOrder inOrder = inOrder(internal, deleteResolver);
+        inOrder.verify(internal).beginTransaction();
+        inOrder.verify(internal).rawQuery(countQuery.capture());
+        inOrder.verify(deleteResolver).performDelete(eq(storIOSQLite), any(DeleteQuery.class));
+        inOrder.verify(internal).setTransactionSuccessful();
+        inOrder.verify(internal).endTransaction();
+        inOrder.verify(internal).notifyAboutChanges(Changes.newInstance(User.TABLE));
+
+        assertEquals(
+                "SELECT bulk_keys.bulk_key, (SELECT COUNT(*) FROM users WHERE _id = bulk_keys.bulk_key)"
+                        + " FROM (SELECT ? AS bulk_key UNION ALL SELECT ?) AS bulk_keys",
+                countQuery.getValue().query
+        );
+        assertEquals(Arrays.asList("1.0", "2"), countQuery.getValue().args);
+
+        verify(cursor).close();
+
+        assertEquals(1, deleteResults.results().get(user1).numberOfRowsDeleted());
+        assertEquals(0, deleteResults.results().get(user2).numberOfRowsDeleted());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void deleteInBulkCanNotBeCombinedWithDontUseTransaction() {
+        final StorIOSQLite storIOSQLite = mock(StorIOSQLite.class);
+
+        when(storIOSQLite.delete()).thenReturn(new PreparedDelete.Builder(storIOSQLite));
+
+        storIOSQLite
+                .delete()
+                .objects(Collections.singletonList(new User(1L, "user1@example.com")))
+                .withMapFunc(User.MAP_TO_DELETE_QUERY)
+                .inBulk()
+                .dontUseTransaction()
+                .prepare();
+    }
 }
@@ -6,6 +6,8 @@ import com.pushtorefresh.storio.sqlite.query.RawQuery;
 
 import org.junit.Test;
 
+import java.util.Collections;
+
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -43,8 +45,9 @@ public class PreparedExecSqlTest {
             // storIOSQLite.internal.execSql() should be called once for required RawQuery
             verify(internal, times(1)).execSql(rawQuery);
 
-            // no notifications should occur
-            verify(internal, times(0)).notifyAboutChanges(any(Changes.class));
+            // table changed by the statement is parsed from it
+            verify(internal, times(1)).notifyAboutChanges(any(Changes.class));
+            verify(internal, times(1)).notifyAboutChanges(Changes.newInstance("users"));
         }
     }
 
@@ -73,4 +76,40 @@ public class PreparedExecSqlTest {
 
         stub.verifyBehavior();
     }
+
+    @Test public void specifiedAffectedTablesAreNotified() {
+        final StorIOSQLite storIOSQLite = mock(StorIOSQLite.class);
+        final StorIOSQLite.Internal internal = mock(StorIOSQLite.Internal.class);
+
+        when(storIOSQLite.internal())
+                .thenReturn(internal);
+
+        new PreparedExecSql.Builder(storIOSQLite)
+                .withQuery(new RawQuery.Builder()
+                        .query("DELETE FROM tweets_view")
+                        .affectedTables("tweets")
+                        .build())
+                .prepare()
+                .executeAsBlocking();
+
+        verify(internal, times(1)).notifyAboutChanges(any(Changes.class));
+        verify(internal, times(1)).notifyAboutChanges(Changes.newInstance(Collections.singleton("tweets")));
+    }
+
+    @Test public void statementWhichDoesNotChangeTablesDoesNotNotify() {
+        final StorIOSQLite storIOSQLite = mock(StorIOSQLite.class);
+        final StorIOSQLite.Internal internal = mock(StorIOSQLite.Internal.class);
+
+        when(storIOSQLite.internal())
+                .thenReturn(internal);
+
+        new PreparedExecSql.Builder(storIOSQLite)
+                .withQuery(new RawQuery.Builder()
+                        .query("CREATE INDEX tweets_date ON tweets (date)")
+                        .build())
+                .prepare()
+                .executeAsBlocking();
+
+        verify(internal, times(0)).notifyAboutChanges(any(Changes.class));
+    }
 }
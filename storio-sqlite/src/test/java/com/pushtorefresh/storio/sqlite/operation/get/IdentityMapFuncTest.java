@@ -0,0 +1,178 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+import com.pushtorefresh.storio.sqlite.Changes;
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+import com.pushtorefresh.storio.sqlite.query.Query;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IdentityMapFuncTest {
+
+    private Cursor cursor;
+
+    private int mapCallsCount;
+
+    private final MapFunc<Cursor, Object> mapFunc = new MapFunc<Cursor, Object>() {
+        @NonNull
+        @Override
+        public Object map(@NonNull Cursor cursor) {
+            mapCallsCount++;
+            return new Object();
+        }
+    };
+
+    @Before
+    public void setUp() {
+        cursor = mock(Cursor.class);
+
+        when(cursor.getColumnIndexOrThrow("_id")).thenReturn(0);
+        when(cursor.getColumnIndexOrThrow("version")).thenReturn(1);
+        when(cursor.getLong(0)).thenReturn(1L);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void mapFuncIsRequired() {
+        new IdentityMapFunc.Builder<Object>()
+                .table("users")
+                .versionColumn("version")
+                .build();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void versionColumnIsRequired() {
+        new IdentityMapFunc.Builder<Object>()
+                .table("users")
+                .withMapFunc(mapFunc)
+                .build();
+    }
+
+    @Test
+    public void sameVersionReturnsSameInstance() {
+        final IdentityMapFunc<Object> identityMapFunc = new IdentityMapFunc.Builder<Object>()
+                .table("users")
+                .versionColumn("version")
+                .withMapFunc(mapFunc)
+                .build();
+
+        when(cursor.getLong(1)).thenReturn(10L);
+
+        final Object first = identityMapFunc.map(cursor);
+        assertSame(first, identityMapFunc.map(cursor));
+        assertEquals(1, mapCallsCount);
+
+        when(cursor.getLong(1)).thenReturn(11L);
+
+        final Object updated = identityMapFunc.map(cursor);
+        assertNotSame(first, updated);
+        assertSame(updated, identityMapFunc.map(cursor));
+        assertEquals(2, mapCallsCount);
+    }
+
+    @Test
+    public void rowsWithDifferentIdsAreNotShared() {
+        final IdentityMapFunc<Object> identityMapFunc = new IdentityMapFunc.Builder<Object>()
+                .table("users")
+                .versionColumn("version")
+                .withMapFunc(mapFunc)
+                .build();
+
+        final Object first = identityMapFunc.map(cursor);
+
+        when(cursor.getLong(0)).thenReturn(2L);
+
+        assertNotSame(first, identityMapFunc.map(cursor));
+    }
+
+    @Test
+    public void changesOfRowsRemoveOnlyTheirEntries() {
+        final IdentityMapFunc<Object> identityMapFunc = new IdentityMapFunc.Builder<Object>()
+                .table("users")
+                .versionColumn("version")
+                .withMapFunc(mapFunc)
+                .build();
+
+        final Object first = identityMapFunc.map(cursor);
+
+        // other rows and tables
+        identityMapFunc.onChanges(Changes.newInstance("users", Collections.singleton(2L)));
+        identityMapFunc.onChanges(Changes.newInstance("posts", Collections.singleton(1L)));
+        assertSame(first, identityMapFunc.map(cursor));
+
+        identityMapFunc.onChanges(Changes.newInstance("Users", Collections.singleton(1L)));
+        assertNotSame(first, identityMapFunc.map(cursor));
+    }
+
+    @Test
+    public void changesOfUnknownRowsKeepAliveInstancesAndClearRemovesAll() {
+        final IdentityMapFunc<Object> identityMapFunc = new IdentityMapFunc.Builder<Object>()
+                .table("users")
+                .versionColumn("version")
+                .withMapFunc(mapFunc)
+                .build();
+
+        final Object first = identityMapFunc.map(cursor);
+
+        identityMapFunc.onChanges(Changes.newInstance("users"));
+        assertSame(first, identityMapFunc.map(cursor));
+
+        identityMapFunc.clear();
+        assertNotSame(first, identityMapFunc.map(cursor));
+    }
+
+    @Test
+    public void streamPassesChangesToIdentityMapFunc() {
+        final IdentityMapFunc<Object> identityMapFunc = new IdentityMapFunc.Builder<Object>()
+                .table("users")
+                .versionColumn("version")
+                .withMapFunc(mapFunc)
+                .build();
+
+        final StorIOSQLite storIOSQLite = mock(StorIOSQLite.class);
+        final GetResolver getResolver = mock(GetResolver.class);
+        final PublishSubject<Changes> changes = PublishSubject.create();
+        final Query query = new Query.Builder().table("users").build();
+
+        when(storIOSQLite.internal()).thenReturn(mock(StorIOSQLite.Internal.class));
+        when(storIOSQLite.observeChangesInTables(Collections.singleton("users"))).thenReturn(changes);
+
+        // same version, so only removed entry causes mapping of the row
+        when(cursor.getLong(1)).thenReturn(10L);
+        when(cursor.moveToNext()).thenReturn(true, false, true, false);
+        when(getResolver.performGet(storIOSQLite, query)).thenReturn(cursor);
+
+        final TestSubscriber<List<Object>> testSubscriber = new TestSubscriber<List<Object>>();
+
+        new PreparedGetListOfObjects.Builder<Object>(storIOSQLite, Object.class)
+                .withMapFunc(identityMapFunc)
+                .withQuery(query)
+                .withGetResolver(getResolver)
+                .prepare()
+                .createObservableStream()
+                .subscribe(testSubscriber);
+
+        assertEquals(1, mapCallsCount);
+
+        changes.onNext(Changes.newInstance("users", Collections.singleton(1L)));
+
+        testSubscriber.assertNoErrors();
+        assertEquals(2, testSubscriber.getOnNextEvents().size());
+        assertEquals(2, mapCallsCount);
+    }
+}
@@ -0,0 +1,289 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+import com.pushtorefresh.storio.sqlite.Changes;
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+import com.pushtorefresh.storio.sqlite.query.Query;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class KeysetPagerTest {
+
+    private static final MapFunc<Long, Long> KEY_FUNC = new MapFunc<Long, Long>() {
+        @NonNull
+        @Override
+        public Long map(@NonNull Long id) {
+            return id;
+        }
+    };
+
+    private StorIOSQLite storIOSQLite;
+    private GetResolver getResolver;
+    private PublishSubject<Changes> changes;
+
+    @Before
+    public void setUp() {
+        storIOSQLite = mock(StorIOSQLite.class);
+        getResolver = mock(GetResolver.class);
+        changes = PublishSubject.create();
+
+        when(storIOSQLite.get())
+                .thenReturn(new PreparedGet.Builder(storIOSQLite));
+
+        when(storIOSQLite.internal())
+                .thenReturn(mock(StorIOSQLite.Internal.class));
+
+        when(storIOSQLite.observeChangesInTable("tweets"))
+                .thenReturn(changes);
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    private KeysetPager<Long> pager(int pageSize) {
+        return storIOSQLite
+                .get()
+                .pagesOfObjects(Long.class)
+                .withMapFunc(mock(MapFunc.class))
+                .withQuery(new Query.Builder()
+                        .table("tweets")
+                        .where("author = ?")
+                        .whereArgs("artem")
+                        .build())
+                .withKey("_id", KEY_FUNC)
+                .pageSize(pageSize)
+                .withGetResolver(getResolver)
+                .prepare();
+    }
+
+    @NonNull
+    private Query pageQuery(@NonNull String where, @NonNull Object[] whereArgs, boolean withLimit) {
+        return new Query.Builder()
+                .table("tweets")
+                .where(where)
+                .whereArgs(whereArgs)
+                .orderBy("_id ASC")
+                .limit(withLimit ? "2" : null)
+                .build();
+    }
+
+    // cursor which emits ids from passed list, they are mapped by "Cursor.getLong(0)"
+    @NonNull
+    private static Cursor cursorOf(@NonNull final Long... ids) {
+        final Cursor cursor = mock(Cursor.class);
+        final int[] position = {-1};
+
+        when(cursor.moveToNext()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return ++position[0] < ids.length;
+            }
+        });
+
+        when(cursor.getLong(0)).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) throws Throwable {
+                return ids[position[0]];
+            }
+        });
+
+        return cursor;
+    }
+
+    @Test
+    public void firstPageQuery() {
+        assertEquals(
+                pageQuery("(author = ?)", new Object[]{"artem"}, true),
+                pager(2).pageQuery(null)
+        );
+    }
+
+    @Test
+    public void nextPageQuery() {
+        assertEquals(
+                pageQuery("(author = ?) AND _id > ?", new Object[]{"artem", 42}, true),
+                pager(2).pageQuery(42L)
+        );
+    }
+
+    @Test
+    public void descendingPageQuery() {
+        final KeysetPager<Long> pager = new KeysetPager.Builder<Long>(storIOSQLite, Long.class)
+                .withMapFunc(new IdMapFunc())
+                .withQuery(new Query.Builder().table("tweets").build())
+                .withKey("_id", KEY_FUNC)
+                .descending()
+                .prepare();
+
+        final Query expected = new Query.Builder()
+                .table("tweets")
+                .where("_id < ?")
+                .whereArgs(42)
+                .orderBy("_id DESC")
+                .limit(String.valueOf(KeysetPager.Builder.DEFAULT_PAGE_SIZE))
+                .build();
+
+        assertEquals(expected, pager.pageQuery(42L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void queryWithLimitIsNotAllowed() {
+        new KeysetPager.Builder<Long>(storIOSQLite, Long.class)
+                .withMapFunc(new IdMapFunc())
+                .withQuery(new Query.Builder().table("tweets").limit("10").build())
+                .withKey("_id", KEY_FUNC)
+                .prepare();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroPageSizeIsNotAllowed() {
+        new KeysetPager.Builder<Long>(storIOSQLite, Long.class)
+                .withMapFunc(new IdMapFunc())
+                .withQuery(new Query.Builder().table("tweets").build())
+                .withKey("_id", KEY_FUNC)
+                .pageSize(0)
+                .prepare();
+    }
+
+    @Test
+    public void streamLoadsPagesOnDemandAndReloadsThemByKeyRanges() {
+        final KeysetPager<Long> pager = new KeysetPager.Builder<Long>(storIOSQLite, Long.class)
+                .withMapFunc(new IdMapFunc())
+                .withQuery(new Query.Builder().table("tweets").where("author = ?").whereArgs("artem").build())
+                .withKey("_id", KEY_FUNC)
+                .pageSize(2)
+                .withGetResolver(getResolver)
+                .prepare();
+
+        final Query firstPage = pageQuery("(author = ?)", new Object[]{"artem"}, true);
+        final Query secondPage = pageQuery("(author = ?) AND _id > ?", new Object[]{"artem", 2}, true);
+        final Query firstPageRange = pageQuery("(author = ?) AND _id <= ?", new Object[]{"artem", 2}, false);
+
+        final Cursor firstPageCursor = cursorOf(1L, 2L);
+        final Cursor secondPageCursor = cursorOf(3L);
+        final Cursor firstPageReloadedCursor = cursorOf(1L, 2L); // first page was not changed
+        final Cursor secondPageReloadedCursor = cursorOf(3L, 4L); // new row in the last page
+
+        when(getResolver.performGet(eq(storIOSQLite), any(Query.class)))
+                .thenReturn(firstPageCursor, secondPageCursor, firstPageReloadedCursor, secondPageReloadedCursor);
+
+        final PublishSubject<Object> loadNextPage = PublishSubject.create();
+        final TestSubscriber<List<Long>> testSubscriber = new TestSubscriber<List<Long>>();
+
+        pager.createObservableStream(loadNextPage).subscribe(testSubscriber);
+        loadNextPage.onNext(new Object());
+        changes.onNext(Changes.newInstance(Collections.singleton("tweets")));
+
+        final List<List<Long>> expected = new ArrayList<List<Long>>();
+        expected.add(Arrays.asList(1L, 2L));
+        expected.add(Arrays.asList(1L, 2L, 3L));
+        expected.add(Arrays.asList(1L, 2L, 3L, 4L));
+
+        testSubscriber.assertReceivedOnNext(expected);
+        testSubscriber.assertNoErrors();
+
+        verify(getResolver, times(1)).performGet(storIOSQLite, firstPage);
+        verify(getResolver, times(2)).performGet(storIOSQLite, secondPage);
+        verify(getResolver, times(1)).performGet(storIOSQLite, firstPageRange);
+    }
+
+    @Test
+    public void boundedPagesAreReloadedByOneRangeQuery() {
+        final KeysetPager<Long> pager = new KeysetPager.Builder<Long>(storIOSQLite, Long.class)
+                .withMapFunc(new IdMapFunc())
+                .withQuery(new Query.Builder().table("tweets").where("author = ?").whereArgs("artem").build())
+                .withKey("_id", KEY_FUNC)
+                .pageSize(2)
+                .withGetResolver(getResolver)
+                .prepare();
+
+        final Query boundedPagesRange = pageQuery("(author = ?) AND _id <= ?", new Object[]{"artem", 4}, false);
+        final Query secondPageRange = pageQuery("(author = ?) AND _id > ? AND _id <= ?", new Object[]{"artem", 2, 4}, false);
+        final Query lastPage = pageQuery("(author = ?) AND _id > ?", new Object[]{"artem", 4}, true);
+
+        final Cursor firstPageCursor = cursorOf(1L, 2L);
+        final Cursor secondPageCursor = cursorOf(3L, 4L);
+        final Cursor lastPageCursor = cursorOf(5L);
+        final Cursor boundedPagesReloadedCursor = cursorOf(1L, 3L, 4L); // row 2 was deleted
+        final Cursor lastPageReloadedCursor = cursorOf(5L);
+
+        when(getResolver.performGet(eq(storIOSQLite), any(Query.class)))
+                .thenReturn(firstPageCursor, secondPageCursor, lastPageCursor, boundedPagesReloadedCursor, lastPageReloadedCursor);
+
+        final PublishSubject<Object> loadNextPage = PublishSubject.create();
+        final TestSubscriber<List<Long>> testSubscriber = new TestSubscriber<List<Long>>();
+
+        pager.createObservableStream(loadNextPage).subscribe(testSubscriber);
+        loadNextPage.onNext(new Object());
+        loadNextPage.onNext(new Object());
+        changes.onNext(Changes.newInstance(Collections.singleton("tweets")));
+
+        final List<List<Long>> expected = new ArrayList<List<Long>>();
+        expected.add(Arrays.asList(1L, 2L));
+        expected.add(Arrays.asList(1L, 2L, 3L, 4L));
+        expected.add(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        expected.add(Arrays.asList(1L, 3L, 4L, 5L));
+
+        testSubscriber.assertReceivedOnNext(expected);
+        testSubscriber.assertNoErrors();
+
+        verify(getResolver, times(1)).performGet(storIOSQLite, boundedPagesRange);
+        verify(getResolver, times(0)).performGet(storIOSQLite, secondPageRange);
+        verify(getResolver, times(2)).performGet(storIOSQLite, lastPage);
+        verify(getResolver, times(5)).performGet(eq(storIOSQLite), any(Query.class));
+    }
+
+    @Test
+    public void nextPageIsNotLoadedAfterEnd() {
+        final KeysetPager<Long> pager = new KeysetPager.Builder<Long>(storIOSQLite, Long.class)
+                .withMapFunc(new IdMapFunc())
+                .withQuery(new Query.Builder().table("tweets").build())
+                .withKey("_id", KEY_FUNC)
+                .pageSize(2)
+                .withGetResolver(getResolver)
+                .prepare();
+
+        final Cursor cursor = cursorOf(1L);
+
+        when(getResolver.performGet(eq(storIOSQLite), any(Query.class)))
+                .thenReturn(cursor);
+
+        final PublishSubject<Object> loadNextPage = PublishSubject.create();
+        final TestSubscriber<List<Long>> testSubscriber = new TestSubscriber<List<Long>>();
+
+        pager.createObservableStream(loadNextPage).subscribe(testSubscriber);
+        loadNextPage.onNext(new Object());
+
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(Arrays.asList(1L)));
+        verify(getResolver, times(1)).performGet(eq(storIOSQLite), any(Query.class));
+    }
+
+    private static class IdMapFunc implements MapFunc<Cursor, Long> {
+        @NonNull
+        @Override
+        public Long map(@NonNull Cursor cursor) {
+            return cursor.getLong(0);
+        }
+    }
+}
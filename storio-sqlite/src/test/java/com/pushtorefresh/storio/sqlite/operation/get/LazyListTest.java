@@ -0,0 +1,115 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LazyListTest {
+
+    @NonNull
+    private static Cursor cursorWithCount(int count) {
+        final Cursor cursor = mock(Cursor.class);
+
+        when(cursor.getCount())
+                .thenReturn(count);
+
+        when(cursor.moveToPosition(anyInt()))
+                .thenReturn(true);
+
+        return cursor;
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    private static MapFunc<Cursor, String> mapFunc() {
+        final MapFunc<Cursor, String> mapFunc = mock(MapFunc.class);
+
+        when(mapFunc.map(any(Cursor.class)))
+                .thenReturn("item");
+
+        return mapFunc;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroObjectCacheSize() {
+        new LazyList<String>(cursorWithCount(1), mapFunc(), 0);
+    }
+
+    @Test
+    public void doesNotMapRowsUntilTheyAreRequested() {
+        final Cursor cursor = cursorWithCount(100000);
+        final MapFunc<Cursor, String> mapFunc = mapFunc();
+
+        final LazyList<String> lazyList = new LazyList<String>(cursor, mapFunc, 5);
+
+        assertEquals(100000, lazyList.size());
+        verify(mapFunc, never()).map(any(Cursor.class));
+
+        assertEquals("item", lazyList.get(99999));
+        verify(cursor, times(1)).moveToPosition(99999);
+        verify(mapFunc, times(1)).map(cursor);
+    }
+
+    @Test
+    public void cachedObjectIsNotMappedAgain() {
+        final Cursor cursor = cursorWithCount(10);
+        final MapFunc<Cursor, String> mapFunc = mapFunc();
+
+        final LazyList<String> lazyList = new LazyList<String>(cursor, mapFunc, 2);
+
+        lazyList.get(0);
+        lazyList.get(1);
+        lazyList.get(0);
+
+        verify(mapFunc, times(2)).map(cursor);
+
+        // evicts row 1 as least recently used
+        lazyList.get(2);
+        lazyList.get(0);
+        verify(mapFunc, times(3)).map(cursor);
+
+        lazyList.get(1);
+        verify(mapFunc, times(4)).map(cursor);
+    }
+
+    @Test
+    public void closeClosesCursorOnlyOnce() {
+        final Cursor cursor = cursorWithCount(3);
+        final LazyList<String> lazyList = new LazyList<String>(cursor, mapFunc(), 2);
+
+        assertFalse(lazyList.isClosed());
+
+        lazyList.close();
+        lazyList.close();
+
+        assertTrue(lazyList.isClosed());
+        verify(cursor, times(1)).close();
+
+        try {
+            lazyList.get(0);
+            fail();
+        } catch (IllegalStateException expected) {
+            // it's okay, list was closed
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfBounds() {
+        new LazyList<String>(cursorWithCount(3), mapFunc(), 2).get(3);
+    }
+}
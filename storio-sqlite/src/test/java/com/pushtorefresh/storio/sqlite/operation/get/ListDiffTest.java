@@ -0,0 +1,247 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class ListDiffTest {
+
+    private static class Item {
+
+        final int id;
+
+        final String value;
+
+        Item(int id, String value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Item item = (Item) o;
+
+            return id == item.id && value.equals(item.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id + value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return id + ":" + value;
+        }
+    }
+
+    private static final MapFunc<Item, Integer> ID_FUNC = new MapFunc<Item, Integer>() {
+        @NonNull
+        @Override
+        public Integer map(@NonNull Item item) {
+            return item.id;
+        }
+    };
+
+    @NonNull
+    private static List<Item> items(int... ids) {
+        final List<Item> items = new ArrayList<Item>(ids.length);
+
+        for (int id : ids) {
+            items.add(new Item(id, "value"));
+        }
+
+        return items;
+    }
+
+    @Test
+    public void equalListsHaveNoUpdates() {
+        final ListDiff<Item> listDiff = ListDiff.calculate(items(1, 2, 3), items(1, 2, 3), ID_FUNC);
+        assertTrue(listDiff.updates().isEmpty());
+    }
+
+    @Test
+    public void firstDiffInsertsAllItems() {
+        final ListDiff<Item> listDiff = ListDiff.calculate(Collections.<Item>emptyList(), items(1, 2, 3), ID_FUNC);
+
+        assertEquals(
+                Collections.singletonList(ListDiff.Update.newRange(ListDiff.Update.Type.INSERT, 0, 3)),
+                listDiff.updates()
+        );
+    }
+
+    @Test
+    public void rangesOfRemovalsAndInsertions() {
+        final ListDiff<Item> listDiff = ListDiff.calculate(items(1, 2, 3, 4, 5), items(1, 6, 7, 4, 5, 8), ID_FUNC);
+
+        assertEquals(
+                Arrays.asList(
+                        ListDiff.Update.newRange(ListDiff.Update.Type.REMOVE, 1, 2),
+                        ListDiff.Update.newRange(ListDiff.Update.Type.INSERT, 1, 2),
+                        ListDiff.Update.newRange(ListDiff.Update.Type.INSERT, 5, 1)
+                ),
+                listDiff.updates()
+        );
+    }
+
+    @Test
+    public void oneItemMovedToTheEndIsOneMove() {
+        final ListDiff<Item> listDiff = ListDiff.calculate(items(1, 2, 3, 4), items(2, 3, 4, 1), ID_FUNC);
+
+        assertEquals(
+                Collections.singletonList(ListDiff.Update.newMove(0, 3)),
+                listDiff.updates()
+        );
+    }
+
+    @Test
+    public void changedItemsAreDetectedById() {
+        final List<Item> newItems = items(1, 2, 3);
+        newItems.set(1, new Item(2, "new value"));
+
+        final ListDiff<Item> listDiff = ListDiff.calculate(items(1, 2, 3), newItems, ID_FUNC);
+
+        assertEquals(
+                Collections.singletonList(ListDiff.Update.newRange(ListDiff.Update.Type.CHANGE, 1, 1)),
+                listDiff.updates()
+        );
+    }
+
+    @Test
+    public void duplicateIdsCauseReload() {
+        final ListDiff<Item> listDiff = ListDiff.calculate(items(1, 2), items(1, 1, 3), ID_FUNC);
+
+        assertEquals(
+                Arrays.asList(
+                        ListDiff.Update.newRange(ListDiff.Update.Type.REMOVE, 0, 2),
+                        ListDiff.Update.newRange(ListDiff.Update.Type.INSERT, 0, 3)
+                ),
+                listDiff.updates()
+        );
+    }
+
+    @Test
+    public void updatesTransformPreviousListIntoNewList() {
+        final Random random = new Random(42);
+
+        for (int iteration = 0; iteration < 500; iteration++) {
+            final List<Integer> previousIds = randomIds(random);
+            final List<Integer> ids = randomIds(random);
+
+            final List<Item> previousList = new ArrayList<Item>();
+
+            for (Integer id : previousIds) {
+                previousList.add(new Item(id, "value"));
+            }
+
+            final List<Item> list = new ArrayList<Item>();
+
+            for (Integer id : ids) {
+                list.add(new Item(id, random.nextBoolean() ? "value" : "new value"));
+            }
+
+            final ListDiff<Item> listDiff = ListDiff.calculate(previousList, list, ID_FUNC);
+
+            assertEquals(list, apply(previousList, list, listDiff.updates()));
+        }
+    }
+
+    @Test
+    public void reversedLongListIsMinimalNumberOfMoves() {
+        final int size = 100000;
+        final List<Item> previousList = new ArrayList<Item>(size);
+
+        for (int id = 0; id < size; id++) {
+            previousList.add(new Item(id, "value"));
+        }
+
+        final List<Item> list = new ArrayList<Item>(previousList);
+        Collections.reverse(list);
+
+        final ListDiff<Item> listDiff = ListDiff.calculate(previousList, list, ID_FUNC);
+
+        assertEquals(size - 1, listDiff.updates().size());
+
+        for (ListDiff.Update update : listDiff.updates()) {
+            assertEquals(ListDiff.Update.Type.MOVE, update.type());
+        }
+    }
+
+    @Test
+    public void streamEmitsDiffAgainstPreviousList() {
+        final TestSubscriber<ListDiff<Item>> testSubscriber = new TestSubscriber<ListDiff<Item>>();
+
+        Observable
+                .just(items(1, 2), items(2, 3))
+                .lift(OperatorListDiff.newInstance(ID_FUNC))
+                .subscribe(testSubscriber);
+
+        testSubscriber.assertNoErrors();
+        testSubscriber.assertReceivedOnNext(Arrays.asList(
+                ListDiff.calculate(Collections.<Item>emptyList(), items(1, 2), ID_FUNC),
+                ListDiff.calculate(items(1, 2), items(2, 3), ID_FUNC)
+        ));
+    }
+
+    @NonNull
+    private static List<Integer> randomIds(@NonNull Random random) {
+        final List<Integer> ids = new ArrayList<Integer>();
+
+        for (int id = 0; id < 15; id++) {
+            if (random.nextBoolean()) {
+                ids.add(id);
+            }
+        }
+
+        Collections.shuffle(ids, random);
+        return ids;
+    }
+
+    /**
+     * Applies updates the same way as RecyclerView.Adapter would do
+     */
+    @NonNull
+    private static List<Item> apply(@NonNull List<Item> previousList,
+                                    @NonNull List<Item> list,
+                                    @NonNull List<ListDiff.Update> updates) {
+        final List<Item> result = new ArrayList<Item>(previousList);
+
+        for (ListDiff.Update update : updates) {
+            switch (update.type()) {
+                case REMOVE:
+                    result.subList(update.position(), update.position() + update.count()).clear();
+                    break;
+                case MOVE:
+                    result.add(update.toPosition(), result.remove(update.position()));
+                    break;
+                case INSERT:
+                    result.addAll(update.position(), list.subList(update.position(), update.position() + update.count()));
+                    break;
+                case CHANGE:
+                    for (int i = update.position(); i < update.position() + update.count(); i++) {
+                        result.set(i, list.get(i));
+                    }
+                    break;
+            }
+        }
+
+        return result;
+    }
+}
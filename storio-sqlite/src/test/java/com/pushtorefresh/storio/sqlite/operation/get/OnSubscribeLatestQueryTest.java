@@ -0,0 +1,133 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.PreparedOperation;
+import com.pushtorefresh.storio.sqlite.Changes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OnSubscribeLatestQueryTest {
+
+    /**
+     * Returns number of execution, can send changes during execution
+     */
+    private static class CountingOperation implements PreparedOperation<Integer> {
+
+        @NonNull
+        final List<QueryCancellation> cancellations = new ArrayList<QueryCancellation>();
+
+        PublishSubject<Changes> changesDuringFirstExecution;
+
+        int changesCountDuringFirstExecution;
+
+        RuntimeException error;
+
+        @NonNull
+        @Override
+        public Integer executeAsBlocking() {
+            cancellations.add(QueryCancellation.current());
+
+            if (error != null) {
+                throw error;
+            }
+
+            if (cancellations.size() == 1 && changesDuringFirstExecution != null) {
+                for (int i = 0; i < changesCountDuringFirstExecution; i++) {
+                    changesDuringFirstExecution.onNext(Changes.newInstance("table"));
+                }
+            }
+
+            return cancellations.size();
+        }
+
+        @NonNull
+        @Override
+        public Observable<Integer> createObservable() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    public void queryIsExecutedOnSubscriptionAndAfterEachChange() {
+        final CountingOperation operation = new CountingOperation();
+        final PublishSubject<Changes> changes = PublishSubject.create();
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<Integer>();
+
+        final Observable<Integer> queryStream = Observable.create(OnSubscribeLatestQuery.newInstance(changes, operation));
+
+        // query is not executed before subscription
+        assertEquals(0, operation.cancellations.size());
+
+        queryStream.subscribe(testSubscriber);
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(1));
+
+        changes.onNext(Changes.newInstance("table"));
+        changes.onNext(Changes.newInstance("table"));
+
+        testSubscriber.assertReceivedOnNext(Arrays.asList(1, 2, 3));
+
+        assertEquals(3, operation.cancellations.size());
+
+        for (QueryCancellation queryCancellation : operation.cancellations) {
+            assertNotNull(queryCancellation);
+            assertFalse(queryCancellation.isCanceled());
+        }
+
+        assertNull(QueryCancellation.current());
+    }
+
+    @Test
+    public void changesDuringQueryCancelItAndCollapseIntoOneQuery() {
+        final CountingOperation operation = new CountingOperation();
+        final PublishSubject<Changes> changes = PublishSubject.create();
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<Integer>();
+
+        operation.changesDuringFirstExecution = changes;
+        operation.changesCountDuringFirstExecution = 3;
+
+        Observable.create(OnSubscribeLatestQuery.newInstance(changes, operation)).subscribe(testSubscriber);
+
+        // changes during first query are not missed, result of canceled first query is dropped
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(2));
+
+        assertEquals(2, operation.cancellations.size());
+        assertTrue(operation.cancellations.get(0).isCanceled());
+
+        // query after canceled one can not be canceled
+        assertNull(operation.cancellations.get(1));
+    }
+
+    @Test
+    public void errorOfQueryIsDeliveredToSubscriber() {
+        final CountingOperation operation = new CountingOperation();
+        final PublishSubject<Changes> changes = PublishSubject.create();
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<Integer>();
+
+        operation.error = new IllegalStateException("test exception");
+
+        Observable.create(OnSubscribeLatestQuery.newInstance(changes, operation)).subscribe(testSubscriber);
+
+        testSubscriber.assertReceivedOnNext(Collections.<Integer>emptyList());
+        assertEquals(Collections.<Throwable>singletonList(operation.error), testSubscriber.getOnErrorEvents());
+
+        // stream is terminated
+        changes.onNext(Changes.newInstance("table"));
+        assertEquals(1, operation.cancellations.size());
+    }
+}
@@ -0,0 +1,131 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.database.Cursor;
+
+import com.pushtorefresh.storio.LogListener;
+import com.pushtorefresh.storio.Loggi;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class OperatorManageCursorsTest {
+
+    @Test
+    public void previousCursorIsClosedAfterDeliveryOfNextOne() {
+        final PublishSubject<Cursor> cursors = PublishSubject.create();
+        final TestSubscriber<Cursor> testSubscriber = new TestSubscriber<Cursor>();
+
+        final Subscription subscription = cursors
+                .lift(OperatorManageCursors.newInstance(new Loggi(), "query", null, 0))
+                .subscribe(testSubscriber);
+
+        final Cursor cursor1 = mock(Cursor.class);
+        final Cursor cursor2 = mock(Cursor.class);
+
+        cursors.onNext(cursor1);
+        verify(cursor1, never()).close();
+
+        cursors.onNext(cursor2);
+        verify(cursor1).close();
+        verify(cursor2, never()).close();
+
+        testSubscriber.assertReceivedOnNext(Arrays.asList(cursor1, cursor2));
+
+        // last cursor is closed on unsubscribe
+        subscription.unsubscribe();
+        verify(cursor2).close();
+    }
+
+    @Test
+    public void cursorsAreDeliveredAndClosedOnScheduler() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final PublishSubject<Cursor> cursors = PublishSubject.create();
+        final TestSubscriber<Cursor> testSubscriber = new TestSubscriber<Cursor>();
+
+        cursors
+                .lift(OperatorManageCursors.newInstance(new Loggi(), "query", testScheduler, 0))
+                .subscribe(testSubscriber);
+
+        final Cursor cursor1 = mock(Cursor.class);
+        final Cursor cursor2 = mock(Cursor.class);
+
+        cursors.onNext(cursor1);
+        testSubscriber.assertReceivedOnNext(Collections.<Cursor>emptyList());
+
+        testScheduler.triggerActions();
+        testSubscriber.assertReceivedOnNext(Collections.singletonList(cursor1));
+
+        cursors.onNext(cursor2);
+        verify(cursor1, never()).close();
+
+        testScheduler.triggerActions();
+        testSubscriber.assertReceivedOnNext(Arrays.asList(cursor1, cursor2));
+        verify(cursor1).close();
+        verify(cursor2, never()).close();
+    }
+
+    @Test
+    public void cursorWhichWasNotDeliveredBeforeUnsubscribeIsClosed() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final PublishSubject<Cursor> cursors = PublishSubject.create();
+        final TestSubscriber<Cursor> testSubscriber = new TestSubscriber<Cursor>();
+
+        final Subscription subscription = cursors
+                .lift(OperatorManageCursors.newInstance(new Loggi(), "query", testScheduler, 0))
+                .subscribe(testSubscriber);
+
+        final Cursor cursor = mock(Cursor.class);
+
+        cursors.onNext(cursor);
+        verify(cursor, never()).close();
+
+        subscription.unsubscribe();
+        verify(cursor, times(1)).close();
+
+        testScheduler.triggerActions();
+        testSubscriber.assertReceivedOnNext(Collections.<Cursor>emptyList());
+        verify(cursor, times(1)).close();
+    }
+
+    @Test
+    public void cursorWhichIsOpenTooLongIsReported() {
+        final TestScheduler testScheduler = new TestScheduler();
+        final LogListener logListener = mock(LogListener.class);
+        final Loggi loggi = new Loggi();
+        loggi.setLogListener(logListener);
+
+        final PublishSubject<Cursor> cursors = PublishSubject.create();
+
+        cursors
+                .lift(OperatorManageCursors.newInstance(loggi, "query", testScheduler, 1000))
+                .subscribe(new TestSubscriber<Cursor>());
+
+        cursors.onNext(mock(Cursor.class));
+        testScheduler.triggerActions();
+
+        // next cursor restarts the timer
+        testScheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        cursors.onNext(mock(Cursor.class));
+        testScheduler.triggerActions();
+
+        testScheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+        verify(logListener, never()).w(anyString());
+
+        testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        verify(logListener, times(1)).w(anyString());
+    }
+}
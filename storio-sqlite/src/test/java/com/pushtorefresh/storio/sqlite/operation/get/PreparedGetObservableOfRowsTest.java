@@ -0,0 +1,182 @@
+package com.pushtorefresh.storio.sqlite.operation.get;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+import com.pushtorefresh.storio.sqlite.query.Query;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PreparedGetObservableOfRowsTest {
+
+    private static final int NUMBER_OF_ROWS = 5;
+
+    private StorIOSQLite storIOSQLite;
+    private GetResolver getResolver;
+    private Query query;
+    private Cursor cursor;
+    private MapFunc<Cursor, Integer> mapFunc;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+        storIOSQLite = mock(StorIOSQLite.class);
+        getResolver = mock(GetResolver.class);
+        query = mock(Query.class);
+        cursor = mock(Cursor.class);
+        mapFunc = mock(MapFunc.class);
+
+        when(storIOSQLite.get())
+                .thenReturn(new PreparedGet.Builder(storIOSQLite));
+
+        when(getResolver.performGet(storIOSQLite, query))
+                .thenReturn(cursor);
+
+        when(cursor.moveToNext()).thenAnswer(new Answer<Boolean>() {
+            int invocationsCount = 0;
+
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return invocationsCount++ < NUMBER_OF_ROWS;
+            }
+        });
+
+        when(mapFunc.map(any(Cursor.class))).thenAnswer(new Answer<Integer>() {
+            int invocationsCount = 0;
+
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                return invocationsCount++;
+            }
+        });
+    }
+
+    @NonNull
+    private Observable<Integer> observableOfRows() {
+        return storIOSQLite
+                .get()
+                .listOfObjects(Integer.class)
+                .withMapFunc(mapFunc)
+                .withQuery(query)
+                .withGetResolver(getResolver)
+                .prepare()
+                .createObservableOfRows();
+    }
+
+    @NonNull
+    private static TestSubscriber<Integer> subscriberWithoutInitialRequest() {
+        return new TestSubscriber<Integer>() {
+            @Override
+            public void onStart() {
+                request(0);
+            }
+        };
+    }
+
+    @Test
+    public void emitsAllRowsAndClosesCursor() {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<Integer>();
+
+        observableOfRows().subscribe(testSubscriber);
+
+        testSubscriber.assertReceivedOnNext(Arrays.asList(0, 1, 2, 3, 4));
+        testSubscriber.assertTerminalEvent();
+        testSubscriber.assertNoErrors();
+        verify(cursor, times(1)).close();
+    }
+
+    @Test
+    public void queryIsNotExecutedUntilSubscribe() {
+        observableOfRows();
+        verify(getResolver, never()).performGet(storIOSQLite, query);
+    }
+
+    @Test
+    public void readsOnlyRequestedRows() {
+        final TestSubscriber<Integer> testSubscriber = subscriberWithoutInitialRequest();
+
+        observableOfRows().subscribe(testSubscriber);
+
+        verify(mapFunc, never()).map(cursor);
+
+        testSubscriber.requestMore(2);
+        testSubscriber.assertReceivedOnNext(Arrays.asList(0, 1));
+        verify(cursor, times(2)).moveToNext();
+        verify(cursor, never()).close();
+
+        testSubscriber.requestMore(10);
+        testSubscriber.assertReceivedOnNext(Arrays.asList(0, 1, 2, 3, 4));
+        testSubscriber.assertTerminalEvent();
+        verify(cursor, times(1)).close();
+    }
+
+    @Test
+    public void unsubscribeClosesCursor() {
+        final TestSubscriber<Integer> testSubscriber = subscriberWithoutInitialRequest();
+
+        final Subscription subscription = observableOfRows().subscribe(testSubscriber);
+
+        testSubscriber.requestMore(1);
+        subscription.unsubscribe();
+
+        verify(cursor, times(1)).close();
+
+        testSubscriber.requestMore(1);
+        testSubscriber.assertReceivedOnNext(Arrays.asList(0));
+        verify(mapFunc, times(1)).map(cursor);
+    }
+
+    @Test
+    public void unsubscribeInTheMiddleOfIteration() {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<Integer>() {
+            @Override
+            public void onNext(Integer integer) {
+                super.onNext(integer);
+
+                if (integer == 1) {
+                    unsubscribe();
+                }
+            }
+        };
+
+        observableOfRows().subscribe(testSubscriber);
+
+        testSubscriber.assertReceivedOnNext(Arrays.asList(0, 1));
+        verify(cursor, times(1)).close();
+    }
+
+    @Test
+    public void mapFuncErrorIsDeliveredAndCursorIsClosed() {
+        final RuntimeException exception = new RuntimeException("test");
+
+        when(mapFunc.map(any(Cursor.class)))
+                .thenThrow(exception);
+
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<Integer>();
+
+        observableOfRows().subscribe(testSubscriber);
+
+        testSubscriber.assertTerminalEvent();
+        assertEquals(Arrays.asList(exception), testSubscriber.getOnErrorEvents());
+        verify(cursor, times(1)).close();
+    }
+}
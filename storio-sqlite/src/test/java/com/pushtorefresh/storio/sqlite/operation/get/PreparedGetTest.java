@@ -2,6 +2,7 @@ package com.pushtorefresh.storio.sqlite.operation.get;
 
 import android.database.Cursor;
 
+import com.pushtorefresh.storio.sqlite.QueryCache;
 import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.sqlite.query.Query;
 import com.pushtorefresh.storio.sqlite.query.RawQuery;
@@ -12,6 +13,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -54,6 +56,7 @@ public class PreparedGetTest {
 
     private static class GetStub {
         final StorIOSQLite storIOSQLite;
+        final StorIOSQLite.Internal internal;
         final Query query;
         final RawQuery rawQuery;
         final GetResolver getResolver;
@@ -70,6 +73,11 @@ public class PreparedGetTest {
             mapFunc = (MapFunc<Cursor, TestItem>) mock(MapFunc.class);
             cursor = mock(Cursor.class);
 
+            internal = mock(StorIOSQLite.Internal.class);
+
+            when(storIOSQLite.internal())
+                    .thenReturn(internal);
+
             testItems = new ArrayList<TestItem>();
             testItems.add(new TestItem());
             testItems.add(new TestItem());
@@ -265,4 +273,96 @@ public class PreparedGetTest {
 
         getStub.verifyRawQueryBehaviorForList(testItems);
     }
+
+    @Test
+    public void getListOfObjectsFromQueryCache() {
+        final GetStub getStub = new GetStub();
+        final QueryCache queryCache = new QueryCache(10, 1024 * 1024);
+
+        when(getStub.internal.queryCache())
+                .thenReturn(queryCache);
+
+        final Query query = new Query.Builder()
+                .table("test_table")
+                .build();
+
+        when(getStub.getResolver.performGet(getStub.storIOSQLite, query))
+                .thenReturn(getStub.cursor);
+
+        final PreparedGetListOfObjects<TestItem> preparedGet = getStub.storIOSQLite
+                .get()
+                .listOfObjects(TestItem.class)
+                .withMapFunc(getStub.mapFunc)
+                .withQuery(query)
+                .withGetResolver(getStub.getResolver)
+                .prepare();
+
+        assertEquals(getStub.testItems, preparedGet.executeAsBlocking());
+        assertEquals(getStub.testItems, preparedGet.executeAsBlocking());
+
+        verify(getStub.getResolver, times(1)).performGet(getStub.storIOSQLite, query);
+        assertEquals(1, queryCache.hitCount());
+
+        queryCache.invalidate(Collections.singleton("test_table"));
+        preparedGet.executeAsBlocking();
+
+        verify(getStub.getResolver, times(2)).performGet(getStub.storIOSQLite, query);
+    }
+
+    @Test
+    public void resultOfQueryWithSubqueryIsNotCached() {
+        final GetStub getStub = new GetStub();
+        final QueryCache queryCache = new QueryCache(10, 1024 * 1024);
+
+        when(getStub.internal.queryCache())
+                .thenReturn(queryCache);
+
+        // changes of other_table would not invalidate cached result
+        final Query query = new Query.Builder()
+                .table("test_table")
+                .where("id IN (select test_id FROM other_table)")
+                .build();
+
+        when(getStub.getResolver.performGet(getStub.storIOSQLite, query))
+                .thenReturn(getStub.cursor);
+
+        getStub.storIOSQLite
+                .get()
+                .listOfObjects(TestItem.class)
+                .withMapFunc(getStub.mapFunc)
+                .withQuery(query)
+                .withGetResolver(getStub.getResolver)
+                .prepare()
+                .executeAsBlocking();
+
+        assertEquals(0, queryCache.entryCount());
+    }
+
+    @Test
+    public void resultOfRawQueryWithoutAffectedTablesIsNotCached() {
+        final GetStub getStub = new GetStub();
+        final QueryCache queryCache = new QueryCache(10, 1024 * 1024);
+
+        when(getStub.internal.queryCache())
+                .thenReturn(queryCache);
+
+        // parsed tables can miss tables of views, so cached result could become stale
+        final RawQuery rawQuery = new RawQuery.Builder()
+                .query("SELECT * FROM test_view")
+                .build();
+
+        when(getStub.getResolver.performGet(getStub.storIOSQLite, rawQuery))
+                .thenReturn(getStub.cursor);
+
+        getStub.storIOSQLite
+                .get()
+                .listOfObjects(TestItem.class)
+                .withMapFunc(getStub.mapFunc)
+                .withQuery(rawQuery)
+                .withGetResolver(getStub.getResolver)
+                .prepare()
+                .executeAsBlocking();
+
+        assertEquals(0, queryCache.entryCount());
+    }
 }
@@ -10,8 +10,12 @@ import com.pushtorefresh.storio.sqlite.query.UpdateQuery;
 import com.pushtorefresh.storio.operation.MapFunc;
 
 import org.junit.Test;
+import org.mockito.InOrder;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static junit.framework.Assert.assertEquals;
@@ -21,6 +25,7 @@ import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -196,6 +201,58 @@ public class DefaultPutResolverTest {
         assertNull(putResult.insertedId());
     }
 
+    @Test
+    public void updateReportsRowIdOnlyIfIdColumnIsRowId() {
+        final StorIOSQLite storIOSQLite = mock(StorIOSQLite.class);
+        final StorIOSQLite.Internal internal = mock(StorIOSQLite.Internal.class);
+
+        when(storIOSQLite.internal())
+                .thenReturn(internal);
+
+        when(internal.update(any(UpdateQuery.class), any(ContentValues.class)))
+                .thenReturn(1);
+
+        final ContentValues contentValues = TestItem.MAP_TO_CONTENT_VALUES.map(new TestItem(1234L));
+
+        final PutResolver<TestItem> putResolver = new DefaultPutResolver<TestItem>() {
+            @NonNull
+            @Override
+            protected String getTable() {
+                return TestItem.TABLE;
+            }
+
+            @NonNull
+            @Override
+            protected String getIdColumnName() {
+                return TestItem.ID_COLUMN_NAME;
+            }
+        };
+
+        final PutResolver<TestItem> rowIdPutResolver = new DefaultPutResolver<TestItem>() {
+            @NonNull
+            @Override
+            protected String getTable() {
+                return TestItem.TABLE;
+            }
+
+            @NonNull
+            @Override
+            protected String getIdColumnName() {
+                return TestItem.ID_COLUMN_NAME;
+            }
+
+            @Override
+            protected boolean idColumnIsRowId() {
+                return true;
+            }
+        };
+
+        // by default id column can be any column, so only table is known
+        assertNull(putResolver.performPut(storIOSQLite, contentValues).affectedRowId());
+
+        assertEquals(Long.valueOf(1234L), rowIdPutResolver.performPut(storIOSQLite, contentValues).affectedRowId());
+    }
+
     /**
      * Verifies behavior of {@link DefaultPutResolver} for situation,
      * when object has "id" and {@link DefaultPutResolver} will try to "update" values in the db,
@@ -271,4 +328,71 @@ public class DefaultPutResolverTest {
         assertEquals(expectedInsertId, putResult.insertedId());
         assertNull(putResult.numberOfRowsUpdated());
     }
+
+    /**
+     * Verifies behavior of {@link DefaultPutResolver} for "batch put":
+     * consecutive objects without id should be inserted together, objects with id should be put one by one
+     * and order of writes should be kept
+     */
+    @Test
+    public void batchPut() {
+        final StorIOSQLite storIOSQLite = mock(StorIOSQLite.class);
+        final StorIOSQLite.Internal internal = mock(StorIOSQLite.Internal.class);
+
+        when(storIOSQLite.internal())
+                .thenReturn(internal);
+
+        final ContentValues newItem1 = TestItem.MAP_TO_CONTENT_VALUES.map(new TestItem(null));
+        final ContentValues newItem2 = TestItem.MAP_TO_CONTENT_VALUES.map(new TestItem(null));
+        final ContentValues existingItem = TestItem.MAP_TO_CONTENT_VALUES.map(new TestItem(5L));
+        final ContentValues newItem3 = TestItem.MAP_TO_CONTENT_VALUES.map(new TestItem(null));
+
+        final InsertQuery expectedInsertQuery = new InsertQuery.Builder()
+                .table(TestItem.TABLE)
+                .nullColumnHack(null)
+                .build();
+
+        when(internal.insertBatch(eq(expectedInsertQuery), eq(Arrays.asList(newItem1, newItem2))))
+                .thenReturn(new long[]{10L, 11L});
+
+        when(internal.insertBatch(eq(expectedInsertQuery), eq(Collections.singletonList(newItem3))))
+                .thenReturn(new long[]{12L});
+
+        when(internal.update(any(UpdateQuery.class), eq(existingItem)))
+                .thenReturn(1);
+
+        final DefaultPutResolver<TestItem> putResolver = new DefaultPutResolver<TestItem>() {
+            @NonNull
+            @Override
+            protected String getTable() {
+                return TestItem.TABLE;
+            }
+
+            @NonNull
+            @Override
+            protected String getIdColumnName() {
+                return TestItem.ID_COLUMN_NAME;
+            }
+        };
+
+        final List<PutResult> putResults = putResolver.performBatchPut(
+                storIOSQLite,
+                Arrays.asList(newItem1, newItem2, existingItem, newItem3)
+        );
+
+        assertEquals(4, putResults.size());
+        assertEquals(PutResult.newInsertResult(10L, TestItem.TABLE), putResults.get(0));
+        assertEquals(PutResult.newInsertResult(11L, TestItem.TABLE), putResults.get(1));
+        assertEquals(PutResult.newUpdateResult(1, TestItem.TABLE), putResults.get(2));
+        assertEquals(PutResult.newInsertResult(12L, TestItem.TABLE), putResults.get(3));
+
+        final InOrder inOrder = inOrder(internal);
+        inOrder.verify(internal).insertBatch(any(InsertQuery.class), eq(Arrays.asList(newItem1, newItem2)));
+        inOrder.verify(internal).update(any(UpdateQuery.class), eq(existingItem));
+        inOrder.verify(internal).insertBatch(any(InsertQuery.class), eq(Collections.singletonList(newItem3)));
+
+        // objects without id should not be inserted one by one
+        verify(internal, times(0)).insert(any(InsertQuery.class), any(ContentValues.class));
+        verify(internal, times(1)).update(any(UpdateQuery.class), any(ContentValues.class));
+    }
 }
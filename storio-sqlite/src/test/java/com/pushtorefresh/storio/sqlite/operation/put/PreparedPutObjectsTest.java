@@ -1,9 +1,26 @@
 package com.pushtorefresh.storio.sqlite.operation.put;
 
+import android.content.ContentValues;
+
+import com.pushtorefresh.storio.operation.MapFunc;
+import com.pushtorefresh.storio.sqlite.Changes;
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 import rx.Observable;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 public class PreparedPutObjectsTest {
 
     @Test
@@ -99,4 +116,65 @@ public class PreparedPutObjectsTest {
 
         putStub.verifyBehaviorForMultiple(putResultsObservable);
     }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void putMultipleBlockingWithBatchInsert() {
+        final StorIOSQLite storIOSQLite = mock(StorIOSQLite.class);
+        final StorIOSQLite.Internal internal = mock(StorIOSQLite.Internal.class);
+
+        when(storIOSQLite.internal())
+                .thenReturn(internal);
+
+        when(internal.transactionsSupported())
+                .thenReturn(true);
+
+        when(storIOSQLite.put())
+                .thenReturn(new PreparedPut.Builder(storIOSQLite));
+
+        final List<TestItem> testItems = Arrays.asList(TestItem.newInstance(), TestItem.newInstance());
+        final MapFunc<TestItem, ContentValues> mapFunc = (MapFunc<TestItem, ContentValues>) mock(MapFunc.class);
+        final DefaultPutResolver<TestItem> putResolver = (DefaultPutResolver<TestItem>) mock(DefaultPutResolver.class);
+
+        when(putResolver.useBatchInsert())
+                .thenReturn(true);
+
+        final ContentValues contentValues1 = mock(ContentValues.class);
+        final ContentValues contentValues2 = mock(ContentValues.class);
+
+        when(mapFunc.map(testItems.get(0)))
+                .thenReturn(contentValues1);
+
+        when(mapFunc.map(testItems.get(1)))
+                .thenReturn(contentValues2);
+
+        final PutResult putResult1 = PutResult.newInsertResult(1, TestItem.TABLE);
+        final PutResult putResult2 = PutResult.newInsertResult(2, TestItem.TABLE);
+
+        when(putResolver.performBatchPut(storIOSQLite, Arrays.asList(contentValues1, contentValues2)))
+                .thenReturn(Arrays.asList(putResult1, putResult2));
+
+        final PutResults<TestItem> putResults = storIOSQLite
+                .put()
+                .objects(testItems)
+                .withMapFunc(mapFunc)
+                .withPutResolver(putResolver)
+                .prepare()
+                .executeAsBlocking();
+
+        assertEquals(putResult1, putResults.results().get(testItems.get(0)));
+        assertEquals(putResult2, putResults.results().get(testItems.get(1)));
+
+        // objects should not be put one by one
+        verify(putResolver, times(0)).performPut(any(StorIOSQLite.class), any(ContentValues.class));
+        verify(putResolver, times(1)).performBatchPut(any(StorIOSQLite.class), anyListOf(ContentValues.class));
+
+        verify(putResolver, times(1)).afterPut(testItems.get(0), putResult1);
+        verify(putResolver, times(1)).afterPut(testItems.get(1), putResult2);
+
+        // only one notification should be thrown
+        verify(internal, times(1)).beginTransaction();
+        verify(internal, times(1)).notifyAboutChanges(any(Changes.class));
+        verify(internal, times(1)).notifyAboutChanges(Changes.newInstance(TestItem.TABLE, Arrays.asList(1L, 2L)));
+    }
 }
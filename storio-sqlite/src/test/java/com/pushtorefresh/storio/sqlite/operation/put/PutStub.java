@@ -9,6 +9,7 @@ import com.pushtorefresh.storio.sqlite.StorIOSQLite;
 import com.pushtorefresh.storio.test.ObservableBehaviorChecker;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -66,6 +67,9 @@ class PutStub {
         when(storIOSQLite.internal())
                 .thenReturn(internal);
 
+        when(internal.createWriteObservable(any(PreparedPut.class)))
+                .thenCallRealMethod();
+
         when(storIOSQLite.put())
                 .thenReturn(new PreparedPut.Builder(storIOSQLite));
 
@@ -101,12 +105,12 @@ class PutStub {
         if (useTransaction) {
             // if put() operation used transaction, only one notification should be thrown
             verify(internal, times(1))
-                    .notifyAboutChanges(eq(Changes.newInstance(TestItem.TABLE)));
+                    .notifyAboutChanges(eq(Changes.newInstance(TestItem.TABLE, Collections.singleton(1L))));
         } else {
             // if put() operation didn't use transaction,
             // number of notifications should be equal to number of objects
             verify(internal, times(testItems.size()))
-                    .notifyAboutChanges(eq(Changes.newInstance(TestItem.TABLE)));
+                    .notifyAboutChanges(eq(Changes.newInstance(TestItem.TABLE, Collections.singleton(1L))));
         }
     }
 
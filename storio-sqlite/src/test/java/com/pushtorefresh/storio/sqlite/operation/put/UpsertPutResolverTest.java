@@ -0,0 +1,140 @@
+package com.pushtorefresh.storio.sqlite.operation.put;
+
+import android.content.ContentValues;
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+import com.pushtorefresh.storio.sqlite.query.ConflictStrategy;
+import com.pushtorefresh.storio.sqlite.query.InsertQuery;
+import com.pushtorefresh.storio.sqlite.query.UpdateQuery;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UpsertPutResolverTest {
+
+    private static final String TABLE = "test_table";
+
+    private StorIOSQLite storIOSQLite;
+    private StorIOSQLite.Internal internal;
+    private PutResolver<Object> putResolver;
+
+    @Before
+    public void setUp() {
+        storIOSQLite = mock(StorIOSQLite.class);
+        internal = mock(StorIOSQLite.Internal.class);
+
+        when(storIOSQLite.internal())
+                .thenReturn(internal);
+
+        putResolver = new UpsertPutResolver<Object>() {
+            @NonNull
+            @Override
+            protected String getTable() {
+                return TABLE;
+            }
+        };
+    }
+
+    @NonNull
+    private static ContentValues contentValuesWithId(Long id) {
+        final ContentValues contentValues = mock(ContentValues.class);
+
+        when(contentValues.get("_id"))
+                .thenReturn(id);
+
+        return contentValues;
+    }
+
+    @NonNull
+    private static InsertQuery insertQuery(@NonNull ConflictStrategy conflictStrategy) {
+        return new InsertQuery.Builder()
+                .table(TABLE)
+                .conflictStrategy(conflictStrategy)
+                .build();
+    }
+
+    @Test
+    public void insertWithoutId() {
+        final ContentValues contentValues = contentValuesWithId(null);
+
+        when(internal.insert(eq(insertQuery(ConflictStrategy.ABORT)), eq(contentValues)))
+                .thenReturn(24L);
+
+        final PutResult putResult = putResolver.performPut(storIOSQLite, contentValues);
+
+        assertTrue(putResult.wasInserted());
+        assertEquals(Long.valueOf(24), putResult.insertedId());
+
+        verify(internal, times(1)).insert(any(InsertQuery.class), any(ContentValues.class));
+        verify(internal, times(0)).update(any(UpdateQuery.class), any(ContentValues.class));
+    }
+
+    @Test
+    public void insertNewRowWithIdInOneStatement() {
+        final ContentValues contentValues = contentValuesWithId(42L);
+
+        when(internal.insert(eq(insertQuery(ConflictStrategy.IGNORE)), eq(contentValues)))
+                .thenReturn(42L);
+
+        final PutResult putResult = putResolver.performPut(storIOSQLite, contentValues);
+
+        assertTrue(putResult.wasInserted());
+        assertEquals(Long.valueOf(42), putResult.insertedId());
+
+        verify(internal, times(1)).insert(any(InsertQuery.class), any(ContentValues.class));
+        verify(internal, times(0)).update(any(UpdateQuery.class), any(ContentValues.class));
+    }
+
+    @Test
+    public void updateExistingRow() {
+        final ContentValues contentValues = contentValuesWithId(42L);
+
+        when(internal.insert(eq(insertQuery(ConflictStrategy.IGNORE)), eq(contentValues)))
+                .thenReturn(-1L);
+
+        final UpdateQuery expectedUpdateQuery = new UpdateQuery.Builder()
+                .table(TABLE)
+                .where("_id=?")
+                .whereArgs(42L)
+                .build();
+
+        when(internal.update(eq(expectedUpdateQuery), eq(contentValues)))
+                .thenReturn(1);
+
+        final PutResult putResult = putResolver.performPut(storIOSQLite, contentValues);
+
+        assertTrue(putResult.wasUpdated());
+        assertFalse(putResult.wasInserted());
+        assertEquals(Integer.valueOf(1), putResult.numberOfRowsUpdated());
+
+        verify(internal, times(1)).insert(any(InsertQuery.class), any(ContentValues.class));
+        verify(internal, times(1)).update(any(UpdateQuery.class), any(ContentValues.class));
+    }
+
+    @Test
+    public void regularInsertIfIgnoredRowDoesNotExist() {
+        final ContentValues contentValues = contentValuesWithId(42L);
+
+        when(internal.insert(eq(insertQuery(ConflictStrategy.IGNORE)), eq(contentValues)))
+                .thenReturn(-1L);
+
+        when(internal.update(any(UpdateQuery.class), eq(contentValues)))
+                .thenReturn(0);
+
+        putResolver.performPut(storIOSQLite, contentValues);
+
+        // regular insert should report real constraint violation
+        verify(internal, times(1)).insert(eq(insertQuery(ConflictStrategy.ABORT)), eq(contentValues));
+    }
+}
@@ -0,0 +1,127 @@
+package com.pushtorefresh.storio.sqlite.operation.transaction;
+
+import android.support.annotation.NonNull;
+
+import com.pushtorefresh.storio.sqlite.StorIOSQLite;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PreparedTransactionTest {
+
+    private StorIOSQLite storIOSQLite;
+    private StorIOSQLite.Internal internal;
+
+    @Before
+    public void setUp() {
+        storIOSQLite = mock(StorIOSQLite.class);
+        internal = mock(StorIOSQLite.Internal.class);
+
+        when(storIOSQLite.internal())
+                .thenReturn(internal);
+
+        when(storIOSQLite.transaction())
+                .thenReturn(new PreparedTransaction.Builder(storIOSQLite));
+
+        when(internal.transactionsSupported())
+                .thenReturn(true);
+    }
+
+    @Test
+    public void executeAsBlockingCommitsTransaction() {
+        final String result = storIOSQLite
+                .transaction()
+                .withWork(new TransactionWork<String>() {
+                    @Override
+                    public String perform(@NonNull StorIOSQLite storIOSQLite) {
+                        storIOSQLite.internal().execSql(null);
+                        return "result";
+                    }
+                })
+                .prepare()
+                .executeAsBlocking();
+
+        assertEquals("result", result);
+
+        final InOrder inOrder = inOrder(internal);
+        inOrder.verify(internal).beginTransaction();
+        inOrder.verify(internal).execSql(null);
+        inOrder.verify(internal).setTransactionSuccessful();
+        inOrder.verify(internal).endTransaction();
+    }
+
+    @Test
+    public void createObservableCommitsTransaction() {
+        final String result = storIOSQLite
+                .transaction()
+                .withWork(new TransactionWork<String>() {
+                    @Override
+                    public String perform(@NonNull StorIOSQLite storIOSQLite) {
+                        return "result";
+                    }
+                })
+                .prepare()
+                .createObservable()
+                .toBlocking()
+                .single();
+
+        assertEquals("result", result);
+
+        verify(internal).beginTransaction();
+        verify(internal).setTransactionSuccessful();
+        verify(internal).endTransaction();
+    }
+
+    @Test
+    public void exceptionRollsBackTransaction() {
+        final RuntimeException exception = new RuntimeException("test");
+
+        try {
+            storIOSQLite
+                    .transaction()
+                    .withWork(new TransactionWork<Object>() {
+                        @Override
+                        public Object perform(@NonNull StorIOSQLite storIOSQLite) {
+                            throw exception;
+                        }
+                    })
+                    .prepare()
+                    .executeAsBlocking();
+
+            fail();
+        } catch (RuntimeException expected) {
+            assertSame(exception, expected);
+        }
+
+        verify(internal).beginTransaction();
+        verify(internal, never()).setTransactionSuccessful();
+        verify(internal).endTransaction();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void transactionsNotSupported() {
+        when(internal.transactionsSupported())
+                .thenReturn(false);
+
+        storIOSQLite
+                .transaction()
+                .withWork(new TransactionWork<Object>() {
+                    @Override
+                    public Object perform(@NonNull StorIOSQLite storIOSQLite) {
+                        return null;
+                    }
+                })
+                .prepare()
+                .executeAsBlocking();
+    }
+}
@@ -3,6 +3,7 @@ package com.pushtorefresh.storio.sqlite.query;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class InsertQueryTest {
 
@@ -33,5 +34,29 @@ public class InsertQueryTest {
 
         assertEquals(table, insertQuery.table);
         assertEquals(nullColumnHack, insertQuery.nullColumnHack);
+        assertEquals(ConflictStrategy.ABORT, insertQuery.conflictStrategy);
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    @Test(expected = NullPointerException.class)
+    public void nullConflictStrategy() {
+        new InsertQuery.Builder()
+                .table("test_table")
+                .conflictStrategy(null)
+                .build();
+    }
+
+    @Test
+    public void buildWithConflictStrategy() {
+        final InsertQuery insertQuery = new InsertQuery.Builder()
+                .table("test_table")
+                .conflictStrategy(ConflictStrategy.REPLACE)
+                .build();
+
+        assertEquals(ConflictStrategy.REPLACE, insertQuery.conflictStrategy);
+
+        assertFalse(insertQuery.equals(new InsertQuery.Builder()
+                .table("test_table")
+                .build()));
     }
 }
@@ -0,0 +1,91 @@
+package com.pushtorefresh.storio.sqlite.query;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SqlTablesTest {
+
+    private static Set<String> setOf(String... tables) {
+        return new HashSet<String>(Arrays.asList(tables));
+    }
+
+    @Test
+    public void readTablesOfSimpleSelect() {
+        assertEquals(setOf("tweets"), SqlTables.readTablesOf("SELECT * FROM tweets WHERE author = ?"));
+    }
+
+    @Test
+    public void readTablesOfJoinsWithAliases() {
+        assertEquals(
+                setOf("tweets", "users", "likes"),
+                SqlTables.readTablesOf("SELECT t.* FROM tweets AS t "
+                        + "LEFT OUTER JOIN users u ON t.author = u._id "
+                        + "INNER JOIN main.likes ON likes.tweet = t._id ORDER BY t.date LIMIT 10")
+        );
+    }
+
+    @Test
+    public void readTablesOfCommaSeparatedListWithSubquery() {
+        assertEquals(
+                setOf("tweets", "users", "likes"),
+                SqlTables.readTablesOf("SELECT * FROM (SELECT author FROM tweets) t, users u, \"likes\" "
+                        + "WHERE u._id IN (SELECT user FROM likes)")
+        );
+    }
+
+    @Test
+    public void namesOfCommonTableExpressionsAreExcluded() {
+        assertEquals(
+                setOf("tweets", "users"),
+                SqlTables.readTablesOf("WITH RECURSIVE top(author, count) AS (SELECT author, count(*) FROM tweets GROUP BY author) "
+                        + "SELECT * FROM top JOIN users ON users._id = top.author")
+        );
+    }
+
+    @Test
+    public void literalsAndCommentsAreIgnored() {
+        assertEquals(
+                setOf("tweets"),
+                SqlTables.readTablesOf("SELECT 'FROM users' -- FROM likes\n FROM /* JOIN users */ tweets WHERE a IS NOT DISTINCT FROM b")
+        );
+    }
+
+    @Test
+    public void readTablesOfQueryWithoutTables() {
+        assertEquals(Collections.<String>emptySet(), SqlTables.readTablesOf("SELECT 1"));
+    }
+
+    @Test
+    public void notTerminatedLiteralCanNotBeParsed() {
+        assertNull(SqlTables.readTablesOf("SELECT * FROM tweets WHERE text = 'abc"));
+        assertNull(SqlTables.writtenTablesOf("DELETE FROM tweets WHERE text = 'abc"));
+    }
+
+    @Test
+    public void writtenTablesOfChangingStatements() {
+        assertEquals(setOf("tweets"), SqlTables.writtenTablesOf("INSERT OR REPLACE INTO tweets (text) SELECT text FROM drafts"));
+        assertEquals(setOf("tweets"), SqlTables.writtenTablesOf("REPLACE INTO tweets VALUES (?)"));
+        assertEquals(setOf("tweets"), SqlTables.writtenTablesOf("UPDATE OR IGNORE main.tweets SET text = ?"));
+        assertEquals(setOf("tweets"), SqlTables.writtenTablesOf("DELETE FROM `tweets` WHERE _id = ?"));
+        assertEquals(setOf("tweets"), SqlTables.writtenTablesOf("DROP TABLE IF EXISTS tweets"));
+        assertEquals(setOf("tweets"), SqlTables.writtenTablesOf("ALTER TABLE tweets ADD COLUMN likes INTEGER"));
+        assertEquals(
+                setOf("tweets"),
+                SqlTables.writtenTablesOf("WITH old AS (SELECT _id FROM tweets WHERE date < ?) DELETE FROM tweets WHERE _id IN old")
+        );
+    }
+
+    @Test
+    public void writtenTablesOfNotChangingStatements() {
+        assertEquals(Collections.<String>emptySet(), SqlTables.writtenTablesOf("CREATE INDEX tweets_date ON tweets (date)"));
+        assertEquals(Collections.<String>emptySet(), SqlTables.writtenTablesOf("SELECT * FROM tweets"));
+        assertEquals(Collections.<String>emptySet(), SqlTables.writtenTablesOf("DROP VIEW tweets_view"));
+    }
+}
@@ -38,5 +38,16 @@ public class UpdateQueryTest {
         assertEquals(table, updateQuery.table);
         assertEquals(where, updateQuery.where);
         assertEquals(Arrays.asList(whereArgs), updateQuery.whereArgs);
+        assertEquals(ConflictStrategy.ABORT, updateQuery.conflictStrategy);
+    }
+
+    @Test
+    public void buildWithConflictStrategy() {
+        final UpdateQuery updateQuery = new UpdateQuery.Builder()
+                .table("test_table")
+                .conflictStrategy(ConflictStrategy.IGNORE)
+                .build();
+
+        assertEquals(ConflictStrategy.IGNORE, updateQuery.conflictStrategy);
     }
 }